@@ -0,0 +1,117 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deconvolution.algorithm.Algorithm;
+import deconvolution.algorithm.AlgorithmList;
+import fft.FFT;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * One run of each algorithm of the AlgorithmList on synthetic beads blurred
+ * by a Gaussian PSF. The iterative algorithms do the given number of 
+ * iterations; the difference between 1 and 11 iterations gives the cost of 10
+ * iterations without the preparation (padding, FFT of the input and the PSF).
+ * 
+ * The FFT and OTF caches are kept between the runs: except the first warm-up
+ * run, every run reuses the initialized FFT and the transfer function of the
+ * PSF. The measures are those of a batch processing the same PSF, the cost of
+ * the FFT of the PSF and of the FFT plans is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AlgorithmBenchmark {
+
+	@Param({ "RIF", "TRIF", "NIF", "FISTA", "ISTA", "LW", "NNLS", "BVLS", "RL", "RLA", "RLTV", "TM", "ICTM", "VC" })
+	public String		algorithm;
+
+	@Param({ "1", "11" })
+	public int			iterations;
+
+	@Param({ "128x128x32" })
+	public String		size;
+
+	@Param({ "Academic" })
+	public String		fft;
+
+	private Algorithm	algo;
+	private RealSignal	image;
+	private RealSignal	psf;
+
+	@Setup
+	public void setup() {
+		int[] n = Synthetic.parseSize(size);
+		psf = Synthetic.psf(n);
+		image = Synthetic.image(n);
+		algo = AlgorithmList.createAlgorithm(algorithm);
+		double[] params = algo.getDefaultParameters();
+		if (algo.isIterative() && params.length > 0)
+			params[0] = iterations;
+		algo.setParameters(params);
+		algo.setController(Synthetic.controller());
+		algo.getController().setFFT(FFT.getLibraryByName(fft).getDefaultFFT());
+	}
+
+	@TearDown
+	public void tearDown() {
+		SignalCollector.free(image);
+		SignalCollector.free(psf);
+	}
+
+	@Benchmark
+	public RealSignal run() {
+		RealSignal x = algo.run(image, psf);
+		SignalCollector.free(x);
+		return x;
+	}
+}
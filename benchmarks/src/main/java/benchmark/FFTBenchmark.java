@@ -0,0 +1,107 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fft.AbstractFFT;
+import fft.AbstractFFTLibrary;
+import fft.FFT;
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * Forward and inverse FFT of every library, on sizes typical of microscopy
+ * stacks and on awkward sizes (primes, products of large factors). A library 
+ * which is not installed fails its trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FFTBenchmark {
+
+	@Param({ "Academic", "JTransforms", "FFTW2" })
+	public String		library;
+
+	@Param({ "256x256x1", "64x64x64", "128x128x32", "256x256x64", "97x89x31", "210x210x21" })
+	public String		size;
+
+	private AbstractFFT		fft;
+	private RealSignal		x;
+	private ComplexSignal	X;
+
+	@Setup
+	public void setup() {
+		AbstractFFTLibrary lib = FFT.getLibraryByName(library);
+		if (!lib.isInstalled() || !lib.getLibraryName().equals(library))
+			throw new IllegalStateException("FFT library not installed: " + library);
+		int[] n = Synthetic.parseSize(size);
+		fft = lib.getDefaultFFT();
+		fft.init(Synthetic.silent(), n[0], n[1], n[2]);
+		x = Synthetic.random("x", n);
+		X = fft.transform(x);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SignalCollector.free(x);
+		SignalCollector.free(X);
+	}
+
+	@Benchmark
+	public ComplexSignal forward() {
+		return fft.transform(x, X);
+	}
+
+	@Benchmark
+	public RealSignal inverse() {
+		return fft.inverse(X, x);
+	}
+}
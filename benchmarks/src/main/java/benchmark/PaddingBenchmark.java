@@ -0,0 +1,115 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import deconvolutionlab.monitor.Monitors;
+import signal.RealSignal;
+import signal.SignalCollector;
+import signal.apodization.Apodization;
+import signal.padding.Padding;
+
+/**
+ * Padding and cropping of the input, and apodization. The apodization is
+ * applied on a fresh copy of the input, the copy is part of the measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaddingBenchmark {
+
+	@Param({ "NO", "X2", "E2", "X2X3X5", "OPTIMAL" })
+	public String		padding;
+
+	@Param({ "NO", "HANN", "TUKEY" })
+	public String		apodization;
+
+	@Param({ "200x200x40" })
+	public String		size;
+
+	private Monitors	monitors;
+	private Padding		pad;
+	private Apodization	apo;
+	private RealSignal	x;
+	private RealSignal	copy;
+
+	@Setup
+	public void setup() {
+		int[] n = Synthetic.parseSize(size);
+		monitors = Synthetic.silent();
+		pad = new Padding(padding, padding, padding, 16, 16, 8);
+		apo = new Apodization(apodization, apodization, apodization);
+		x = Synthetic.random("x", n);
+		copy = x.duplicate();
+	}
+
+	@TearDown
+	public void tearDown() {
+		SignalCollector.free(x);
+		SignalCollector.free(copy);
+	}
+
+	@Benchmark
+	public RealSignal padAndCrop() {
+		RealSignal large = pad.pad(monitors, x);
+		RealSignal result = pad.crop(monitors, large);
+		if (result != large)
+			SignalCollector.free(large);
+		SignalCollector.free(result);
+		return result;
+	}
+
+	@Benchmark
+	public RealSignal apodize() {
+		copy.copy(x);
+		apo.apodize(monitors, copy);
+		return copy;
+	}
+}
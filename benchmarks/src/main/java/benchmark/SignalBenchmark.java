@@ -0,0 +1,163 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fft.AbstractFFT;
+import fft.FFT;
+import signal.ComplexSignal;
+import signal.Operations;
+import signal.RealSignal;
+import signal.SignalCollector;
+import signal.SlabPool;
+import signal.Statistics;
+
+/**
+ * Pointwise kernels of RealSignal, ComplexSignal and Operations, as called in
+ * the loops of the algorithms. The results are written in separate outputs so
+ * that the operands do not drift to infinite or denormal values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SignalBenchmark {
+
+	@Param({ "128x128x32", "256x256x64" })
+	public String		size;
+
+	@Param({ "true", "false" })
+	public boolean		multithreading;
+
+	private RealSignal		x;
+	private RealSignal		u;
+	private RealSignal		p;
+	private ComplexSignal	X;
+	private ComplexSignal	A;
+	private ComplexSignal	G;
+	private ComplexSignal	O;
+
+	@Setup
+	public void setup() {
+		SlabPool.setEnabled(multithreading);
+		int[] n = Synthetic.parseSize(size);
+		x = Synthetic.random("x", n);
+		u = Synthetic.random("u", n);
+		u.plus(1f);
+		p = new RealSignal("p", n[0], n[1], n[2]);
+		AbstractFFT fft = FFT.getLibraryByName("Academic").getDefaultFFT();
+		fft.init(Synthetic.silent(), n[0], n[1], n[2]);
+		X = fft.transform(x);
+		A = fft.transform(u);
+		A.times(1f / (n[0] * n[1] * n[2]));
+		G = fft.transform(x);
+		O = fft.transform(x);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SlabPool.setEnabled(true);
+		for (RealSignal s : new RealSignal[] { x, u, p })
+			SignalCollector.free(s);
+		for (ComplexSignal s : new ComplexSignal[] { X, A, G, O })
+			SignalCollector.free(s);
+	}
+
+	@Benchmark
+	public RealSignal realCopy() {
+		p.copy(x);
+		return p;
+	}
+
+	@Benchmark
+	public RealSignal realDivide() {
+		Operations.divide(x, u, p);
+		return p;
+	}
+
+	@Benchmark
+	public RealSignal realTimesPlus() {
+		p.copy(x);
+		return p.times(u).plus(x);
+	}
+
+	@Benchmark
+	public RealSignal realExpression() {
+		return x.lazy().times(u).plus(x).evaluate(p);
+	}
+
+	@Benchmark
+	public ComplexSignal complexMultiply() {
+		Operations.multiply(X, A, O);
+		return O;
+	}
+
+	@Benchmark
+	public ComplexSignal complexMultiplyConjugate() {
+		Operations.multiplyConjugate(A, X, O);
+		return O;
+	}
+
+	@Benchmark
+	public ComplexSignal complexExpression() {
+		return X.lazy().times(A).plus(G).evaluate(O);
+	}
+
+	@Benchmark
+	public ComplexSignal complexFastForward() {
+		O.copy(X);
+		Operations.fastForward(A, G, O, 8);
+		return O;
+	}
+
+	@Benchmark
+	public float[] statistics() {
+		return Statistics.compute(x).toArray();
+	}
+}
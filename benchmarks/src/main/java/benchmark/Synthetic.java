@@ -0,0 +1,102 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.Random;
+
+import deconvolution.algorithm.Controller;
+import deconvolutionlab.monitor.Monitors;
+import deconvolutionlab.monitor.Verbose;
+import signal.RealSignal;
+import signal.factory.CubeSphericalBeads;
+import signal.factory.Gaussian;
+
+/**
+ * Synthetic data and silent settings shared by the benchmarks.
+ */
+public class Synthetic {
+
+	/** Parses a size given as "nx x ny x nz", for example "128x128x32". */
+	public static int[] parseSize(String size) {
+		String[] tokens = size.toLowerCase().split("x");
+		int[] n = new int[] { 1, 1, 1 };
+		for (int a = 0; a < Math.min(3, tokens.length); a++)
+			n[a] = Integer.parseInt(tokens[a].trim());
+		return n;
+	}
+
+	/** Uniform random samples in [0, 1[, reproducible. */
+	public static RealSignal random(String name, int[] n) {
+		Random random = new Random(1234);
+		RealSignal signal = new RealSignal(name, n[0], n[1], n[2]);
+		for (int k = 0; k < n[2]; k++)
+			for (int i = 0; i < n[0] * n[1]; i++)
+				signal.data[k][i] = random.nextFloat();
+		return signal;
+	}
+
+	/** Spherical beads on a grid, with a background, as an input image. */
+	public static RealSignal image(int[] n) {
+		RealSignal image = new CubeSphericalBeads(3, 0.5, 8, 8).intensity(100).generate(n[0], n[1], n[2]);
+		image.plus(1f);
+		image.setName("image");
+		return image;
+	}
+
+	/** Gaussian PSF, a quarter of the image laterally and half axially. */
+	public static RealSignal psf(int[] n) {
+		RealSignal psf = new Gaussian(2, 2, 3).generate(Math.max(1, n[0] / 4), Math.max(1, n[1] / 4), Math.max(1, n[2] / 2));
+		psf.setName("psf");
+		return psf;
+	}
+
+	public static Monitors silent() {
+		Monitors monitors = new Monitors();
+		monitors.setVerbose(Verbose.Mute);
+		return monitors;
+	}
+
+	/** 
+	 * Controller without monitor, display nor system panel. The FFT autotuning
+	 * is disabled, the benchmarks compare the FFT they set.
+	 */
+	public static Controller controller() {
+		Controller controller = new Controller();
+		controller.setFFTAutotuning(false);
+		controller.setMonitors(silent());
+		controller.setVerbose(Verbose.Mute);
+		controller.setSystem(false);
+		controller.setDisplayFinal(false);
+		return controller;
+	}
+}
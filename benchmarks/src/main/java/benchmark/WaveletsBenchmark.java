@@ -0,0 +1,115 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import signal.RealSignal;
+import signal.SignalCollector;
+import wavelets.AbstractWavelets;
+import wavelets.Wavelets;
+
+/**
+ * Wavelet shrinkage (analysis, soft threshold, synthesis) as done at each 
+ * iteration of ISTA and FISTA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WaveletsBenchmark {
+
+	@Param({ "Haar", "Spline1", "Spline3", "Spline5" })
+	public String		wavelets;
+
+	@Param({ "128x128x32", "256x256x64" })
+	public String		size;
+
+	@Param({ "3" })
+	public int			scales;
+
+	private AbstractWavelets	transform;
+	private RealSignal			x;
+	private RealSignal			out;
+	private RealSignal			buffer;
+
+	@Setup
+	public void setup() {
+		int[] n = Synthetic.parseSize(size);
+		transform = Wavelets.getWaveletsByName(wavelets);
+		transform.setScale(scales);
+		x = Synthetic.random("x", n);
+		out = new RealSignal("out", n[0], n[1], n[2]);
+		buffer = new RealSignal("buffer", n[0], n[1], n[2]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		SignalCollector.free(x);
+		SignalCollector.free(out);
+		SignalCollector.free(buffer);
+	}
+
+	@Benchmark
+	public RealSignal shrinkage() {
+		transform.shrinkage(0.1f, x, out, buffer);
+		return out;
+	}
+
+	@Benchmark
+	public RealSignal analysis() {
+		transform.analysis(x, buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public RealSignal synthesis() {
+		transform.synthesis(x, out);
+		return out;
+	}
+}
@@ -171,6 +171,19 @@ public class DL2 {
 		return Converter.createObject(result);
 	}
 	
+	public static Object RLA(Object arrayImage, Object arrayPSF, double itmax) {
+		return RLA(arrayImage, arrayPSF, itmax, "");
+	}
+	
+	public static Object RLA(Object arrayImage, Object arrayPSF, double itmax, String options) {
+		RealSignal image = Converter.createRealSignal(arrayImage);
+		RealSignal psf = Converter.createRealSignal(arrayPSF);
+		String command = " -algorithm RLA " + itmax + " " + options;
+		Deconvolution d = new Deconvolution("Matlab RLA", command);
+		RealSignal result = d.deconvolve(image, psf);
+		return Converter.createObject(result);
+	}
+	
 	public static Object RLTV(Object arrayImage, Object arrayPSF, double itmax, double regularizationFactor) {
 		return RLTV(arrayImage, arrayPSF, itmax, regularizationFactor, "");
 	}
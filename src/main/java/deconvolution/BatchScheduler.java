@@ -0,0 +1,345 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolution;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+
+import bilib.tools.NumFormat;
+import deconvolution.algorithm.Algorithm;
+import deconvolution.algorithm.Controller;
+import deconvolution.algorithm.Tiling;
+import deconvolutionlab.monitor.Monitors;
+import fft.FFT;
+import signal.AllocationScope;
+import signal.RealSignal;
+import signal.SignalCollector;
+import signal.SlabPool;
+
+/**
+ * This class runs a queue of deconvolution jobs. A job is admitted when its
+ * predicted memory, the padded size times the memory footprint ratio of the
+ * algorithm, fits in the memory budget with the jobs already running. The
+ * jobs are admitted in the order of submission; a job larger than the budget
+ * runs alone.
+ * 
+ * The cores are split between the concurrent jobs: each job gets its own pool
+ * for the signal kernels, sized from the number of jobs expected to run
+ * together. The threads of the FFT libraries are a process-wide setting, it
+ * is bounded by the largest share of the running jobs.
+ */
+public class BatchScheduler {
+
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED
+	};
+
+	public static class Job {
+
+		private String			name;
+		private Deconvolution	deconvolution;
+		private Controller		controller;
+		private volatile State	state		= State.QUEUED;
+		private long			bytes		= -1;
+		private int				threads		= 0;
+		private double			chrono;
+		private AllocationScope	scope;
+
+		private Job(String name, String command) {
+			this.name = name;
+			this.deconvolution = new Deconvolution(name, command);
+			this.controller = deconvolution.getController();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public long getPredictedMemory() {
+			return bytes;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		/**
+		 * Returns the accounting of the signals allocated by the job, null
+		 * until it starts.
+		 */
+		public AllocationScope getScope() {
+			return scope;
+		}
+
+		/**
+		 * Returns the progress in percent, measured on the iterations for the
+		 * iterative algorithms.
+		 */
+		public double getProgress() {
+			if (state == State.DONE)
+				return 100;
+			if (state != State.RUNNING)
+				return 0;
+			int max = controller.getIterationsMax();
+			return max <= 0 ? 0 : Math.min(100, controller.getIterations() * 100.0 / max);
+		}
+
+		@Override
+		public String toString() {
+			switch (state) {
+			case RUNNING:
+				return "Running " + (int) getProgress() + "% (" + threads + " threads)";
+			case DONE:
+				return "Done in " + NumFormat.seconds(chrono);
+			default:
+				return state.name().substring(0, 1) + state.name().substring(1).toLowerCase();
+			}
+		}
+	}
+
+	private LinkedList<Job>	queue		= new LinkedList<Job>();
+	private ArrayList<Job>	jobs		= new ArrayList<Job>();
+	private long			budget;
+	private int				cores;
+	private long			reserved	= 0;
+	private int				used		= 0;
+	private int				running		= 0;
+	private Thread			dispatcher;
+	private Monitors		monitors	= Monitors.createDefaultMonitor();
+
+	/**
+	 * Creates a scheduler using all the cores and 80% of the heap available.
+	 */
+	public BatchScheduler() {
+		this(getAvailableHeap() * 8 / 10, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param budget
+	 *            memory budget in bytes shared by the running jobs
+	 * @param cores
+	 *            number of cores shared by the running jobs
+	 */
+	public BatchScheduler(long budget, int cores) {
+		this.budget = Math.max(0, budget);
+		this.cores = Math.max(1, cores);
+	}
+
+	public static long getAvailableHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	public void setMonitors(Monitors monitors) {
+		this.monitors = monitors;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public int getCores() {
+		return cores;
+	}
+
+	public synchronized Job submit(String name, String command) {
+		Job job = new Job(name, command);
+		jobs.add(job);
+		queue.add(job);
+		if (dispatcher == null) {
+			dispatcher = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			}, "DL2 scheduler");
+			dispatcher.setDaemon(true);
+			dispatcher.start();
+		}
+		notifyAll();
+		return job;
+	}
+
+	public synchronized ArrayList<Job> getJobs() {
+		return new ArrayList<Job>(jobs);
+	}
+
+	public synchronized boolean isBusy() {
+		return running > 0 || queue.size() > 0;
+	}
+
+	/**
+	 * Waits until all the submitted jobs are finished.
+	 */
+	public synchronized void await() throws InterruptedException {
+		while (isBusy())
+			wait();
+	}
+
+	private void dispatch() {
+		while (true) {
+			Job job;
+			synchronized (this) {
+				while (queue.isEmpty())
+					if (!pause())
+						return;
+				job = queue.peek();
+			}
+			// The image is opened outside the lock, it is kept for the run
+			if (job.bytes < 0)
+				job.bytes = predict(job.deconvolution);
+			synchronized (this) {
+				while (!isAdmissible(job))
+					if (!pause())
+						return;
+				queue.poll();
+				job.threads = getThreads(job);
+				reserved += job.bytes;
+				used += job.threads;
+				running++;
+				job.state = State.RUNNING;
+				setFFTThreads();
+			}
+			monitors.log("Batch: start " + job.name + " (" + NumFormat.bytes(job.bytes) + ", " + job.threads + " threads)");
+			start(job);
+		}
+	}
+
+	private boolean pause() {
+		try {
+			wait();
+			return true;
+		}
+		catch (InterruptedException ex) {
+			return false;
+		}
+	}
+
+	private boolean isAdmissible(Job job) {
+		if (running == 0)
+			return true;
+		return used < cores && reserved + job.bytes <= budget;
+	}
+
+	/**
+	 * Splits the free cores between this job and the jobs expected to start
+	 * with it, bounded by the jobs waiting and by the memory budget.
+	 */
+	private int getThreads(Job job) {
+		int concurrent = Math.min(cores, running + queue.size() + 1);
+		if (job.bytes > 0)
+			concurrent = (int) Math.max(1, Math.min(concurrent, budget / job.bytes));
+		int starting = Math.max(1, concurrent - running);
+		int free = Math.max(1, cores - used);
+		return (free + starting - 1) / starting;
+	}
+
+	private void start(final Job job) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				double chrono = System.nanoTime();
+				ForkJoinPool pool = new ForkJoinPool(job.threads);
+				SlabPool.setPool(pool);
+				job.scope = SignalCollector.openScope(job.name);
+				try {
+					job.deconvolution.run();
+					job.chrono = System.nanoTime() - chrono;
+					job.state = job.deconvolution.getOutput() == null ? State.FAILED : State.DONE;
+				}
+				catch (Exception ex) {
+					job.state = State.FAILED;
+					monitors.error("Batch: " + job.name + " failed: " + ex.getMessage());
+				}
+				catch (OutOfMemoryError ex) {
+					job.state = State.FAILED;
+					monitors.error("Batch: " + job.name + " out of memory");
+				}
+				finally {
+					SignalCollector.closeScope();
+					SlabPool.setPool(null);
+					pool.shutdown();
+					job.deconvolution = null;
+					release(job);
+				}
+				monitors.log("Batch: " + job.name + " " + job.toString() + ", peak of the signals " + NumFormat.bytes(job.scope.getBytesPeak()));
+			}
+		}, "DL2 " + job.name);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private synchronized void release(Job job) {
+		reserved -= job.bytes;
+		used -= job.threads;
+		running--;
+		setFFTThreads();
+		notifyAll();
+	}
+
+	/**
+	 * Sets the threads of the FFT libraries to the largest number of threads
+	 * of the running jobs, or to all the cores if no job is running.
+	 */
+	private void setFFTThreads() {
+		int threads = running == 0 ? Runtime.getRuntime().availableProcessors() : 1;
+		for (Job job : jobs)
+			if (job.state == State.RUNNING)
+				threads = Math.max(threads, job.threads);
+		FFT.setThreads(threads);
+	}
+
+	/**
+	 * Predicts the memory of a job from the padded size of its image, the
+	 * memory of the blocks if the tiling is enabled.
+	 */
+	private static long predict(Deconvolution deconvolution) {
+		Algorithm algo = deconvolution.getAlgorithm();
+		RealSignal image = deconvolution.getImage();
+		if (image == null)
+			image = deconvolution.openImage();
+		if (algo == null || image == null)
+			return 0;
+		Controller controller = deconvolution.getController();
+		long voxels = (long) image.nx * image.ny * image.nz;
+		Tiling tiling = controller.getTiling();
+		if (tiling != null && tiling.isEnabled())
+			return tiling.getMemory() + 8 * voxels;
+		int[] padded = controller.getPadding().pad(image.nx, image.ny, image.nz);
+		return (long) (4.0 * algo.getMemoryFootprintRatio() * padded[0] * padded[1] * padded[2]);
+	}
+}
@@ -37,7 +37,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import signal.Constraint;
+import signal.MappedStorage;
+import signal.SliceStorage;
 import signal.Operations;
+import signal.SignalCollector;
 import signal.apodization.AbstractApodization;
 import signal.apodization.Apodization;
 import signal.apodization.UniformApodization;
@@ -50,7 +53,10 @@ import bilib.tools.NumFormat;
 import deconvolution.algorithm.Algorithm;
 import deconvolution.algorithm.AlgorithmList;
 import deconvolution.algorithm.Controller;
+import deconvolution.algorithm.Multiresolution;
+import deconvolution.algorithm.Tiling;
 import deconvolutionlab.Constants;
+import deconvolutionlab.Lab;
 import deconvolutionlab.module.AbstractModule;
 import deconvolutionlab.module.CommandModule;
 import deconvolutionlab.monitor.ConsoleMonitor;
@@ -63,7 +69,7 @@ import fft.FFT;
 
 public class Command {
 
-	public static String			keywords[]	= { "-image", "-psf", "-algorithm", "-path", "-disable", "-verbose", "-monitor", "-display", "-multithreading", "-system", "-stats", "-constraint", "-time", "-residu", "-reference", "-out", "-pad", "-apo", "-norm", "-fft", "-epsilon" };
+	public static String			keywords[]	= { "-image", "-psf", "-algorithm", "-path", "-disable", "-verbose", "-monitor", "-display", "-multithreading", "-system", "-stats", "-constraint", "-time", "-residu", "-reference", "-out", "-pad", "-apo", "-norm", "-fft", "-epsilon", "-tile", "-mapping", "-pool", "-loaders", "-otf", "-multiresolution" };
 
 	private static AbstractModule	modules[];
 	private static CommandModule	command;
@@ -140,11 +146,31 @@ public class Command {
 			if (token.keyword.equalsIgnoreCase("-norm"))
 				controller.setNormalizationPSF(decodeNormalization(token));
 
+			if (token.keyword.equalsIgnoreCase("-tile"))
+				controller.setTiling(decodeTiling(token));
+
+			if (token.keyword.equalsIgnoreCase("-multiresolution"))
+				controller.setMultiresolution(decodeMultiresolution(token));
+
+			if (token.keyword.equalsIgnoreCase("-mapping"))
+				SignalCollector.setMappingThreshold(decodeMapping(token));
+
+			if (token.keyword.equalsIgnoreCase("-pool"))
+				SignalCollector.setPoolCapacity(decodePool(token));
+
+			if (token.keyword.equalsIgnoreCase("-loaders"))
+				Lab.setLoaders((int) NumFormat.parseNumber(token.parameters, Lab.getLoaders()));
+
+			if (token.keyword.equalsIgnoreCase("-otf"))
+				controller.setOTFFilename(token.parameters.trim());
+
 			if (token.keyword.equalsIgnoreCase("-epsilon"))
 				Operations.epsilon = NumFormat.parseNumber(token.parameters, 1e-6);
 	
-			if (token.keyword.equalsIgnoreCase("-fft"))
-				controller.setFFT(FFT.getLibraryByName(token.parameters).getDefaultFFT());
+			if (token.keyword.equalsIgnoreCase("-fft")) {
+				controller.setFFT(FFT.getLibraryByName(token.parameters.trim()).getDefaultFFT());
+				controller.setFFTAutotuning(token.parameters.trim().equalsIgnoreCase("fastest"));
+			}
 
 			if (token.keyword.equalsIgnoreCase("-epsilon"))
 				Operations.epsilon = NumFormat.parseNumber(token.parameters, 1e-6);
@@ -297,6 +323,45 @@ public class Command {
 			return NumFormat.parseNumber(token.parameters, 1);
 	}
 
+	public static Multiresolution decodeMultiresolution(CommandToken token) {
+		if (token.parameters.toLowerCase().trim().startsWith("no"))
+			return new Multiresolution();
+		double[] p = NumFormat.parseNumbers(token.parameters);
+		if (p.length == 0)
+			return new Multiresolution();
+		int levels = (int) Math.round(p[0]);
+		double share = p.length > 1 ? p[1] : 0.75;
+		return new Multiresolution(levels, share);
+	}
+
+	public static Tiling decodeTiling(CommandToken token) {
+		if (token.parameters.toLowerCase().trim().startsWith("no"))
+			return new Tiling();
+		double[] p = NumFormat.parseNumbers(token.parameters);
+		if (p.length == 0)
+			return new Tiling();
+		long memory = (long) (p[0] * 1024 * 1024);
+		int parallelism = p.length > 1 ? (int) Math.round(p[1]) : 1;
+		return new Tiling(memory, parallelism);
+	}
+
+	public static long decodeMapping(CommandToken token) {
+		String parts[] = token.parameters.trim().split(" ");
+		if (parts[0].toLowerCase().startsWith("no"))
+			return -1;
+		SliceStorage.setOffHeap(parts.length > 1 && parts[1].trim().equalsIgnoreCase("direct"));
+		if (parts.length > 1 && !SliceStorage.isOffHeap())
+			MappedStorage.setDirectory(parts[1].trim());
+		return (long) (NumFormat.parseNumber(parts[0], 0) * 1024 * 1024);
+	}
+
+	public static long decodePool(CommandToken token) {
+		String parts[] = token.parameters.trim().split(" ");
+		if (parts[0].toLowerCase().startsWith("no"))
+			return 0;
+		return (long) (NumFormat.parseNumber(parts[0], 0) * 1024 * 1024);
+	}
+
 	public static Stats decodeStats(CommandToken token) {
 		String parts[] = token.parameters.toLowerCase().split(" ");
 		int m = 0;
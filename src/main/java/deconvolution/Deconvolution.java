@@ -32,7 +32,11 @@
 package deconvolution;
 
 import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+import signal.ComplexSignal;
 import signal.RealSignal;
 import signal.SignalCollector;
 import bilib.tools.NumFormat;
@@ -43,6 +47,7 @@ import deconvolutionlab.monitor.AbstractMonitor;
 import deconvolutionlab.monitor.Monitors;
 import deconvolutionlab.monitor.TableMonitor;
 import deconvolutionlab.output.Output;
+import fft.OTFFile;
 
 /**
  * This class is the main class to run deconvolution with or without user interface.
@@ -141,6 +146,20 @@ public class Deconvolution implements Runnable {
 		
 		report.add("Path", controller.toStringPath());
 
+		// The PSF is loaded concurrently with the image
+		FutureTask<RealSignal> loader = null;
+		if (psf == null && controller.getOTF() == null) {
+			loader = new FutureTask<RealSignal>(new Callable<RealSignal>() {
+				@Override
+				public RealSignal call() {
+					return openPSF();
+				}
+			});
+			Thread thread = new Thread(loader, "PSF loader");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
 		if (image == null)
 			image = openImage();
 
@@ -154,17 +173,27 @@ public class Deconvolution implements Runnable {
 		report.add("Image", image.dimAsString());
 		monitors.log("Image: " + image.dimAsString());
 
-		if (psf == null)
-			psf = openPSF();
+		if (loader != null) {
+			try {
+				psf = loader.get();
+			}
+			catch (InterruptedException ex) {
+				psf = null;
+			}
+			catch (ExecutionException ex) {
+				monitors.error("PSF: " + ex.getCause());
+				psf = null;
+			}
+		}
 		
-		if (psf == null) {
+		if (psf == null && controller.getOTF() == null) {
 			monitors.error("PSF: not valid");
 			report.add("PSF", "Not valid");
 			if (finish == Finish.KILL)
 				System.exit(-102);
 			return;
 		}
-		report.add("PSF", psf.dimAsString());
+		report.add("PSF", psf == null ? "OTF " + controller.getOTF().dimAsString() : psf.dimAsString());
 
 		if (algo == null) {
 			monitors.error("Algorithm: not valid");
@@ -208,7 +237,8 @@ public class Deconvolution implements Runnable {
 		if (dialog != null)
 			dialog.dispose();
 		SignalCollector.free(image);
-		SignalCollector.free(psf);
+		if (psf != null)
+			SignalCollector.free(psf);
 		SignalCollector.free(deconvolvedImage);
 		algo = null;
 		image = null;
@@ -219,7 +249,8 @@ public class Deconvolution implements Runnable {
 
 	public void die() {
 		SignalCollector.free(image);
-		SignalCollector.free(psf);
+		if (psf != null)
+			SignalCollector.free(psf);
 	}
 
 	/**
@@ -314,11 +345,27 @@ public class Deconvolution implements Runnable {
 			return null;
 		String arg = token.option.trim();
 		String cmd = token.parameters.substring(arg.length(), token.parameters.length()).trim();
+		if (arg.equalsIgnoreCase("otf")) {
+			// The transfer function replaces the PSF, no PSF is opened
+			controller.setOTF(openOTF(controller.getMonitors(), cmd, controller.getPath(), controller.getNormalizationPSF()));
+			return null;
+		}
 		psf = createRealSignal(controller.getMonitors(), arg, cmd, controller.getPath());
 		controller.getMonitors().log("Open PSF " + arg + " " + cmd);
 		return psf;
 	}
 
+	private static ComplexSignal openOTF(Monitors monitors, String cmd, String path, double norm) {
+		File file = new File(path + File.separator + cmd);
+		if (file.isFile())
+			return OTFFile.read(monitors, file.getAbsolutePath(), norm);
+		File local = new File(cmd);
+		if (local.isFile())
+			return OTFFile.read(monitors, cmd, norm);
+		monitors.error("OTF: file not found " + cmd);
+		return null;
+	}
+
 	private static RealSignal createRealSignal(Monitors monitors, String arg, String cmd, String path) {
 		RealSignal signal = null;
 		if (arg.equalsIgnoreCase("synthetic")) {
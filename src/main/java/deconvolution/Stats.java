@@ -50,6 +50,7 @@ import deconvolutionlab.monitor.Monitors;
 import deconvolutionlab.system.SystemUsage;
 import signal.RealSignal;
 import signal.SignalCollector;
+import signal.Statistics;
 
 public class Stats {
 
@@ -115,26 +116,56 @@ public class Stats {
 	}
 	
 	public void addInput(RealSignal x) {
-		statsInput = x.getStats();
-		table.append(compute(x, "In: " + x.name, "", "", "", ""));	
+		Statistics statistics = Statistics.compute(x);
+		statsInput = statistics.toArray();
+		if (isActive())
+			table.append(compute(statistics, "In: " + x.name, "", "", "", ""));	
 	}
 
 	public void add(RealSignal x, int iterations) {
-		table.append(compute(x, ""+iterations, "", "", "", ""));	
+		if (isActive())
+			table.append(compute(x, ""+iterations, "", "", "", ""));	
 	}
 
 	public void add(RealSignal x, int iterations, String time, String psnr, String snr, String residu) {
-		table.append(compute(x, ""+iterations, time, psnr, snr, residu));	
+		if (isActive())
+			table.append(compute(x, ""+iterations, time, psnr, snr, residu));	
+	}
+
+	/**
+	 * Adds a row from statistics already computed, null if the signal is
+	 * not available at this iteration.
+	 */
+	public void add(Statistics statistics, int iterations, String time, String psnr, String snr, String residu) {
+		if (isActive())
+			table.append(compute(statistics, ""+iterations, time, psnr, snr, residu));	
 	}
 
 	public void addOutput(RealSignal x, String algo, String time, String psnr, String snr, String residu) {
-		table.append(compute(x, "Out: " + algo, time, psnr, snr, residu));	
+		if (isActive())
+			table.append(compute(x, "Out: " + algo, time, psnr, snr, residu));	
 	}
 	
+	public void addOutput(Statistics statistics, String algo, String time, String psnr, String snr, String residu) {
+		if (isActive())
+			table.append(compute(statistics, "Out: " + algo, time, psnr, snr, residu));	
+	}
+
+	/**
+	 * The rows are only computed if the table is shown or saved.
+	 */
+	public boolean isActive() {
+		return mode != null && mode != Mode.NO;
+	}
+
 	public String[] compute(RealSignal x, String iterations, String time, String psnr, String snr, String residu) {
+		return compute(x == null ? null : Statistics.compute(x), iterations, time, psnr, snr, residu);
+	}
+
+	public String[] compute(Statistics statistics, String iterations, String time, String psnr, String snr, String residu) {
 		float params[] = null;
-		if (x != null)
-			params = x.getStats();
+		if (statistics != null)
+			params = statistics.toArray();
 		String[] row = new String[12];
 		row[0] = iterations;
 		row[1] = (params == null ? "-" : "" + NumFormat.nice(params[0]));
@@ -31,6 +31,7 @@
 
 package deconvolution.algorithm;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -38,9 +39,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import signal.ComplexSignal;
 import signal.Constraint;
 import signal.RealSignal;
 import signal.SignalCollector;
+import signal.SlabPool;
 import signal.apodization.Apodization;
 import signal.padding.Padding;
 import bilib.tools.NumFormat;
@@ -52,6 +55,10 @@ import deconvolutionlab.output.Output;
 import deconvolutionlab.system.SystemInfo;
 import fft.AbstractFFT;
 import fft.FFT;
+import fft.FFTAutotuner;
+import fft.FFTCache;
+import fft.OTFCache;
+import fft.OTFFile;
 
 /**
  * This class is the common part of every algorithm of deconvolution.
@@ -76,6 +83,13 @@ public abstract class Algorithm implements Callable<RealSignal> {
 	
 	protected AbstractFFT fft;
 	protected Controller controller;
+
+	/** PSF given to run(), prepared and transformed on demand by transformPSF(). */
+	private RealSignal psf;
+	private String otfKey;
+
+	/** Initial estimate given by the controller, padded as y, or null. */
+	private RealSignal x0;
 	
 	public Algorithm() {
 		setController(new Controller());
@@ -128,24 +142,58 @@ public abstract class Algorithm implements Callable<RealSignal> {
 		if (image == null)
 			return null;
 		
-		if (psf == null)
+		if (psf == null && controller.getOTF() == null)
 			return null;
+
+		Multiresolution multiresolution = controller.getMultiresolution();
+		if (multiresolution.isEnabled() && isIterative() && psf != null) {
+			RealSignal result = multiresolution.run(this, image, psf);
+			if (result != null)
+				return result;
+		}
+
+		Tiling tiling = controller.getTiling();
+		if (tiling.isEnabled() && psf != null && tiling.isTiled(this, image, psf))
+			return tiling.run(this, image, psf);
 		
 		// Prepare the controller and the outputs
 		Monitors monitors = controller.getMonitors();
+		SlabPool.setEnabled(controller.isMultithreading());
 		monitors.setVerbose(controller.getVerbose());
 		monitors.log("Path: " + controller.toStringPath());
 		monitors.log("Algorithm: " + getName());
 		
-		// Prepare the signal and the PSF
+		// Prepare the signal and the PSF, the algorithms do about one pointwise pass per FFT
+		double ffts = (double) getComplexityNumberofFFT() / Math.max(1, iterMax);
+		pad.setCostModel(ffts, ffts, fft);
 		y = pad.pad(monitors, image);
 		y.setName("y");
 		apo.apodize(monitors, y);
 		monitors.log("Input: " + y.dimAsString());
-		h = psf.changeSizeAs(y);
-		h.setName("h");
-		h.normalize(norm);
-		monitors.log("PSF: " + h.dimAsString() + " normalized " + (norm <= 0 ? "no" : norm));
+		RealSignal initial = controller.getInitialEstimate();
+		x0 = null;
+		if (initial != null && isIterative()) {
+			if (initial.nx == image.nx && initial.ny == image.ny && initial.nz == image.nz) {
+				x0 = pad.pad(monitors, initial);
+				x0.setName("x0");
+			}
+			else
+				monitors.error("Initial estimate: size " + initial.dimAsString() + " does not match the input " + image.dimAsString());
+		}
+		ComplexSignal otf = controller.getOTF();
+		if (psf == null && (otf.nxSpatial != y.nx || otf.ny != y.ny || otf.nz != y.nz)) {
+			monitors.error("OTF: size " + otf.nxSpatial + "x" + otf.ny + "x" + otf.nz + " does not match the padded input " + y.dimAsString());
+			SignalCollector.free(y);
+			return null;
+		}
+		// The PSF is prepared by transformPSF() only if its OTF is not cached
+		this.psf = psf;
+		h = null;
+
+		// The input is not used by the algorithm, it waits outside the heap
+		boolean mapped = SignalCollector.isMappable(image) && image.map();
+		if (mapped)
+			monitors.log("Input mapped to " + image.getStorage());
 
 		String iterations = (isIterative() ? iterMax + " iterations" : "direct");
 
@@ -155,11 +203,16 @@ public abstract class Algorithm implements Callable<RealSignal> {
 		controller.setMonitors(monitors);
 	
 		controller.start(y);
-		h.circular();
 
 		// FFT
-		fft.init(monitors, y.nx, y.ny, y.nz);
+		if (controller.isFFTAutotuning())
+			fft = FFTAutotuner.getFastest(monitors, y.nx, y.ny, y.nz);
+		fft = FFTCache.acquire(monitors, fft, y.nx, y.ny, y.nz);
+		boolean autotuning = controller.isFFTAutotuning();
 		controller.setFFT(fft);
+		controller.setFFTAutotuning(autotuning);
+		if (psf != null)
+			otfKey = OTFCache.getKey(psf, y.nx, y.ny, y.nz, norm, fft);
 		
 		monitors.log(sn + " data ready");
 		monitors.log(algoParam);
@@ -171,6 +224,7 @@ public abstract class Algorithm implements Callable<RealSignal> {
 				ExecutorService pool = Executors.newSingleThreadExecutor();
 				Future<RealSignal> future = pool.submit(this);
 				x = future.get();
+				pool.shutdown();
 			}
 			else {
 				x = call();
@@ -189,7 +243,17 @@ public abstract class Algorithm implements Callable<RealSignal> {
 			x = y.duplicate();
 		}
 		SignalCollector.free(y);
-		SignalCollector.free(h);
+		if (x0 != null)
+			SignalCollector.free(x0);
+		x0 = null;
+		if (h != null)
+			SignalCollector.free(h);
+		h = null;
+		this.psf = null;
+		otfKey = null;
+		FFTCache.release(fft);
+		if (mapped)
+			image.unmap();
 		x.setName("x");
 		RealSignal result = pad.crop(monitors, x);
 		
@@ -208,6 +272,69 @@ public abstract class Algorithm implements Callable<RealSignal> {
 		return result;
 	}
 
+	/**
+	 * Returns a copy of the initial estimate of the iterations, the input y
+	 * if the controller gives no initial estimate.
+	 */
+	protected RealSignal getInitialEstimate() {
+		return x0 != null ? x0.duplicate() : y.duplicate();
+	}
+
+	/**
+	 * Returns the initial estimate of the iterations, the inverse FFT of X if
+	 * the controller gives no initial estimate.
+	 */
+	protected RealSignal getInitialEstimate(ComplexSignal X) {
+		return x0 != null ? x0.duplicate() : fft.inverse(X);
+	}
+
+	/**
+	 * Returns the spectrum of the initial estimate of the iterations in the 
+	 * Fourier domain, a copy of X if the controller gives no initial estimate.
+	 */
+	protected ComplexSignal getInitialSpectrum(ComplexSignal X) {
+		ComplexSignal X0 = (x0 != null ? fft.transform(x0) : X.duplicate());
+		X0.setName("X");
+		return X0;
+	}
+
+	/**
+	 * Returns the transfer function H, the FFT of the resized, normalized and
+	 * centered PSF. It is copied from the OTFCache when the same PSF has been
+	 * transformed at the same size, otherwise it is computed and cached. The
+	 * caller owns the returned signal.
+	 */
+	protected ComplexSignal transformPSF() {
+		ComplexSignal otf = controller.getOTF();
+		if (psf == null && otf != null) {
+			controller.getMonitors().log("PSF: transfer function loaded from a file");
+			return fft.isHalfSpectrum() ? otf.duplicate() : otf.getFullSpectrum();
+		}
+		ComplexSignal H = OTFCache.copy(otfKey);
+		if (H != null) {
+			controller.getMonitors().log("PSF: transfer function reused from the cache");
+			return H;
+		}
+		if (h == null && psf != null) {
+			double norm = controller.getNormalizationPSF();
+			h = psf.changeSizeAs(y);
+			h.setName("h");
+			h.normalize(norm);
+			h.circular();
+			controller.getMonitors().log("PSF: " + h.dimAsString() + " normalized " + (norm <= 0 ? "no" : norm));
+		}
+		H = fft.transform(h);
+		if (otfKey != null)
+			OTFCache.put(otfKey, H.duplicate());
+		String filename = controller.getOTFFilename();
+		if (filename != null) {
+			if (!new File(filename).isAbsolute())
+				filename = controller.getPath() + File.separator + filename;
+			OTFFile.write(controller.getMonitors(), filename, H, controller.getNormalizationPSF());
+		}
+		return H;
+	}
+
 	public Algorithm noPopup() {
 		return this.disableDisplayFinal().disableSystem();
 	}
@@ -252,6 +379,24 @@ public abstract class Algorithm implements Callable<RealSignal> {
 	public void setWavelets(String waveletsName) {
 	}
 
+	public String getWavelets() {
+		return "";
+	}
+
+	/** 
+	 * Returns a new instance of this algorithm with the same parameters, 
+	 * without the controller.
+	 */
+	public Algorithm duplicate() {
+		Algorithm algo = AlgorithmList.createAlgorithm(getShortnames()[0]);
+		algo.setParameters(getParameters());
+		if (isWaveletsBased())
+			algo.setWavelets(getWavelets());
+		algo.threaded = threaded;
+		algo.optimizedMemoryFootprint = optimizedMemoryFootprint;
+		return algo;
+	}
+
 	@Override
 	public String toString() {
 		String s = "";
@@ -281,6 +426,7 @@ public abstract class Algorithm implements Callable<RealSignal> {
 	public Algorithm setFFT(AbstractFFT fft) {
 		this.fft = fft;
 		controller.setFFT(fft);
+		controller.setFFTAutotuning(false);
 		return this;
 	}
 
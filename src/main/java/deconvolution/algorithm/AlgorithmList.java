@@ -49,6 +49,7 @@ public class AlgorithmList {
 		list.add(new LandweberPositivityPanel());
 		list.add(new StarkParkerPanel());
 		list.add(new RichardsonLucyPanel());
+		list.add(new RichardsonLucyAcceleratedPanel());
 		list.add(new RichardsonLucyTVPanel());
 		list.add(new TikhonovMillerPanel());
 		list.add(new ICTMPanel());
@@ -96,6 +97,8 @@ public class AlgorithmList {
 			algo =  new StarkParker(10, 1);
 		else if (list.get(i++).isNamed(n))
 			algo =  new RichardsonLucy(10);
+		else if (list.get(i++).isNamed(n))
+			algo =  new RichardsonLucyAccelerated(10);
 		else if (list.get(i++).isNamed(n))
 			algo =  new RichardsonLucyTV(10, 1);
 		else if (list.get(i++).isNamed(n))
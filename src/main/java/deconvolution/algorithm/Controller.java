@@ -40,6 +40,8 @@ import signal.Assessment;
 import signal.ComplexSignal;
 import signal.Constraint;
 import signal.RealSignal;
+import signal.SignalCollector;
+import signal.Statistics;
 import signal.apodization.Apodization;
 import signal.padding.Padding;
 import bilib.tools.Files;
@@ -53,9 +55,11 @@ import deconvolutionlab.monitor.Monitors;
 import deconvolutionlab.monitor.TableMonitor;
 import deconvolutionlab.monitor.Verbose;
 import deconvolutionlab.output.Output;
+import deconvolutionlab.output.OutputWriter;
 import deconvolutionlab.system.SystemUsage;
 import fft.AbstractFFT;
 import fft.FFT;
+import fft.FFTCache;
 
 /**
  * This is an important class to manage all the common task of the algorithm.
@@ -80,7 +84,13 @@ public class Controller {
 	
 	private Padding				padding;
 	private Apodization			apodization;
+	private Tiling				tiling;
+	private Multiresolution		multiresolution;
+	private RealSignal			initialEstimate;
+	private ComplexSignal		otf;
+	private String				otfFilename;
 	private ArrayList<Output>	outs;
+	private OutputWriter		writer;
 	private Stats				stats;
 	private Constraint.Mode		constraintMode;
 	private double				residuMin;
@@ -89,6 +99,9 @@ public class Controller {
 	private Monitors			monitors;
 	private Verbose				verbose;
 	private AbstractFFT			fft;
+	/** FFT acquired by the controller itself, given back by finish() */
+	private AbstractFFT			fftAcquired;
+	private boolean				fftAutotuning	= true;
 
 	private int					iterationsMax	= 100;
 
@@ -108,6 +121,8 @@ public class Controller {
 
 	private RealSignal			refImage;
 	private RealSignal			prevImage;
+	private ComplexSignal		prevSpectrum;
+	private Statistics			statistics;
 	private RealSignal			x;
 	
 	private Timer				timer;
@@ -130,11 +145,13 @@ public class Controller {
 		setSystem(true);
 		setMultithreading(true);
 		setDisplayFinal(true);
-		setFFT(FFT.getFastestFFT().getDefaultFFT());
+		fft = FFT.getFastestFFT().getDefaultFFT();
 		setNormalizationPSF(1);
 		setEpsilon(1e-6);
 		setPadding(new Padding());
 		setApodization(new Apodization());
+		setTiling(new Tiling());
+		setMultiresolution(new Multiresolution());
 
 		monitors = new Monitors();
 		monitors.add(new ConsoleMonitor());
@@ -147,14 +164,32 @@ public class Controller {
 		setTimeLimit(-1);
 		setReference(null);
 		setOuts(new ArrayList<Output>());
+		setOutputWriter(new OutputWriter(2));
 	}
 
 	public void setAlgoName(String algoName) {
 		this.algoName = algoName;
 	}
 	
+	/**
+	 * Sets the FFT and disables the autotuning, an FFT chosen explicitly is
+	 * not replaced at the start of the run.
+	 */
 	public void setFFT(AbstractFFT fft) {
 		this.fft = fft;
+		this.fftAutotuning = false;
+	}
+
+	/**
+	 * If true, the fastest FFT is measured on the padded dimensions at the 
+	 * start of the run, instead of using the FFT given by setFFT.
+	 */
+	public void setFFTAutotuning(boolean fftAutotuning) {
+		this.fftAutotuning = fftAutotuning;
+	}
+
+	public boolean isFFTAutotuning() {
+		return fftAutotuning;
 	}
 
 	public void abort() {
@@ -165,8 +200,34 @@ public class Controller {
 		this.iterationsMax = iterationsMax;
 	}
 
+	public int getIterationsMax() {
+		return iterationsMax;
+	}
+
 	public boolean needSpatialComputation() {
-		return doConstraint || doResidu || doReference;
+		return doConstraint || doReference;
+	}
+
+	/**
+	 * Returns the number of iterations that a linear Fourier-domain algorithm
+	 * can perform at once before the next call to ends(), up to the next
+	 * requested output or the last iteration. The skipped iterations are
+	 * counted here; returns 1 when every iteration has to be observed.
+	 */
+	public int fastForward() {
+		if (doConstraint || doResidu || doReference || doTime || abort)
+			return 1;
+		int target = iterationsMax - 1;
+		for (Output out : outs) {
+			int frequency = out.getFrequency();
+			if (frequency > 0)
+				target = Math.min(target, ((iterations + frequency - 1) / frequency) * frequency);
+		}
+		int steps = target - iterations + 1;
+		if (steps <= 1)
+			return 1;
+		iterations += steps - 1;
+		return steps;
 	}
 
 	/**
@@ -200,33 +261,57 @@ public class Controller {
 		for (Output out : outs)
 			out.executeStarting(monitors, x, this);
 
-		this.prevImage = x;
+		this.prevImage = null;
+		this.prevSpectrum = null;
 	}
 
 	public boolean ends(ComplexSignal X) {
 
+		// The residu is always computed on the spectra (Parseval), even if an
+		// inverse FFT is done below for the outputs
+		if (doResidu) {
+			residu = Double.MAX_VALUE;
+			if (prevSpectrum == null) {
+				prevSpectrum = X.duplicate();
+				prevSpectrum.setName("prev");
+			}
+			else {
+				residu = Assessment.relativeResidu(X, prevSpectrum);
+				prevSpectrum.copy(X);
+				monitors.log("@" + iterations + " Residu: " + NumFormat.nice(residu));
+			}
+		}
+
 		boolean out = false;
 		for (Output output : outs)
-			out = out | output.is(iterations);
+			out = out | output.isActive(iterations);
 
-		if (doConstraint || doResidu || doReference || out) {
-			if (fft == null)
-				fft = FFT.createDefaultFFT(monitors, X.nx, X.ny, X.nz);
+		if (doConstraint || doReference || out) {
+			if (fft == null) {
+				fft = FFT.createDefaultFFT(monitors, X.nxSpatial, X.ny, X.nz);
+				fftAcquired = fft;
+			}
 			x = fft.inverse(X, x);
-			return ends(x);
+			return ends(x, false);
 		}
-
-		return ends((RealSignal) null);
+		return ends((RealSignal) null, false);
 	}
 
 	public boolean ends(RealSignal x) {
+		return ends(x, doResidu);
+	}
+
+	/**
+	 * @param res
+	 *            true to compute the residu on x, false if it is already
+	 *            computed on the spectra
+	 */
+	private boolean ends(RealSignal x, boolean res) {
 		this.x = x;
 
-		if (doConstraint || doResidu || doReference)
-			compute(iterations, x, doConstraint, doResidu, doReference);
+		compute(iterations, x, doConstraint, res, doReference);
 
-		for (Output out : outs)
-			out.executeIterative(monitors, x, this, iterations);
+		writer.execute(monitors, x, this, iterations, outs);
 
 		iterations++;
 		double p = iterations * 100.0 / iterationsMax;
@@ -240,7 +325,7 @@ public class Controller {
 		String pnsrText = doReference ? "" + psnr : "n/a";
 		String snrText = doReference ? "" + snr : "n/a";
 		String residuText = doResidu ? "" + residu : "n/a";
-		stats.add(x, iterations, NumFormat.seconds(getTimeNano()), pnsrText, snrText, residuText);
+		stats.add(statistics, iterations, NumFormat.seconds(getTimeNano()), pnsrText, snrText, residuText);
 		
 		String prefix = "Stopped>> by ";
 		if (abort)
@@ -260,46 +345,91 @@ public class Controller {
 
 		boolean ref = doReference;
 		boolean con = doConstraint;
-		boolean res = doResidu;
-		if (con || res || ref)
-			compute(iterations, x, con, res, ref);
+		boolean res = doResidu && prevSpectrum == null;
+		compute(iterations, x, con, res, ref);
+		if (prevImage != null)
+			SignalCollector.free(prevImage);
+		if (prevSpectrum != null)
+			SignalCollector.free(prevSpectrum);
+		prevImage = null;
+		prevSpectrum = null;
 
 		String pnsrText = doReference ? ""+psnr : "n/a";
 		String snrText = doReference ? ""+snr : "n/a";
 		String residuText = doResidu ? "" + residu : "n/a";
-		stats.addOutput(x, algoName, NumFormat.seconds(getTimeNano()), pnsrText, snrText, residuText);
+		stats.addOutput(statistics, algoName, NumFormat.seconds(getTimeNano()), pnsrText, snrText, residuText);
 		
 		stats.save(monitors, path);
 		
+		writer.flush();
 		for (Output out : outs)
 			out.executeFinal(monitors, x, this);
 
 		monitors.log("Time: " + NumFormat.seconds(getTimeNano()) + " Peak:" + getMemoryAsString());
+		stop();
+	}
+
+	/**
+	 * Ends a run started by start() without any result: the timer is 
+	 * cancelled and the signals and the FFT held by the controller are given
+	 * back. It is called by finish(), or directly when the run failed.
+	 */
+	public void stop() {
 		if (timer != null)
 			timer.cancel();
+		timer = null;
+		if (prevImage != null)
+			SignalCollector.free(prevImage);
+		if (prevSpectrum != null)
+			SignalCollector.free(prevSpectrum);
+		prevImage = null;
+		prevSpectrum = null;
+		if (fftAcquired != null) {
+			FFTCache.release(fftAcquired);
+			if (fft == fftAcquired)
+				fft = null;
+			fftAcquired = null;
+		}
 	}
 
+	/**
+	 * Applies the constraint, then computes in one pass the statistics of the
+	 * table, the assessment to the reference and the residu.
+	 */
 	private void compute(int iterations, RealSignal x, boolean con, boolean res, boolean ref) {
+		statistics = null;
 		if (x == null)
 			return;
 
 		if (con && constraintMode != null)
 			new Constraint(monitors).apply(x, constraintMode);
 
-		if (ref && refImage != null) {
+		boolean assess = ref && refImage != null;
+		boolean compare = res && prevImage != null;
+		if (assess || compare || stats.isActive())
+			statistics = Statistics.compute(x, assess ? refImage : null, compare ? prevImage : null);
+
+		if (assess) {
 			String s = "";
-			psnr = Assessment.psnr(x, refImage);
-			snr = Assessment.snr(x, refImage);
+			psnr = statistics.hasReference() ? statistics.getPSNR() : Assessment.psnr(x, refImage);
+			snr = statistics.hasReference() ? statistics.getSNR() : Assessment.snr(x, refImage);
 			s += " PSNR: " + NumFormat.nice(psnr);
 			s += " SNR: " + NumFormat.nice(snr);
 			monitors.log("@" + iterations + " " + s);
 		}
 
-		residu = Double.MAX_VALUE;
-		if (res && prevImage != null) {
-			residu = Assessment.relativeResidu(x, prevImage);
-			prevImage = x.duplicate();
-			monitors.log("@" + iterations + " Residu: " + NumFormat.nice(residu));
+		if (res) {
+			residu = Double.MAX_VALUE;
+			if (prevImage == null) {
+				prevImage = x.duplicate();
+				prevImage.setName("prev");
+			}
+			else {
+				residu = statistics.hasPrevious() ? statistics.getResidu() : Assessment.relativeResidu(x, prevImage);
+				if (prevImage.nx == x.nx && prevImage.ny == x.ny && prevImage.nz == x.nz)
+					prevImage.copy(x);
+				monitors.log("@" + iterations + " Residu: " + NumFormat.nice(residu));
+			}
 		}
 	}
 
@@ -495,6 +625,57 @@ public class Controller {
 		this.monitors = monitors;
 	}
 
+	/**
+	 * Transfer function loaded from a file, used instead of the PSF.
+	 */
+	public ComplexSignal getOTF() {
+		return otf;
+	}
+
+	public void setOTF(ComplexSignal otf) {
+		this.otf = otf;
+	}
+
+	/**
+	 * File to save the transfer function computed from the PSF, null if not
+	 * saved.
+	 */
+	public String getOTFFilename() {
+		return otfFilename;
+	}
+
+	public void setOTFFilename(String otfFilename) {
+		this.otfFilename = otfFilename;
+	}
+
+	public Tiling getTiling() {
+		return tiling;
+	}
+
+	public void setTiling(Tiling tiling) {
+		this.tiling = tiling;
+	}
+
+	public Multiresolution getMultiresolution() {
+		return multiresolution;
+	}
+
+	public void setMultiresolution(Multiresolution multiresolution) {
+		this.multiresolution = multiresolution;
+	}
+
+	public RealSignal getInitialEstimate() {
+		return initialEstimate;
+	}
+
+	/**
+	 * Sets the starting point of the iterative algorithms, at the size of the
+	 * input image; null to start from the input image.
+	 */
+	public void setInitialEstimate(RealSignal initialEstimate) {
+		this.initialEstimate = initialEstimate;
+	}
+
 	/**
 	 * @return the verbose
 	 */
@@ -625,6 +806,18 @@ public class Controller {
 		this.outs.add(out);
 	}
 
+	/**
+	 * Sets the writer of the iterative outputs; the snapshots are written in
+	 * background, new OutputWriter(0) writes them in the computing thread.
+	 */
+	public void setOutputWriter(OutputWriter writer) {
+		this.writer = writer;
+	}
+
+	public OutputWriter getOutputWriter() {
+		return writer;
+	}
+
 	public String toStringMonitor() {
 		String s = "[" + verbose.name().toLowerCase() + "] ";
 		for (AbstractMonitor monitor : monitors) {
@@ -47,7 +47,7 @@ public class Convolution extends Algorithm implements Callable<RealSignal> {
 	@Override
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal X = Operations.multiply(H, Y);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
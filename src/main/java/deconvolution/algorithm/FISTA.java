@@ -61,25 +61,24 @@ public class FISTA extends Algorithm implements Callable<RealSignal> {
 		AbstractWavelets wavelets = Wavelets.getWaveletsByName(waveletsName);
 		wavelets.setScale(scale);
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
 		ComplexSignal Z = G.duplicate();
-		RealSignal x = fft.inverse(G);
+		RealSignal x = getInitialEstimate(G);
 		RealSignal s = x.duplicate();
 		RealSignal z = x.duplicate();
 
-		RealSignal xprev = fft.inverse(G);
+		RealSignal xprev = x.duplicate();
 		float pk1 = 1f;
 		float pk0 = 1f;
 		float threshold = (float) (lambda * gamma * 0.5);
 		RealSignal buffer = y.duplicate();
 		while (!controller.ends(x)) {
 			fft.transform(s, Z);
-			Z.times(A);
-			Z.plus(G);
+			Z.lazy().times(A).plus(G).evaluate();
 			fft.inverse(Z, z);
 			wavelets.shrinkage(threshold, z, x, buffer);
 			pk0 = pk1;
@@ -151,6 +150,11 @@ public class FISTA extends Algorithm implements Callable<RealSignal> {
 		this.waveletsName = waveletsName;
 	}
 
+	@Override
+	public String getWavelets() {
+		return waveletsName;
+	}
+
 	@Override
 	public Algorithm setParameters(double... params) {
 		if (params == null)
@@ -56,9 +56,9 @@ public class ICTM extends Algorithm implements Callable<RealSignal> {
 	@Override
 	public RealSignal call() throws Exception {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
-		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nx, Y.ny, Y.nz);
+		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nxSpatial, Y.ny, Y.nz, Y.halfSpectrum);
 		ComplexSignal L2 = Operations.multiplyConjugate(lambda * gamma, L, L);
 		SignalCollector.free(L);
 		A.minus(L2);
@@ -66,11 +66,10 @@ public class ICTM extends Algorithm implements Callable<RealSignal> {
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(H);
 		SignalCollector.free(Y);
-		ComplexSignal X = G.duplicate();
+		ComplexSignal X = getInitialSpectrum(G);
 		controller.setConstraint(Constraint.Mode.NONNEGATIVE);
 		while (!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(A);
 		SignalCollector.free(G);
@@ -62,21 +62,20 @@ public class ISTA extends Algorithm implements Callable<RealSignal> {
 		wavelets.setScale(scale);
 		
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
 	
 		ComplexSignal Z = G.duplicate();
-		RealSignal x  = fft.inverse(G);
+		RealSignal x  = getInitialEstimate(G);
 		RealSignal z = x.duplicate();
 		float threshold = (float)(lambda*gamma*0.5);
 		RealSignal buffer = y.duplicate();
 		while(!controller.ends(x)) {
 			fft.transform(x, Z);
-			Z.times(A);
-			Z.plus(G);
+			Z.lazy().times(A).plus(G).evaluate();
 			fft.inverse(Z, z);
 			wavelets.shrinkage(threshold, z, x, buffer);
 		}
@@ -144,6 +143,11 @@ public class ISTA extends Algorithm implements Callable<RealSignal> {
 		this.waveletsName = waveletsName;
 	}
 
+	@Override
+	public String getWavelets() {
+		return waveletsName;
+	}
+
 	@Override
 	public Algorithm setParameters(double... params) {
 		if (params == null)
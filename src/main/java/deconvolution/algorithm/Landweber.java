@@ -57,16 +57,18 @@ public class Landweber extends Algorithm implements Callable<RealSignal> {
 	// => Iteration : X(n+1) = X(n) * A + G with F(0) = G
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
-		ComplexSignal X = G.duplicate();
-		X.setName("X");
+		ComplexSignal X = getInitialSpectrum(G);
 		while (!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			int steps = controller.fastForward();
+			if (steps > 1)
+				Operations.fastForward(A, G, X, steps);
+			else
+				X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(A);
 		SignalCollector.free(G);
@@ -59,16 +59,15 @@ public class LandweberPositivity extends Algorithm implements Callable<RealSigna
 	// => Iteration : X(n+1) = X(n) * A + G with F(0) = G
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
-		ComplexSignal X = G.duplicate();
+		ComplexSignal X = getInitialSpectrum(G);
 		controller.setConstraint(Constraint.Mode.NONNEGATIVE);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
 		while (!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(A);
 		SignalCollector.free(G);
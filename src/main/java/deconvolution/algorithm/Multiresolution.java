@@ -0,0 +1,266 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolution.algorithm;
+
+import java.util.ArrayList;
+
+import signal.RealSignal;
+import signal.SignalCollector;
+import deconvolutionlab.monitor.Monitors;
+
+/**
+ * This class runs an iterative algorithm from coarse to fine. The image and 
+ * the PSF are downsampled by 2 per level; a share of the iterations is done
+ * on the coarse levels, starting from the coarsest one, and each result is
+ * upsampled as the initial estimate of the next finer level. The remaining 
+ * iterations are done at full resolution.
+ * 
+ * 0 level disables the multiresolution.
+ */
+public class Multiresolution {
+
+	/** Smallest lateral size of a coarse level. */
+	private static int	minimumSize	= 16;
+
+	private int			levels		= 0;
+	private double		share		= 0.75;
+
+	public Multiresolution() {
+	}
+
+	/**
+	 * @param levels
+	 *            number of coarse levels
+	 * @param share
+	 *            share of the iterations done on the coarse levels, in [0, 1[
+	 */
+	public Multiresolution(int levels, double share) {
+		this.levels = Math.max(0, levels);
+		this.share = Math.max(0, Math.min(0.95, share));
+	}
+
+	public boolean isEnabled() {
+		return levels > 0;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public double getShare() {
+		return share;
+	}
+
+	/**
+	 * Runs the algorithm from coarse to fine. Returns null if the image is too
+	 * small to have a coarse level or if a coarse level failed; the caller 
+	 * runs the algorithm directly.
+	 */
+	public RealSignal run(Algorithm algo, RealSignal image, RealSignal psf) {
+		Controller controller = algo.getController();
+		Monitors monitors = controller.getMonitors();
+
+		ArrayList<RealSignal> images = new ArrayList<RealSignal>();
+		ArrayList<RealSignal> psfs = new ArrayList<RealSignal>();
+		RealSignal y = image;
+		RealSignal h = psf;
+		for (int l = 0; l < levels; l++) {
+			if (Math.min(y.nx, y.ny) / 2 < minimumSize)
+				break;
+			RealSignal coarse = downsample(y);
+			h = downsamplePSF(h, y, coarse);
+			y = coarse;
+			images.add(y);
+			psfs.add(h);
+		}
+		int n = images.size();
+		if (n == 0) {
+			monitors.log("Multiresolution: image too small for a coarse level");
+			return null;
+		}
+
+		int iterations = algo.iterMax;
+		int fine = Math.max(1, (int) Math.round(iterations * (1.0 - share)));
+		int coarse = Math.max(1, (iterations - fine) / n);
+
+		// From the coarsest level to the finest coarse level
+		RealSignal x = null;
+		for (int l = n - 1; l >= 0; l--) {
+			y = images.get(l);
+			monitors.log("Multiresolution: level " + (l + 1) + " " + y.dimAsString() + " " + coarse + " iterations");
+			Algorithm levelAlgo = algo.duplicate();
+			levelAlgo.iterMax = coarse;
+			Controller levelController = Tiling.createController(controller);
+			levelController.setInitialEstimate(x);
+			levelAlgo.setController(levelController);
+			RealSignal result = levelAlgo.run(y, psfs.get(l));
+			if (x != null)
+				SignalCollector.free(x);
+			if (result == null) {
+				monitors.error("Multiresolution: level " + (l + 1) + " failed, direct run");
+				for (int m = 0; m < n; m++) {
+					SignalCollector.free(images.get(m));
+					SignalCollector.free(psfs.get(m));
+				}
+				return null;
+			}
+			RealSignal finer = (l == 0 ? image : images.get(l - 1));
+			x = upsample(result, finer.nx, finer.ny, finer.nz);
+			SignalCollector.free(result);
+		}
+		for (int l = 0; l < n; l++) {
+			SignalCollector.free(images.get(l));
+			SignalCollector.free(psfs.get(l));
+		}
+
+		// Full resolution with the controller of the algorithm
+		monitors.log("Multiresolution: full resolution " + image.dimAsString() + " " + fine + " iterations");
+		controller.setMultiresolution(new Multiresolution());
+		controller.setInitialEstimate(x);
+		algo.iterMax = fine;
+		RealSignal result = algo.run(image, psf);
+		algo.iterMax = iterations;
+		controller.setIterationsMax(iterations);
+		controller.setInitialEstimate(null);
+		controller.setMultiresolution(this);
+		SignalCollector.free(x);
+		return result;
+	}
+
+	/**
+	 * Averages the blocks of 2 samples along each axis of size larger than 1.
+	 * The coarse sample i is centered on the fine position 2i + 0.5.
+	 */
+	public static RealSignal downsample(RealSignal in) {
+		int fx = in.nx > 1 ? 2 : 1;
+		int fy = in.ny > 1 ? 2 : 1;
+		int fz = in.nz > 1 ? 2 : 1;
+		int nx = (in.nx + fx - 1) / fx;
+		int ny = (in.ny + fy - 1) / fy;
+		int nz = (in.nz + fz - 1) / fz;
+		RealSignal out = new RealSignal("down(" + in.name + ")", nx, ny, nz);
+		for (int k = 0; k < nz; k++)
+			for (int j = 0; j < ny; j++)
+				for (int i = 0; i < nx; i++) {
+					double sum = 0.0;
+					int count = 0;
+					for (int z = k * fz; z < Math.min(in.nz, k * fz + fz); z++)
+						for (int y = j * fy; y < Math.min(in.ny, j * fy + fy); y++)
+							for (int x = i * fx; x < Math.min(in.nx, i * fx + fx); x++) {
+								sum += in.data[z][x + in.nx * y];
+								count++;
+							}
+					out.data[k][i + nx * j] = (float) (sum / count);
+				}
+		return out;
+	}
+
+	/**
+	 * Downsamples the PSF of the image fine for the image coarse. The PSF is
+	 * smoothed by [1/4, 1/2, 1/4] and decimated around the sample which is 
+	 * moved to the origin once the PSF is resized to the image and made 
+	 * circular, so that the coarse PSF is not shifted.
+	 */
+	public static RealSignal downsamplePSF(RealSignal psf, RealSignal fine, RealSignal coarse) {
+		RealSignal h = psf;
+		int[] n = new int[] { psf.nx, psf.ny, psf.nz };
+		int[] f = new int[] { fine.nx, fine.ny, fine.nz };
+		int[] c = new int[] { coarse.nx, coarse.ny, coarse.nz };
+		for (int axis = 0; axis < 3; axis++) {
+			if (c[axis] == f[axis] || n[axis] <= 1)
+				continue;
+			int m = (n[axis] + 1) / 2 + 1;
+			int pf = getOrigin(n[axis], f[axis]);
+			int pc = getOrigin(m, c[axis]);
+			int[] size = new int[] { h.nx, h.ny, h.nz };
+			size[axis] = m;
+			RealSignal out = new RealSignal("down(" + psf.name + ")", size[0], size[1], size[2]);
+			int[] p = new int[3];
+			for (p[2] = 0; p[2] < size[2]; p[2]++)
+				for (p[1] = 0; p[1] < size[1]; p[1]++)
+					for (p[0] = 0; p[0] < size[0]; p[0]++) {
+						int[] q = new int[] { p[0], p[1], p[2] };
+						int center = pf + 2 * (p[axis] - pc);
+						double sum = 0.0;
+						for (int d = -1; d <= 1; d++) {
+							q[axis] = center + d;
+							if (q[axis] >= 0 && q[axis] < n[axis])
+								sum += (d == 0 ? 0.5 : 0.25) * h.data[q[2]][q[0] + h.nx * q[1]];
+						}
+						out.data[p[2]][p[0] + size[0] * p[1]] = (float) sum;
+					}
+			if (h != psf)
+				SignalCollector.free(h);
+			h = out;
+			n[axis] = m;
+		}
+		return h == psf ? psf.duplicate() : h;
+	}
+
+	// Sample of a PSF of size n moved to the origin in an image of size size
+	private static int getOrigin(int n, int size) {
+		return size / 2 - (size - n) / 2;
+	}
+
+	/**
+	 * Interpolates the signal at the size (nx, ny, nz), the samples being
+	 * aligned on the centers of the downsampled blocks.
+	 */
+	public static RealSignal upsample(RealSignal in, int nx, int ny, int nz) {
+		RealSignal out = new RealSignal("up(" + in.name + ")", nx, ny, nz);
+		double sx = (double) in.nx / nx;
+		double sy = (double) in.ny / ny;
+		double sz = (double) in.nz / nz;
+		for (int k = 0; k < nz; k++) {
+			double z = clamp((k + 0.5) * sz - 0.5, in.nz);
+			for (int j = 0; j < ny; j++) {
+				double y = clamp((j + 0.5) * sy - 0.5, in.ny);
+				for (int i = 0; i < nx; i++) {
+					double x = clamp((i + 0.5) * sx - 0.5, in.nx);
+					out.data[k][i + nx * j] = in.getInterpolatedPixel(x, y, z);
+				}
+			}
+		}
+		return out;
+	}
+
+	private static double clamp(double p, int n) {
+		return Math.max(0.0, Math.min(n - 1, p));
+	}
+
+	@Override
+	public String toString() {
+		if (!isEnabled())
+			return "no";
+		return levels + " coarse levels, " + Math.round(share * 100) + "% of the iterations";
+	}
+}
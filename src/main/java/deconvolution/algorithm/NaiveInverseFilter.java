@@ -47,7 +47,7 @@ public class NaiveInverseFilter extends Algorithm implements Callable<RealSignal
 	@Override
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal X = Operations.divideStabilized(Y, H);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
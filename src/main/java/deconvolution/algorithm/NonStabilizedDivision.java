@@ -47,7 +47,7 @@ public class NonStabilizedDivision extends Algorithm implements Callable<RealSig
 	@Override
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal X = Operations.divideNotStabilized(Y, H);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
@@ -58,9 +58,9 @@ public class RegularizedInverseFilter extends Algorithm implements Callable<Real
 
 	public RealSignal runTextBook() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal H2 = Operations.multiply(H, H);
-		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nx, Y.ny, Y.nz);
+		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nxSpatial, Y.ny, Y.nz, Y.halfSpectrum);
 		ComplexSignal L2 = Operations.multiply(lambda, L, L);
 		ComplexSignal FA = Operations.add(H2, L2);
 		ComplexSignal FT = Operations.divideStabilized(H, FA);
@@ -79,7 +79,7 @@ public class RegularizedInverseFilter extends Algorithm implements Callable<Real
 
 	public RealSignal runOptimizedMemoryFootprint() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal X = filter(Y, H);
 		SignalCollector.free(Y);
 		SignalCollector.free(H);
@@ -89,7 +89,7 @@ public class RegularizedInverseFilter extends Algorithm implements Callable<Real
 	}
 
 	public ComplexSignal filter(ComplexSignal Y, ComplexSignal H) {
-		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nx, Y.ny, Y.nz);
+		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nxSpatial, Y.ny, Y.nz, Y.halfSpectrum);
 		L.setName("Laplacian");
 		float la, lb, ha, hb, fa, fb, ta, tb, ya, yb;
 		int nxy = Y.nx * Y.ny * 2;
@@ -48,9 +48,9 @@ public class RichardsonLucy extends Algorithm implements Callable<RealSignal> {
 	// x(k+1) = x(k) *. Hconj * ( y /. H x(k))
 	@Override
 	public RealSignal call() {
-		ComplexSignal H = fft.transform(h);
-		ComplexSignal U = new ComplexSignal("RL-U", y.nx, y.ny, y.nz);
-		RealSignal x = y.duplicate();
+		ComplexSignal H = transformPSF();
+		ComplexSignal U = fft.createComplexSignal("RL-U");
+		RealSignal x = getInitialEstimate();
 		RealSignal p = y.duplicate();
 		RealSignal u = y.duplicate();
 		while (!controller.ends(x)) {
@@ -0,0 +1,178 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolution.algorithm;
+
+import java.util.concurrent.Callable;
+
+import signal.ComplexSignal;
+import signal.Operations;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+public class RichardsonLucyAccelerated extends Algorithm implements Callable<RealSignal> {
+
+	public RichardsonLucyAccelerated(int iterMax) {
+		super();
+		this.iterMax = iterMax;
+	}
+
+	// Biggs-Andrews vector extrapolation of Richardson-Lucy
+	// x(k+1) = v(k) *. Hconj * ( y /. H v(k))
+	// g(k) = x(k+1) - v(k)
+	// alpha = <g(k), g(k-1)> / <g(k-1), g(k-1)>, clipped to [0, 1]
+	// v(k+1) = max(0, x(k+1) + alpha * (x(k+1) - x(k)))
+	@Override
+	public RealSignal call() {
+		ComplexSignal H = transformPSF();
+		ComplexSignal U = fft.createComplexSignal("RLA-U");
+		RealSignal x = getInitialEstimate();
+		RealSignal v = x.duplicate();
+		RealSignal p = y.duplicate();
+		RealSignal u = y.duplicate();
+		RealSignal xPrev = new RealSignal("RLA-xPrev", y.nx, y.ny, y.nz);
+		RealSignal g = new RealSignal("RLA-g", y.nx, y.ny, y.nz);
+		RealSignal gPrev = new RealSignal("RLA-gPrev", y.nx, y.ny, y.nz);
+		boolean first = true;
+		while (!controller.ends(x)) {
+			fft.transform(v, U);
+			U.times(H);
+			fft.inverse(U, u);
+			Operations.divide(y, u, p);
+			fft.transform(p, U);
+			U.timesConjugate(H);
+			fft.inverse(U, u);
+			xPrev.copy(x);
+			v.lazy().times(u).evaluate(x);
+			x.lazy().minus(v).evaluate(g);
+			double alpha = first ? 0.0 : getAcceleration(g, gPrev);
+			x.lazy().minus(xPrev).times((float) alpha).plus(x).evaluate(v);
+			v.clip(0f, Float.MAX_VALUE);
+			RealSignal swap = gPrev;
+			gPrev = g;
+			g = swap;
+			first = false;
+		}
+		SignalCollector.free(H);
+		SignalCollector.free(U);
+		SignalCollector.free(v);
+		SignalCollector.free(p);
+		SignalCollector.free(u);
+		SignalCollector.free(xPrev);
+		SignalCollector.free(g);
+		SignalCollector.free(gPrev);
+		return x;
+	}
+
+	private double getAcceleration(RealSignal g, RealSignal gPrev) {
+		double num = 0.0;
+		double den = 0.0;
+		int nxy = g.nx * g.ny;
+		for (int k = 0; k < g.nz; k++)
+			for (int i = 0; i < nxy; i++) {
+				num += g.data[k][i] * gPrev.data[k][i];
+				den += gPrev.data[k][i] * gPrev.data[k][i];
+			}
+		if (den < Operations.epsilon)
+			return 0.0;
+		return Math.max(0.0, Math.min(1.0, num / den));
+	}
+
+	@Override
+	public String getName() {
+		return "Richardson-Lucy Accelerated";
+	}
+
+	@Override
+	public String[] getShortnames() {
+		return new String[] {"RLA"};
+	}
+
+	@Override
+	public int getComplexityNumberofFFT() {
+		return 1 + 5 * iterMax;
+	}
+
+	@Override
+	public double getMemoryFootprintRatio() {
+		return 13.0;
+	}
+
+	@Override
+	public boolean isRegularized() {
+		return false;
+	}
+
+	@Override
+	public boolean isStepControllable() {
+		return false;
+	}
+
+	@Override
+	public boolean isIterative() {
+		return true;
+	}
+
+	@Override
+	public boolean isWaveletsBased() {
+		return false;
+	}
+
+	@Override
+	public Algorithm setParameters(double... params) {
+		if (params == null)
+			return this;
+		if (params.length > 0)
+			iterMax = (int) Math.round(params[0]);
+		return this;
+	}
+
+	@Override
+	public double[] getDefaultParameters() {
+		return new double[] { 10 };
+	}
+
+	@Override
+	public double[] getParameters() {
+		return new double[] { iterMax };
+	}
+
+	@Override
+	public double getRegularizationFactor() {
+		return 0.0;
+	}
+
+	@Override
+	public double getStepFactor() {
+		return 0;
+	}
+
+}
@@ -51,9 +51,9 @@ public class RichardsonLucyTV extends Algorithm implements Callable<RealSignal>
 	// x(k+1) = x(k) *. Hconj * ( y /. H x(k))
 	@Override
 	public RealSignal call() {
-		ComplexSignal H = fft.transform(h);
-		ComplexSignal U = new ComplexSignal("RLTV-U",y.nx, y.ny, y.nz);
-		RealSignal x = y.duplicate();
+		ComplexSignal H = transformPSF();
+		ComplexSignal U = fft.createComplexSignal("RLTV-U");
+		RealSignal x = getInitialEstimate();
 		RealSignal gx = y.duplicate();
 		RealSignal gy = y.duplicate();
 		RealSignal gz = y.duplicate();
@@ -65,15 +65,29 @@ public class RichardsonLucyTV extends Algorithm implements Callable<RealSignal>
 		RealSignal p  = gy;	// resued memory
 		RealSignal tv = gz; // resued memory
 
+		// Above the mapping threshold, the second gradients and tv wait in
+		// scratch files during the FFTs, and are read back before their use
+		boolean mapping = SignalCollector.isMappable(y);
 		while(!controller.ends(x)) {
 			gradientX(x, gx);
 			gradientY(x, gy);
 			gradientZ(x, gz);
 			normalize(gx, gy, gz);	
+			if (mapping) {
+				ggx.unmap();
+				ggy.unmap();
+				ggz.unmap();
+			}
 			gradientX(gx, ggx);
 			gradientY(gy, ggy);
 			gradientZ(gz, ggz);
 			compute((float)lambda, ggx, ggy, ggz, tv);
+			if (mapping) {
+				ggx.map();
+				ggy.map();
+				ggz.map();
+				tv.map();
+			}
 			fft.transform(x, U);
 			U.times(H);
 			fft.inverse(U, u);
@@ -81,8 +95,9 @@ public class RichardsonLucyTV extends Algorithm implements Callable<RealSignal>
 			fft.transform(p, U);
 			U.timesConjugate(H);
 			fft.inverse(U, u);
-			x.times(u); 
-			x.times(tv);
+			if (mapping)
+				tv.unmap();
+			x.lazy().times(u).times(tv).evaluate();
 		}
 		SignalCollector.free(H);
 		SignalCollector.free(U);
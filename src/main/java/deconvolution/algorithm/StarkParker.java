@@ -58,16 +58,15 @@ public class StarkParker extends Algorithm implements Callable<RealSignal> {
 	// => Iteration : X(n+1) = X(n) * A + G with F(0) = G
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(H);
 		SignalCollector.free(Y);
-		ComplexSignal X = G.duplicate();
+		ComplexSignal X = getInitialSpectrum(G);
 		controller.setConstraint(Constraint.Mode.CLIPPED);
 		while (!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(A);
 		SignalCollector.free(G);
@@ -54,9 +54,9 @@ public class TikhonovMiller extends Algorithm implements Callable<RealSignal> {
 	@Override
 	public RealSignal call() throws Exception {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta(gamma, H);
-		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nx, Y.ny, Y.nz);
+		ComplexSignal L = ComplexSignalFactory.laplacian(Y.nxSpatial, Y.ny, Y.nz, Y.halfSpectrum);
 		ComplexSignal L2 = Operations.multiplyConjugate(lambda*gamma, L, L);
 		SignalCollector.free(L);
 		A.minus(L2);
@@ -64,10 +64,13 @@ public class TikhonovMiller extends Algorithm implements Callable<RealSignal> {
 		ComplexSignal G = Operations.multiplyConjugate(gamma, H, Y);
 		SignalCollector.free(H);
 		SignalCollector.free(Y);
-		ComplexSignal X = G.duplicate();
+		ComplexSignal X = getInitialSpectrum(G);
 		while(!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			int steps = controller.fastForward();
+			if (steps > 1)
+				Operations.fastForward(A, G, X, steps);
+			else
+				X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(A);
 		SignalCollector.free(G);
@@ -58,9 +58,9 @@ public class TikhonovRegularizedInverseFilter extends Algorithm implements Calla
 
 	public RealSignal runTextBook() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal H2 = Operations.multiply(H, H);
-		ComplexSignal I = ComplexSignalFactory.identity(Y.nx, Y.ny, Y.nz);
+		ComplexSignal I = ComplexSignalFactory.identity(Y.nxSpatial, Y.ny, Y.nz, Y.halfSpectrum);
 		I.times((float)lambda);
 		ComplexSignal FA = Operations.add(H2, I);
 		ComplexSignal FT = Operations.divideStabilized(H, FA);
@@ -78,7 +78,7 @@ public class TikhonovRegularizedInverseFilter extends Algorithm implements Calla
 	
 	public RealSignal runOptimizedMemoryFootprint() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal X = filter(Y, H);
 		SignalCollector.free(H);
 		SignalCollector.free(Y);
@@ -94,7 +94,7 @@ public class TikhonovRegularizedInverseFilter extends Algorithm implements Calla
 		int nxy = nx * ny*2;
 		float ya, yb, ha, hb, fa, fb, mag, ta, tb;
 		float epsilon2 = (float)(Operations.epsilon * Operations.epsilon);
-		ComplexSignal result = new ComplexSignal("TRIF", nx, ny, nz);
+		ComplexSignal result = H.replicate("TRIF");
 		float l = (float)lambda;
 		for(int k=0; k<nz; k++)
 		for(int i=0; i< nxy; i+=2) {
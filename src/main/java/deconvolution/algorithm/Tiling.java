@@ -0,0 +1,401 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolution.algorithm;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import signal.RealSignal;
+import signal.SignalCollector;
+import signal.padding.Padding;
+import bilib.tools.NumFormat;
+import deconvolutionlab.Lab;
+import deconvolutionlab.monitor.Monitors;
+
+/**
+ * This class runs an algorithm block by block when the whole image does not
+ * fit in the memory budget. The blocks overlap by a margin derived from the
+ * support of the PSF, they are deconvolved independently, possibly in
+ * parallel, and blended back with linear ramps in the overlapping regions.
+ * 
+ * A memory budget of 0 disables the tiling.
+ */
+public class Tiling {
+
+	/** Relative level of the PSF used to define its support. */
+	private static double	threshold	= 0.01;
+
+	private long			memory		= 0;
+	private int				parallelism	= 1;
+
+	public Tiling() {
+	}
+
+	/**
+	 * @param memory
+	 *            memory budget in bytes for all the blocks processed at the
+	 *            same time
+	 * @param parallelism
+	 *            number of blocks processed at the same time
+	 */
+	public Tiling(long memory, int parallelism) {
+		this.memory = Math.max(0, memory);
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public boolean isEnabled() {
+		return memory > 0;
+	}
+
+	public long getMemory() {
+		return memory;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns the margins along each axis: the extent of the support of the
+	 * PSF, twice its half-width measured from the maximum. Iterative
+	 * algorithms propagate the boundary effects further than one radius.
+	 */
+	public int[] getMargins(RealSignal psf) {
+		int nx = psf.nx;
+		int ny = psf.ny;
+		int nz = psf.nz;
+		float max = -Float.MAX_VALUE;
+		int cx = 0, cy = 0, cz = 0;
+		for (int k = 0; k < nz; k++)
+			for (int j = 0; j < ny; j++)
+				for (int i = 0; i < nx; i++)
+					if (psf.data[k][i + nx * j] > max) {
+						max = psf.data[k][i + nx * j];
+						cx = i;
+						cy = j;
+						cz = k;
+					}
+		int x0 = cx, x1 = cx, y0 = cy, y1 = cy, z0 = cz, z1 = cz;
+		float level = (float) (threshold * max);
+		for (int k = 0; k < nz; k++)
+			for (int j = 0; j < ny; j++)
+				for (int i = 0; i < nx; i++)
+					if (psf.data[k][i + nx * j] >= level) {
+						x0 = Math.min(x0, i);
+						x1 = Math.max(x1, i);
+						y0 = Math.min(y0, j);
+						y1 = Math.max(y1, j);
+						z0 = Math.min(z0, k);
+						z1 = Math.max(z1, k);
+					}
+		return new int[] { 2 * Math.max(cx - x0, x1 - cx), 2 * Math.max(cy - y0, y1 - cy), 2 * Math.max(cz - z0, z1 - cz) };
+	}
+
+	/**
+	 * Returns the size of the core of the blocks, the largest axis being halved
+	 * until the padded blocks fit in the memory budget. The core is kept
+	 * larger than twice the margin to have a clean blending. If the smallest 
+	 * blocks do not fit, fewer blocks are processed in parallel (see
+	 * getParallelism()).
+	 * 
+	 * @return the core or null if even one block does not fit in the budget
+	 */
+	public int[] getBlockSize(Algorithm algo, Padding pad, int[] size, int[] margins, Monitors monitors) {
+		int[] core = new int[] { size[0], size[1], size[2] };
+		while (getBytes(algo, pad, core, margins, size) * parallelism > memory) {
+			int axis = -1;
+			for (int a = 0; a < 3; a++) {
+				if (core[a] / 2 < Math.max(1, 2 * margins[a]))
+					continue;
+				if (axis < 0 || core[a] + 2 * margins[a] > core[axis] + 2 * margins[axis])
+					axis = a;
+			}
+			if (axis < 0) {
+				if (getBytes(algo, pad, core, margins, size) <= memory)
+					break;
+				monitors.error("Tiling: the memory budget " + NumFormat.bytes(memory) + " is too small for one block of the PSF support");
+				return null;
+			}
+			core[axis] = (core[axis] + 1) / 2;
+		}
+		return core;
+	}
+
+	/**
+	 * Returns the number of blocks of the given core processed at the same 
+	 * time, at most the parallelism, such that they fit in the memory budget.
+	 */
+	public int getParallelism(Algorithm algo, Padding pad, int[] size, int[] margins, int[] core) {
+		long bytes = Math.max(1, getBytes(algo, pad, core, margins, size));
+		return (int) Math.max(1, Math.min(parallelism, memory / bytes));
+	}
+
+	private long getBytes(Algorithm algo, Padding pad, int[] core, int[] margins, int[] size) {
+		int bx = Math.min(size[0], core[0] + 2 * margins[0]);
+		int by = Math.min(size[1], core[1] + 2 * margins[1]);
+		int bz = Math.min(size[2], core[2] + 2 * margins[2]);
+		int[] padded = pad.pad(bx, by, bz);
+		return (long) (4.0 * algo.getMemoryFootprintRatio() * padded[0] * padded[1] * padded[2]);
+	}
+
+	/**
+	 * Returns true if the image does not fit in one block.
+	 */
+	public boolean isTiled(Algorithm algo, RealSignal image, RealSignal psf) {
+		int[] core = getBlockSize(algo, algo.getController().getPadding(), new int[] { image.nx, image.ny, image.nz }, getMargins(psf), algo.getController().getMonitors());
+		// The run reports the failure if even one block does not fit
+		if (core == null)
+			return true;
+		return core[0] < image.nx || core[1] < image.ny || core[2] < image.nz;
+	}
+
+	/**
+	 * Runs the algorithm block by block, if isTiled() is true.
+	 * 
+	 * @return the deconvolved image or null if a block failed or if the 
+	 *         memory budget is too small for one block
+	 */
+	public RealSignal run(final Algorithm algo, final RealSignal image, final RealSignal psf) {
+		final Controller controller = algo.getController();
+		Monitors monitors = controller.getMonitors();
+		final int[] size = new int[] { image.nx, image.ny, image.nz };
+		final int[] margins = getMargins(psf);
+		int[] core = getBlockSize(algo, controller.getPadding(), size, margins, monitors);
+		if (core == null)
+			return null;
+		int blocks = getParallelism(algo, controller.getPadding(), size, margins, core);
+		if (blocks < parallelism)
+			monitors.log("Tiling: " + blocks + " blocks in parallel instead of " + parallelism + " to fit in " + NumFormat.bytes(memory));
+
+		final int[][] bounds = new int[3][];
+		int count = 1;
+		for (int a = 0; a < 3; a++) {
+			int n = (size[a] + core[a] - 1) / core[a];
+			bounds[a] = new int[n + 1];
+			for (int i = 0; i <= n; i++)
+				bounds[a][i] = (int) Math.round((double) i * size[a] / n);
+			count *= n;
+		}
+
+		String sn = algo.getShortnames()[0];
+		String algoParam = sn + "(" + algo.getParametersAsString() + ")";
+		monitors.log("Tiling: " + count + " blocks of " + core[0] + "x" + core[1] + "x" + core[2] + 
+				" margins " + margins[0] + "x" + margins[1] + "x" + margins[2] + " (" + blocks + " in parallel)");
+		if (controller.getOuts().size() > 0)
+			monitors.log("Tiling: only the final outputs are computed");
+
+		controller.setAlgoName(algoParam);
+		controller.setIterationsMax(algo.getIterationsMax());
+		controller.start(image);
+
+		final RealSignal result = new RealSignal("x", size[0], size[1], size[2]);
+		// The whole image and result are only accessed block by block
+		boolean mappedImage = SignalCollector.isMappable(image) && image.map();
+		boolean mappedResult = SignalCollector.isMappable(result) && result.map();
+		ExecutorService pool = Executors.newFixedThreadPool(blocks);
+		ArrayList<Future<RealSignal>> futures = new ArrayList<Future<RealSignal>>();
+		int index = 0;
+		for (int bk = 0; bk < bounds[2].length - 1; bk++)
+			for (int bj = 0; bj < bounds[1].length - 1; bj++)
+				for (int bi = 0; bi < bounds[0].length - 1; bi++) {
+					final int[] block = new int[] { bi, bj, bk };
+					final String name = "Block " + (++index) + "/" + count;
+					futures.add(pool.submit(new Callable<RealSignal>() {
+						@Override
+						public RealSignal call() {
+							return runBlock(algo, controller, image, psf, result, bounds, margins, block, name);
+						}
+					}));
+				}
+		pool.shutdown();
+		int failed = 0;
+		for (Future<RealSignal> future : futures) {
+			try {
+				if (future.get() == null)
+					failed++;
+			}
+			catch (InterruptedException ex) {
+				failed++;
+				for (Future<RealSignal> other : futures)
+					other.cancel(true);
+			}
+			catch (CancellationException ex) {
+				failed++;
+			}
+			catch (ExecutionException ex) {
+				ex.printStackTrace();
+				failed++;
+			}
+		}
+		// The image is unmapped once no block reads it anymore
+		try {
+			while (!pool.awaitTermination(100, TimeUnit.MILLISECONDS))
+				;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		if (mappedImage)
+			image.unmap();
+		if (mappedResult)
+			result.unmap();
+		if (failed > 0) {
+			monitors.error("Tiling: " + failed + " of " + count + " blocks failed");
+			SignalCollector.free(result);
+			controller.stop();
+			return null;
+		}
+
+		controller.finish(result);
+		monitors.log(algo.getName() + " is finished");
+		if (controller.isDisplayFinal())
+			Lab.show(monitors, result, "Final Display of " + sn);
+		result.setName("Out of " + algoParam);
+		monitors.log("End of " + sn + " in " + NumFormat.seconds(controller.getTimeNano()) + " and " + controller.getMemoryAsString());
+		return result;
+	}
+
+	private RealSignal runBlock(Algorithm algo, Controller controller, RealSignal image, RealSignal psf, RealSignal result, int[][] bounds, int[] margins, int[] block, String name) {
+		int[] lo = new int[3];
+		int[] hi = new int[3];
+		int[] size = new int[] { image.nx, image.ny, image.nz };
+		float[][] weights = new float[3][];
+		for (int a = 0; a < 3; a++) {
+			int b = block[a];
+			int n = bounds[a].length - 1;
+			int m = margins[a];
+			lo[a] = Math.max(0, bounds[a][b] - m);
+			hi[a] = Math.min(size[a], bounds[a][b + 1] + m);
+			weights[a] = new float[hi[a] - lo[a]];
+			for (int p = lo[a]; p < hi[a]; p++) {
+				double w = 1.0;
+				if (m == 0)
+					w = (p >= bounds[a][b] && p < bounds[a][b + 1]) ? 1.0 : 0.0;
+				else {
+					if (b > 0)
+						w *= Math.max(0.0, Math.min(1.0, (p - bounds[a][b] + m + 0.5) / (2.0 * m)));
+					if (b < n - 1)
+						w *= Math.max(0.0, Math.min(1.0, (bounds[a][b + 1] + m - p - 0.5) / (2.0 * m)));
+				}
+				weights[a][p - lo[a]] = (float) w;
+			}
+		}
+
+		int bx = hi[0] - lo[0];
+		int by = hi[1] - lo[1];
+		int bz = hi[2] - lo[2];
+		RealSignal tile = new RealSignal(name, bx, by, bz);
+		for (int k = 0; k < bz; k++)
+			for (int j = 0; j < by; j++) {
+				int offset = lo[0] + image.nx * (j + lo[1]);
+				if (image.isMapped())
+					image.getStorage().read(k + lo[2], offset, tile.data[k], bx * j, bx);
+				else
+					System.arraycopy(image.data[k + lo[2]], offset, tile.data[k], bx * j, bx);
+			}
+
+		RealSignal initial = controller.getInitialEstimate();
+		RealSignal start = null;
+		if (initial != null) {
+			start = new RealSignal(name + "-x0", bx, by, bz);
+			for (int k = 0; k < bz; k++)
+				for (int j = 0; j < by; j++)
+					System.arraycopy(initial.data[k + lo[2]], lo[0] + initial.nx * (j + lo[1]), start.data[k], bx * j, bx);
+		}
+
+		controller.getMonitors().log("Tiling: " + name + " at " + lo[0] + "," + lo[1] + "," + lo[2] + " " + tile.dimAsString());
+		Algorithm blockAlgo = algo.duplicate();
+		Controller blockController = createController(controller);
+		blockController.setInitialEstimate(start);
+		blockAlgo.setController(blockController);
+		RealSignal x = blockAlgo.run(tile, psf);
+		SignalCollector.free(tile);
+		if (start != null)
+			SignalCollector.free(start);
+		if (x == null)
+			return null;
+
+		synchronized (result) {
+			float[] row = new float[bx];
+			for (int k = 0; k < bz; k++)
+				for (int j = 0; j < by; j++) {
+					float wjk = weights[2][k] * weights[1][j];
+					int offset = lo[0] + result.nx * (j + lo[1]);
+					if (result.isMapped())
+						result.getStorage().read(k + lo[2], offset, row, 0, bx);
+					else
+						System.arraycopy(result.data[k + lo[2]], offset, row, 0, bx);
+					for (int i = 0; i < bx; i++)
+						row[i] += wjk * weights[0][i] * x.data[k][i + bx * j];
+					if (result.isMapped())
+						result.getStorage().write(k + lo[2], offset, row, 0, bx);
+					else
+						System.arraycopy(row, 0, result.data[k + lo[2]], offset, bx);
+				}
+		}
+		SignalCollector.free(x);
+		return result;
+	}
+
+	static Controller createController(Controller parent) {
+		Controller controller = new Controller();
+		controller.setPath(parent.getPath());
+		controller.setSystem(false);
+		controller.setMultithreading(parent.isMultithreading());
+		controller.setDisplayFinal(false);
+		controller.setFFT(parent.getFFT());
+		controller.setFFTAutotuning(parent.isFFTAutotuning());
+		controller.setNormalizationPSF(parent.getNormalizationPSF());
+		controller.setEpsilon(parent.getEpsilon());
+		controller.setPadding(parent.getPadding().duplicate());
+		controller.setApodization(parent.getApodization());
+		controller.setConstraint(parent.getConstraint());
+		controller.setResiduMin(parent.getResiduMin());
+		controller.setTimeLimit(parent.getTimeLimit());
+		controller.setMonitors(parent.getMonitors());
+		controller.setVerbose(parent.getVerbose());
+		return controller;
+	}
+
+	@Override
+	public String toString() {
+		if (!isEnabled())
+			return "no tiling";
+		return "tiling " + NumFormat.bytes(memory) + " (" + parallelism + " blocks in parallel)";
+	}
+}
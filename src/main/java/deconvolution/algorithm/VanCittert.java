@@ -57,15 +57,18 @@ public class VanCittert extends Algorithm implements Callable<RealSignal> {
 	// => Iteration : X(n+1) = X(n) * A + G with F(0) = G
 	public RealSignal call() {
 		ComplexSignal Y = fft.transform(y);
-		ComplexSignal H = fft.transform(h);
+		ComplexSignal H = transformPSF();
 		ComplexSignal A = Operations.delta1(gamma, H);
 		SignalCollector.free(H);
 		ComplexSignal G = Operations.multiply(gamma, Y);
 		SignalCollector.free(Y);
-		ComplexSignal X = G.duplicate();
+		ComplexSignal X = getInitialSpectrum(G);
 		while(!controller.ends(X)) {
-			X.times(A);
-			X.plus(G);
+			int steps = controller.fastForward();
+			if (steps > 1)
+				Operations.fastForward(A, G, X, steps);
+			else
+				X.lazy().times(A).plus(G).evaluate();
 		}
 		SignalCollector.free(G);
 		SignalCollector.free(A);
@@ -161,8 +161,8 @@ public class AlgorithmCapsule extends AbstractCapsule implements Runnable {
 			
 			double chrono = System.nanoTime(); 
 			RealSignal x = new RealSignal("test", mx, my, mz);
-			ComplexSignal c = new ComplexSignal("test", mx, my, mz);
 			f.init(Monitors.createDefaultMonitor(), mx, my, mz);
+			ComplexSignal c = f.createComplexSignal("test");
 			f.transform(x, c);
 			SignalCollector.free(x);
 			SignalCollector.free(c);
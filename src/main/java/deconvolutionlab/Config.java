@@ -67,6 +67,7 @@ public class Config {
 	private static HashMap<String, CustomizedTable>	tables		= new HashMap<String, CustomizedTable>();;
 	private static HashMap<String, JDialog>			dialogs		= new HashMap<String, JDialog>();
 	private static Monitors							monitors	= Monitors.createDefaultMonitor();
+	private static HashMap<String, String>			properties	= new HashMap<String, String>();
 
 	public static Config init(String filename) {
 		Config.filename = filename;
@@ -268,8 +269,21 @@ public class Config {
 		monitors.log("Load Config from " + filename + " (" + components.size() + " items)");
 	}
 
-	public static boolean store() {
+	public static synchronized boolean store() {
 		Properties props = new Properties();
+		// Keeps the values of the file which are not managed by the components
+		Properties previous = new Properties();
+		try {
+			FileInputStream in = new FileInputStream(filename);
+			previous.load(in);
+			in.close();
+		}
+		catch (Exception e) {
+		}
+		for (String key : previous.stringPropertyNames())
+			if (!isManaged(key))
+				props.setProperty(key, previous.getProperty(key));
+
 		for (String key : components.keySet()) {
 			String s = getAsString(key);
 			if (s != null)
@@ -286,6 +300,11 @@ public class Config {
 				props.setProperty(key + ".selected", table.getRowCSV(row, ";"));
 		}
 
+		synchronized (properties) {
+			for (String key : properties.keySet())
+				props.setProperty(key, properties.get(key));
+		}
+
 		for (String key : dialogs.keySet()) {
 			JDialog dialog = dialogs.get(key);
 			props.setProperty(key + ".location.x", "" + dialog.getLocation().x);
@@ -365,6 +384,78 @@ public class Config {
 		}
 	}
 	
+	private static boolean isManaged(String key) {
+		if (components.containsKey(key))
+			return true;
+		for (String table : tables.keySet())
+			if (key.startsWith(table + "."))
+				return true;
+		for (String dialog : dialogs.keySet())
+			if (key.startsWith(dialog + ".location."))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns a value which is not attached to a component, e.g. a result 
+	 * of the FFT autotuning, from the memory or from the config file.
+	 */
+	public static String getProperty(String key, String defaultValue) {
+		synchronized (properties) {
+			if (properties.containsKey(key))
+				return properties.get(key);
+		}
+		if (filename == null)
+			return defaultValue;
+		Properties props = new Properties();
+		try {
+			FileInputStream in = new FileInputStream(filename);
+			props.load(in);
+			in.close();
+		}
+		catch (Exception e) {
+			return defaultValue;
+		}
+		String value = props.getProperty(key);
+		if (value == null)
+			return defaultValue;
+		synchronized (properties) {
+			properties.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets a value which is not attached to a component and writes it 
+	 * immediately in the config file. The read-modify-write of the file is
+	 * serialized with store().
+	 */
+	public static synchronized void putProperty(String key, String value) {
+		synchronized (properties) {
+			properties.put(key, value);
+		}
+		if (filename == null)
+			return;
+		Properties props = new Properties();
+		try {
+			FileInputStream in = new FileInputStream(filename);
+			props.load(in);
+			in.close();
+		}
+		catch (Exception e) {
+			props = new Properties();
+		}
+		props.setProperty(key, value);
+		try {
+			FileOutputStream out = new FileOutputStream(filename);
+			props.store(out, project);
+			out.close();
+		}
+		catch (Exception e) {
+			monitors.error("Store " + key + " to " + filename);
+		}
+	}
+
 	public static Rectangle getDialog(String key) {
 		Properties props = new Properties();
 		try {
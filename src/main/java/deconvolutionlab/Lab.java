@@ -36,6 +36,10 @@ import imagej.IJImager;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 import javax.swing.JDialog;
@@ -45,6 +49,7 @@ import javax.swing.JPanel;
 import signal.ComplexComponent;
 import signal.ComplexSignal;
 import signal.RealSignal;
+import signal.SignalCollector;
 import signal.factory.SignalFactory;
 import signal.factory.Sphere;
 import bilib.tools.Files;
@@ -73,6 +78,7 @@ public class Lab {
 	private static Imager				imaging;
 	private static ArrayList<JFrame>	frames;
 	private static ArrayList<JDialog>	dialogs;
+	private static int					loaders	= Math.min(16, 2 * Runtime.getRuntime().availableProcessors());
 
 	static {
 		frames = new ArrayList<JFrame>();
@@ -279,12 +285,12 @@ public class Lab {
 	}
 	
 	public static void save(Monitors monitors, RealSignal signal, String filename, Imager.Type type) {
-		imaging.save(signal, filename, type);
+		write(monitors, signal, filename, type);
 		monitors.log("Save Real Signal " + filename);
 	}
 
 	public static void save(Monitors monitors, RealSignal signal, String filename) {
-		imaging.save(signal, filename, Imager.Type.FLOAT);
+		write(monitors, signal, filename, Imager.Type.FLOAT);
 		monitors.log("Save Real Signal " + filename);
 	}
 
@@ -297,13 +303,36 @@ public class Lab {
 	}
 
 	public static void save(RealSignal signal, String filename) {
-		imaging.save(signal, filename, Imager.Type.FLOAT);
+		write(Monitors.createDefaultMonitor(), signal, filename, Imager.Type.FLOAT);
 	}
 
 	public static void save(RealSignal signal, String filename, Imager.Type type) {
+		write(Monitors.createDefaultMonitor(), signal, filename, type);
+	}
+
+	/**
+	 * Writes the TIFF files with TIFFFile, the other formats with the 
+	 * platform.
+	 */
+	private static void write(Monitors monitors, RealSignal signal, String filename, Imager.Type type) {
+		if (TIFFFile.isTIFF(filename) && TIFFFile.write(monitors, filename, signal, type))
+			return;
 		imaging.save(signal, filename, type);
 	}
 
+	/**
+	 * Reads the TIFF files supported by TIFFFile, the other files with the
+	 * platform.
+	 */
+	private static RealSignal read(Monitors monitors, String filename) {
+		if (TIFFFile.isTIFF(filename)) {
+			RealSignal signal = TIFFFile.read(monitors, filename);
+			if (signal != null)
+				return signal;
+		}
+		return imaging.open(filename);
+	}
+
 	public static RealSignal createSynthetic(Monitors monitors, String cmd) {
 		RealSignal signal = SignalFactory.createFromCommand(cmd);
 		if (signal == null)
@@ -351,7 +380,7 @@ public class Lab {
 	 * @param filename
 	 */
 	public static RealSignal openFile(String filename) {
-		return imaging.open(filename);
+		return read(Monitors.createDefaultMonitor(), filename);
 	}
 
 	/**
@@ -361,7 +390,7 @@ public class Lab {
 	 * @param filename
 	 */
 	public static RealSignal openFile(Monitors monitors, String filename) {
-		RealSignal signal = imaging.open(filename);
+		RealSignal signal = read(monitors, filename);
 		if (signal == null)
 			monitors.error("Unable to open " + filename);
 		else
@@ -379,12 +408,13 @@ public class Lab {
 	}
 
 	/**
-	 * Open a series of image from a directory.
+	 * Open a series of image from a directory, sorted by filename. The slices
+	 * are decoded in parallel by a bounded pool of loaders.
 	 * 
 	 * @param monitors
 	 * @param path
 	 */
-	public static RealSignal openDir(Monitors monitors, String path) {
+	public static RealSignal openDir(final Monitors monitors, String path) {
 		String parts[] = path.split(" pattern ");
 		String dirname = path;
 		String regex = "";
@@ -398,33 +428,122 @@ public class Lab {
 			return null;
 		}
 		String[] list = file.list();
-		ArrayList<RealSignal> slices = new ArrayList<RealSignal>();
-		int nx = 0;
-		int ny = 0;
+		Arrays.sort(list);
+		final ArrayList<String> filenames = new ArrayList<String>();
 		Pattern pattern = Pattern.compile(regex);
 		for (String filename : list) {
-			if (pattern.matcher(filename).find()) {
-				RealSignal slice = imaging.open(dirname + File.separator + filename);
-				if (slice != null) {
-					slices.add(slice);
-					nx = Math.max(nx, slice.nx);
-					ny = Math.max(ny, slice.ny);
-					monitors.log("Image " + path + File.separator + filename + " is loaded.");
-				}
-			}
-			else {
+			if (pattern.matcher(filename).find())
+				filenames.add(dirname + File.separator + filename);
+			else
 				monitors.error("Error in loading image " + path + File.separator + filename);
-			}
 		}
-		int nz = slices.size();
-		if (nz <= 0) {
+
+		// The first valid slice gives the size of the stack
+		int first = 0;
+		RealSignal slice = null;
+		for (; first < filenames.size() && slice == null; first++) {
+			slice = read(monitors, filenames.get(first));
+			if (slice != null)
+				monitors.log("Image " + filenames.get(first) + " is loaded.");
+		}
+		if (slice == null) {
 			monitors.error("Dir " + path + " do no contain valid images.");
 			return null;
 		}
-		RealSignal signal = new RealSignal(file.getName(), nx, ny, nz);
-		for (int z = 0; z < slices.size(); z++)
-			signal.setSlice(z, slices.get(z));
-		return signal;
+		final int offset = first - 1;
+		final int nz = filenames.size() - offset;
+		final RealSignal signal = new RealSignal(file.getName(), slice.nx, slice.ny, nz);
+		final RealSignal slices[] = new RealSignal[nz];
+		final boolean valid[] = new boolean[nz];
+		signal.setSlice(0, slice);
+		SignalCollector.free(slice);
+		valid[0] = true;
+
+		// The other slices are decoded in parallel and copied in place
+		ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int z = 1; z < nz; z++) {
+			final int k = z;
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					String filename = filenames.get(offset + k);
+					RealSignal slice = read(monitors, filename);
+					if (slice == null)
+						return null;
+					if (slice.nx == signal.nx && slice.ny == signal.ny) {
+						signal.setSlice(k, slice);
+						SignalCollector.free(slice);
+					}
+					else
+						slices[k] = slice;
+					valid[k] = true;
+					monitors.log("Image " + filename + " is loaded.");
+					return null;
+				}
+			});
+		}
+		if (tasks.size() > 0) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(loaders, tasks.size()));
+			try {
+				executor.invokeAll(tasks);
+			}
+			catch (InterruptedException ex) {
+				monitors.error("Dir " + path + " loading interrupted.");
+				SignalCollector.free(signal);
+				return null;
+			}
+			finally {
+				executor.shutdown();
+			}
+		}
+
+		// Rare case: unreadable files or slices of different sizes, the stack is rebuilt
+		int count = 0;
+		int nx = signal.nx;
+		int ny = signal.ny;
+		boolean rebuild = false;
+		for (int z = 0; z < nz; z++) {
+			if (valid[z])
+				count++;
+			else
+				rebuild = true;
+			if (slices[z] != null) {
+				nx = Math.max(nx, slices[z].nx);
+				ny = Math.max(ny, slices[z].ny);
+				rebuild = true;
+			}
+		}
+		if (!rebuild)
+			return signal;
+		RealSignal stack = new RealSignal(file.getName(), nx, ny, count);
+		for (int z = 0, k = 0; z < nz; z++) {
+			if (!valid[z])
+				continue;
+			if (slices[z] != null) {
+				stack.setSlice(k++, slices[z]);
+				SignalCollector.free(slices[z]);
+			}
+			else {
+				RealSignal plane = signal.getSlice(z);
+				stack.setSlice(k++, plane);
+				SignalCollector.free(plane);
+			}
+		}
+		SignalCollector.free(signal);
+		return stack;
+	}
+
+	/**
+	 * Sets the number of threads decoding the slices of a directory.
+	 * 
+	 * @param loaders
+	 */
+	public static void setLoaders(int loaders) {
+		Lab.loaders = Math.max(1, loaders);
+	}
+
+	public static int getLoaders() {
+		return loaders;
 	}
 
 	public static void showOrthoview(RealSignal signal, int hx, int hy, int hz) {
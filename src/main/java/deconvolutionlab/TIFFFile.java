@@ -0,0 +1,486 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolutionlab;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import deconvolutionlab.monitor.Monitors;
+import signal.RealSignal;
+
+/**
+ * This class reads and writes the TIFF and BigTIFF stacks without the imaging
+ * platform. The slices are streamed between the file and the signal: the
+ * strips of uncompressed files are memory-mapped and converted directly into
+ * the slices of the signal, the slices are written one after the other.
+ * 
+ * The reader supports the grayscale uncompressed files, one sample per pixel,
+ * of 8, 16, 32 or 64 bits, in both byte orders, and the large stacks written
+ * by ImageJ with a single IFD. It returns null for the other files, which are
+ * then opened by the platform.
+ * 
+ * The writer produces a classic TIFF, little-endian, with one strip per slice
+ * and an ImageJ description, or a BigTIFF if the file exceeds 4 GB.
+ */
+public class TIFFFile {
+
+	private static final int	WIDTH			= 256;
+	private static final int	HEIGHT			= 257;
+	private static final int	BITS			= 258;
+	private static final int	COMPRESSION		= 259;
+	private static final int	PHOTOMETRIC		= 262;
+	private static final int	DESCRIPTION		= 270;
+	private static final int	STRIP_OFFSETS	= 273;
+	private static final int	SAMPLES			= 277;
+	private static final int	ROWS_PER_STRIP	= 278;
+	private static final int	STRIP_COUNTS	= 279;
+	private static final int	SUBFILE			= 254;
+	private static final int	TILE_WIDTH		= 322;
+	private static final int	SAMPLE_FORMAT	= 339;
+
+	private static final int	ASCII			= 2;
+	private static final int	SHORT			= 3;
+	private static final int	LONG			= 4;
+	private static final int	LONG8			= 16;
+
+	/** Size above which the writer produces a BigTIFF, with a margin for the IFDs */
+	private static final long	LIMIT			= 0xFFFFFFFFL - (1 << 20);
+
+	/** Description of one image of the file */
+	private static class Page {
+		int			nx;
+		int			ny;
+		int			bits		= 1;
+		int			format		= 1;
+		int			compression	= 1;
+		int			samples		= 1;
+		boolean		tiled		= false;
+		boolean		reduced		= false;
+		long[]		offsets;
+		long[]		counts;
+		String		description	= "";
+	}
+
+	public static boolean isTIFF(String filename) {
+		String name = filename.toLowerCase();
+		return name.endsWith(".tif") || name.endsWith(".tiff");
+	}
+
+	/**
+	 * Reads a stack.
+	 * 
+	 * @return the signal or null if the file is not supported
+	 */
+	public static RealSignal read(Monitors monitors, String filename) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(new File(filename), "r");
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = read(channel, 0, 16, ByteOrder.LITTLE_ENDIAN);
+			ByteOrder order;
+			if (header.get(0) == 'I' && header.get(1) == 'I')
+				order = ByteOrder.LITTLE_ENDIAN;
+			else if (header.get(0) == 'M' && header.get(1) == 'M')
+				order = ByteOrder.BIG_ENDIAN;
+			else
+				return null;
+			header.order(order);
+			int version = header.getShort(2);
+			boolean big = version == 43;
+			if (version != 42 && !big)
+				return null;
+			long offset = big ? header.getLong(8) : header.getInt(4) & 0xFFFFFFFFL;
+
+			ArrayList<Page> pages = new ArrayList<Page>();
+			while (offset > 0 && offset < channel.size()) {
+				Page page = new Page();
+				offset = readIFD(channel, offset, order, big, page);
+				if (page.compression != 1 || page.samples != 1 || page.tiled || page.offsets == null)
+					return null;
+				// Several strips cannot be located without their byte counts
+				if (page.offsets.length > 1 && (page.counts == null || page.counts.length < page.offsets.length))
+					return null;
+				if (!page.reduced)
+					pages.add(page);
+			}
+			if (pages.size() == 0)
+				return null;
+			Page first = pages.get(0);
+			int bytes = first.bits / 8;
+			if (first.bits % 8 != 0 || bytes == 3 || bytes > 8 || (bytes == 8 && first.format != 3))
+				return null;
+			for (Page page : pages)
+				if (page.nx != first.nx || page.ny != first.ny || page.bits != first.bits || page.format != first.format)
+					return null;
+
+			long size = (long) first.nx * first.ny * bytes;
+			int nz = pages.size();
+			// ImageJ writes the large stacks with one IFD, the slices follow the first one
+			int images = getImages(first.description);
+			boolean contiguous = nz == 1 && images > 1 && first.offsets.length == 1;
+			if (contiguous && first.offsets[0] + size * images <= channel.size())
+				nz = images;
+
+			String name = new File(filename).getName();
+			RealSignal signal = new RealSignal(name, first.nx, first.ny, nz);
+			for (int k = 0; k < nz; k++) {
+				if (nz > pages.size())
+					readSlice(channel, order, first.offsets[0] + k * size, size, first, signal.data[k]);
+				else
+					readSlice(channel, order, pages.get(k), size, signal.data[k]);
+			}
+			return signal;
+		}
+		catch (IOException ex) {
+			monitors.error("TIFF: unable to read " + filename + " " + ex.getMessage());
+			return null;
+		}
+		finally {
+			close(raf);
+		}
+	}
+
+	/**
+	 * Reads the IFD at offset into page.
+	 * 
+	 * @return the offset of the next IFD, 0 for the last one
+	 */
+	private static long readIFD(FileChannel channel, long offset, ByteOrder order, boolean big, Page page) throws IOException {
+		ByteBuffer count = read(channel, offset, big ? 8 : 2, order);
+		long n = big ? count.getLong(0) : count.getShort(0) & 0xFFFF;
+		int entry = big ? 20 : 12;
+		ByteBuffer ifd = read(channel, offset + (big ? 8 : 2), (int) (n * entry + (big ? 8 : 4)), order);
+		for (int i = 0; i < n; i++) {
+			int p = i * entry;
+			int tag = ifd.getShort(p) & 0xFFFF;
+			int type = ifd.getShort(p + 2) & 0xFFFF;
+			long c = big ? ifd.getLong(p + 4) : ifd.getInt(p + 4) & 0xFFFFFFFFL;
+			int value = p + (big ? 12 : 8);
+			switch (tag) {
+			case WIDTH:
+				page.nx = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case HEIGHT:
+				page.ny = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case BITS:
+				page.bits = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case COMPRESSION:
+				page.compression = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case SAMPLES:
+				page.samples = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case SAMPLE_FORMAT:
+				page.format = (int) getValues(channel, ifd, value, type, 1, order, big)[0];
+				break;
+			case SUBFILE:
+				page.reduced = (getValues(channel, ifd, value, type, 1, order, big)[0] & 1) != 0;
+				break;
+			case TILE_WIDTH:
+				page.tiled = true;
+				break;
+			case STRIP_OFFSETS:
+				page.offsets = getValues(channel, ifd, value, type, (int) c, order, big);
+				break;
+			case STRIP_COUNTS:
+				page.counts = getValues(channel, ifd, value, type, (int) c, order, big);
+				break;
+			case DESCRIPTION:
+				if (type == ASCII && c < (1 << 20)) {
+					ByteBuffer text = getData(channel, ifd, value, (int) c, order, big);
+					byte[] b = new byte[(int) c];
+					text.get(b);
+					page.description = new String(b, "ISO-8859-1").trim();
+				}
+				break;
+			}
+		}
+		return big ? ifd.getLong((int) (n * entry)) : ifd.getInt((int) (n * entry)) & 0xFFFFFFFFL;
+	}
+
+	/** Returns count SHORT, LONG or LONG8 values of an entry, stored inline or at an offset. */
+	private static long[] getValues(FileChannel channel, ByteBuffer ifd, int value, int type, int count, ByteOrder order, boolean big) throws IOException {
+		int size = type == SHORT ? 2 : (type == LONG8 ? 8 : 4);
+		ByteBuffer data = getData(channel, ifd, value, size * count, order, big);
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++) {
+			if (type == SHORT)
+				values[i] = data.getShort() & 0xFFFF;
+			else if (type == LONG8)
+				values[i] = data.getLong();
+			else
+				values[i] = data.getInt() & 0xFFFFFFFFL;
+		}
+		return values;
+	}
+
+	private static ByteBuffer getData(FileChannel channel, ByteBuffer ifd, int value, int bytes, ByteOrder order, boolean big) throws IOException {
+		int inline = big ? 8 : 4;
+		if (bytes <= inline) {
+			ByteBuffer data = ifd.duplicate().order(order);
+			data.position(value);
+			return data;
+		}
+		long offset = big ? ifd.getLong(value) : ifd.getInt(value) & 0xFFFFFFFFL;
+		return read(channel, offset, bytes, order);
+	}
+
+	private static int getImages(String description) {
+		if (!description.startsWith("ImageJ"))
+			return 0;
+		for (String line : description.split("\n"))
+			if (line.startsWith("images="))
+				try {
+					return Integer.parseInt(line.substring(7).trim());
+				}
+				catch (NumberFormatException ex) {
+					return 0;
+				}
+		return 0;
+	}
+
+	/** Reads the strips of a page, mapped as one region if they are contiguous. */
+	private static void readSlice(FileChannel channel, ByteOrder order, Page page, long size, float[] slice) throws IOException {
+		boolean contiguous = true;
+		for (int s = 1; s < page.offsets.length; s++)
+			if (page.offsets[s] != page.offsets[s - 1] + page.counts[s - 1])
+				contiguous = false;
+		if (contiguous) {
+			readSlice(channel, order, page.offsets[0], size, page, slice);
+			return;
+		}
+		int bytes = page.bits / 8;
+		int index = 0;
+		for (int s = 0; s < page.offsets.length && index < slice.length; s++) {
+			long count = Math.min(page.counts[s], (long) (slice.length - index) * bytes);
+			ByteBuffer strip = read(channel, page.offsets[s], (int) count, order);
+			index = convert(strip, page, slice, index);
+		}
+	}
+
+	private static void readSlice(FileChannel channel, ByteOrder order, long offset, long size, Page page, float[] slice) throws IOException {
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(order);
+		convert(buffer, page, slice, 0);
+	}
+
+	/** Converts the samples of the buffer into the slice from index, returns the next index */
+	private static int convert(ByteBuffer buffer, Page page, float[] slice, int index) {
+		boolean signed = page.format == 2;
+		switch (page.bits) {
+		case 8:
+			while (buffer.hasRemaining() && index < slice.length)
+				slice[index++] = signed ? buffer.get() : buffer.get() & 0xFF;
+			break;
+		case 16:
+			while (buffer.remaining() >= 2 && index < slice.length)
+				slice[index++] = signed ? buffer.getShort() : buffer.getShort() & 0xFFFF;
+			break;
+		case 32:
+			if (page.format == 3) {
+				int n = Math.min(buffer.remaining() / 4, slice.length - index);
+				buffer.asFloatBuffer().get(slice, index, n);
+				buffer.position(buffer.position() + 4 * n);
+				index += n;
+			}
+			else
+				while (buffer.remaining() >= 4 && index < slice.length)
+					slice[index++] = signed ? buffer.getInt() : buffer.getInt() & 0xFFFFFFFFL;
+			break;
+		case 64:
+			while (buffer.remaining() >= 8 && index < slice.length)
+				slice[index++] = (float) buffer.getDouble();
+			break;
+		}
+		return index;
+	}
+
+	/**
+	 * Writes a stack as float, unsigned short or unsigned byte. The values are
+	 * rounded and clipped to the range of the integer types.
+	 * 
+	 * @return true if the file is written
+	 */
+	public static boolean write(Monitors monitors, String filename, RealSignal signal, Imager.Type type) {
+		int bytes = type == Imager.Type.BYTE ? 1 : (type == Imager.Type.SHORT ? 2 : 4);
+		int nx = signal.nx;
+		int ny = signal.ny;
+		int nz = signal.nz;
+		long size = (long) nx * ny * bytes;
+		String description = "ImageJ=1.51\n" + (nz > 1 ? "images=" + nz + "\nslices=" + nz + "\nloop=false\n" : "");
+		byte[] text = (description + "\0").getBytes();
+		boolean big = size * nz + text.length > LIMIT;
+		if (size > Integer.MAX_VALUE) {
+			monitors.error("TIFF: slices larger than 2 GB are not supported " + filename);
+			return false;
+		}
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(filename, "rw");
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteOrder order = ByteOrder.LITTLE_ENDIAN;
+
+			// Header, description, then the slices
+			int head = big ? 16 : 8;
+			long data = head + text.length + (text.length % 2);
+			ByteBuffer buffer = ByteBuffer.allocate((int) data).order(order);
+			buffer.put((byte) 'I').put((byte) 'I');
+			if (big)
+				buffer.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(0);
+			else
+				buffer.putShort((short) 42).putInt(0);
+			buffer.put(text);
+			buffer.clear();
+			channel.write(buffer, 0);
+
+			ByteBuffer slice = ByteBuffer.allocateDirect((int) size).order(order);
+			for (int k = 0; k < nz; k++) {
+				slice.clear();
+				float[] s = signal.data[k];
+				switch (type) {
+				case BYTE:
+					for (int i = 0; i < s.length; i++)
+						slice.put((byte) Math.round(Math.max(0f, Math.min(255f, s[i]))));
+					break;
+				case SHORT:
+					for (int i = 0; i < s.length; i++)
+						slice.putShort((short) Math.round(Math.max(0f, Math.min(65535f, s[i]))));
+					break;
+				default:
+					slice.asFloatBuffer().put(s);
+				}
+				slice.clear();
+				long position = data + k * size;
+				while (slice.hasRemaining())
+					position += channel.write(slice, position);
+			}
+
+			// IFDs after the data, chained
+			long offset = data + nz * size;
+			offset += offset % 2;
+			int entries = 11;
+			int entry = big ? 20 : 12;
+			int length = (big ? 8 : 2) + entries * entry + (big ? 8 : 4);
+			ByteBuffer ifd = ByteBuffer.allocate(length).order(order);
+			writeOffset(channel, order, big, big ? 8 : 4, offset);
+			for (int k = 0; k < nz; k++) {
+				ifd.clear();
+				long next = k == nz - 1 ? 0 : offset + length;
+				int format = type == Imager.Type.FLOAT ? 3 : 1;
+				if (big)
+					ifd.putLong(entries);
+				else
+					ifd.putShort((short) entries);
+				putEntry(ifd, big, WIDTH, LONG, 1, nx);
+				putEntry(ifd, big, HEIGHT, LONG, 1, ny);
+				putEntry(ifd, big, BITS, SHORT, 1, 8 * bytes);
+				putEntry(ifd, big, COMPRESSION, SHORT, 1, 1);
+				putEntry(ifd, big, PHOTOMETRIC, SHORT, 1, 1);
+				putEntry(ifd, big, DESCRIPTION, ASCII, text.length, head);
+				putEntry(ifd, big, STRIP_OFFSETS, big ? LONG8 : LONG, 1, data + k * size);
+				putEntry(ifd, big, SAMPLES, SHORT, 1, 1);
+				putEntry(ifd, big, ROWS_PER_STRIP, LONG, 1, ny);
+				putEntry(ifd, big, STRIP_COUNTS, big ? LONG8 : LONG, 1, size);
+				putEntry(ifd, big, SAMPLE_FORMAT, SHORT, 1, format);
+				if (big)
+					ifd.putLong(next);
+				else
+					ifd.putInt((int) next);
+				ifd.flip();
+				while (ifd.hasRemaining())
+					channel.write(ifd, offset + ifd.position());
+				offset += length;
+			}
+			return true;
+		}
+		catch (IOException ex) {
+			monitors.error("TIFF: unable to write " + filename + " " + ex.getMessage());
+			return false;
+		}
+		finally {
+			close(raf);
+		}
+	}
+
+	/** Writes an entry with one inline value or the offset of the values */
+	private static void putEntry(ByteBuffer ifd, boolean big, int tag, int type, long count, long value) {
+		ifd.putShort((short) tag).putShort((short) type);
+		if (big)
+			ifd.putLong(count);
+		else
+			ifd.putInt((int) count);
+		int start = ifd.position();
+		if (type == SHORT)
+			ifd.putShort((short) value);
+		else if (type == LONG8 || (big && type == ASCII))
+			ifd.putLong(value);
+		else
+			ifd.putInt((int) value);
+		ifd.position(start + (big ? 8 : 4));
+	}
+
+	private static void writeOffset(FileChannel channel, ByteOrder order, boolean big, long position, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(big ? 8 : 4).order(order);
+		if (big)
+			buffer.putLong(offset);
+		else
+			buffer.putInt((int) offset);
+		buffer.flip();
+		channel.write(buffer, position);
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int bytes, ByteOrder order) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(bytes).order(order);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("unexpected end of file");
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void close(RandomAccessFile raf) {
+		if (raf == null)
+			return;
+		try {
+			raf.close();
+		}
+		catch (IOException ex) {
+		}
+	}
+}
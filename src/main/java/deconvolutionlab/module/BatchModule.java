@@ -38,15 +38,19 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JPanel;
 import javax.swing.JToolBar;
 import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
 
 import bilib.table.CustomizedColumn;
 import bilib.table.CustomizedTable;
+import deconvolution.BatchScheduler;
 import deconvolution.Deconvolution;
 import deconvolutionlab.Constants;
 
@@ -55,6 +59,10 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 	private CustomizedTable	table;
 	private JButton			bnRun;
 	private JButton			bnLaunch;
+	private BatchScheduler	scheduler;
+	private Timer			timer;
+	/** Row of the table of each submitted job, only the last run of a row */
+	private HashMap<BatchScheduler.Job, Integer>	jobRows	= new HashMap<BatchScheduler.Job, Integer>();
 
 	public BatchModule() {
 		super("Batch", "", "", "");
@@ -74,11 +82,12 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 		ArrayList<CustomizedColumn> columns = new ArrayList<CustomizedColumn>();
 		columns.add(new CustomizedColumn("Job", String.class, 120, false));
 		columns.add(new CustomizedColumn("Command", String.class, Constants.widthGUI, false));
+		columns.add(new CustomizedColumn("Status", String.class, 120, false));
 		columns.add(new CustomizedColumn("", String.class, 30, "\u232B", "Delete this job"));
 
 		table = new CustomizedTable(columns, true);
-		table.getColumnModel().getColumn(2).setMaxWidth(30);
-		table.getColumnModel().getColumn(2).setMinWidth(30);
+		table.getColumnModel().getColumn(3).setMaxWidth(30);
+		table.getColumnModel().getColumn(3).setMinWidth(30);
 		table.addMouseListener(this);
 		table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
@@ -105,9 +114,22 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 		if (e.getSource() == bnRun) {
 			if (table.getSelectedRows().length == 0)
 				table.setColumnSelectionInterval(0, table.getRowCount());
+			if (scheduler == null)
+				scheduler = new BatchScheduler();
 			int rows[] = table.getSelectedRows();
-			for (int row : rows)
-				new Deconvolution("Batch" + table.getCell(row, 0), table.getCell(row, 1)).deconvolve();
+			for (int row : rows) {
+				jobRows.values().remove(row);
+				jobRows.put(scheduler.submit(table.getCell(row, 0), table.getCell(row, 1)), row);
+				table.setCell(row, 2, "Queued");
+			}
+			if (timer == null) {
+				timer = new Timer(500, this);
+				timer.start();
+			}
+		}
+		else if (e.getSource() == timer) {
+			updateStatus();
+			return;
 		}
 		else if (e.getSource() == bnLaunch) {
 			if (table.getSelectedRows().length == 0)
@@ -123,12 +145,22 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 		setSynopsis("" + table.getRowCount() + " jobs");
 	}
 
+	private void updateStatus() {
+		for (Map.Entry<BatchScheduler.Job, Integer> entry : jobRows.entrySet())
+			if (entry.getValue() < table.getRowCount())
+				table.setCell(entry.getValue(), 2, entry.getKey().toString());
+		if (!scheduler.isBusy()) {
+			timer.stop();
+			timer = null;
+		}
+	}
+
 	public int getCountJob() {
 		return table.getRowCount();
 	}
 
 	public void addJob(String name, String command) {
-		table.append(new String[] { name, command, "" });
+		table.append(new String[] { name, command, "", "" });
 		update();
 	}
 
@@ -138,8 +170,12 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 			int row = table.getSelectedRow();
 			if (row < 0)
 				return;
-			if (table.getSelectedColumn() == 2) {
+			if (table.getSelectedColumn() == 3) {
 				table.removeRow(row);
+				jobRows.values().remove(row);
+				for (Map.Entry<BatchScheduler.Job, Integer> entry : jobRows.entrySet())
+					if (entry.getValue() > row)
+						entry.setValue(entry.getValue() - 1);
 				if (table.getRowCount() > 0)
 					table.setRowSelectionInterval(0, 0);
 			}
@@ -165,6 +201,8 @@ public class BatchModule extends AbstractModule implements MouseListener, Action
 
 	@Override
 	public void close() {
+		if (timer != null)
+			timer.stop();
 		getAction1Button().removeActionListener(this);
 	}
 }
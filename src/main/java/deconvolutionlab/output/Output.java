@@ -190,12 +190,26 @@ public class Output {
 		return this;
 	}
 	
+	public int getFrequency() {
+		return frequency;
+	}
+
 	public boolean is(int iterations) {
 		if (frequency == 0)
 			return false;
 		return iterations % frequency == 0;
 	}
 
+	/**
+	 * Returns true if the output produces a view or a file at this iteration,
+	 * the stack and the series are only produced at the end.
+	 */
+	public boolean isActive(int iterations) {
+		if (!is(iterations))
+			return false;
+		return view != View.STACK && view != View.SERIES;
+	}
+
 	public View getView() {
 		return view;
 	}
@@ -256,11 +270,8 @@ public class Output {
 			if (!is(iter))
 				return;
 
-		if (controller != null && live) {
-			if (controller.getIterations() > 0) {
-				title += "@" + controller.getIterations();
-			}
-		}
+		if (live && iter > 0)
+			title += "@" + iter;
 		RealSignal x = null;
 		Constraint constraint = new Constraint(monitors);
 
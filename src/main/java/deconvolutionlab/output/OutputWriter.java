@@ -0,0 +1,166 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package deconvolutionlab.output;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import deconvolution.algorithm.Controller;
+import deconvolutionlab.monitor.Monitors;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * This class executes the iterative outputs in a background thread. The 
+ * iterate is copied, then the views are built and the files are written while
+ * the algorithm continues. The number of pending snapshots is bounded by the 
+ * capacity of the queue; when the queue is full, the computation waits.
+ * At most capacity + 2 copies of the iterate exist at the same time: the
+ * queued snapshots, the one being written, and the one copied by the compute
+ * thread while it waits for a free slot (4 volumes for a capacity of 2).
+ * 
+ * The outputs are executed in the order of the iterations. The method flush()
+ * waits for all the pending outputs.
+ */
+public class OutputWriter {
+
+	private int					capacity;
+	private ThreadPoolExecutor	executor;
+
+	/**
+	 * @param capacity
+	 *            maximum number of snapshots waiting to be written, 0 to
+	 *            execute the outputs in the calling thread
+	 */
+	public OutputWriter(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void execute(final Monitors monitors, RealSignal signal, final Controller controller, final int iterations, ArrayList<Output> outs) {
+		if (signal == null)
+			return;
+		final ArrayList<Output> actives = new ArrayList<Output>();
+		for (Output out : outs)
+			if (out.isActive(iterations))
+				actives.add(out);
+		if (actives.size() == 0)
+			return;
+
+		if (capacity <= 0) {
+			for (Output out : actives)
+				out.executeIterative(monitors, signal, controller, iterations);
+			return;
+		}
+
+		final RealSignal snapshot = signal.duplicate();
+		snapshot.setName(signal.name + "@" + iterations);
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (Output out : actives)
+						out.executeIterative(monitors, snapshot, controller, iterations);
+				}
+				catch (Exception ex) {
+					monitors.error("Output @" + iterations + " failed: " + ex.getMessage());
+				}
+				finally {
+					SignalCollector.free(snapshot);
+				}
+			}
+		};
+		// A task which is not queued does not free its snapshot
+		try {
+			getExecutor().execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			monitors.error("Output @" + iterations + " dropped: " + ex.getMessage());
+			SignalCollector.free(snapshot);
+		}
+	}
+
+	/**
+	 * Waits until all the pending outputs are written.
+	 */
+	public synchronized void flush() {
+		if (executor == null)
+			return;
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS))
+				;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (executor != null)
+			return executor;
+		// One worker keeps the order of the iterations in the live views
+		executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(capacity), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "DL2 output");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new RejectedExecutionHandler() {
+			@Override
+			public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+				// Back-pressure: the compute thread waits for a free slot
+				try {
+					if (executor.isShutdown())
+						throw new RejectedExecutionException("Output writer closed");
+					executor.getQueue().put(runnable);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new RejectedExecutionException("Output writer interrupted");
+				}
+			}
+		});
+		return executor;
+	}
+}
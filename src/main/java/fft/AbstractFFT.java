@@ -34,6 +34,7 @@ package fft;
 import deconvolutionlab.monitor.Monitors;
 import signal.ComplexSignal;
 import signal.RealSignal;
+import signal.SignalCollector;
 
 public abstract class AbstractFFT {
 
@@ -42,6 +43,12 @@ public abstract class AbstractFFT {
 	protected int	nz = 2;
 	protected Separability sep;
 	
+	/** 
+	 * Real-to-complex mode: the transform of a real signal only stores the 
+	 * non-redundant half of its Hermitian spectrum (nx/2+1 bins along X).
+	 */
+	protected boolean halfSpectrum = true;
+	
 	public AbstractFFT(Separability sep) {
 		this.sep = sep;
 	}
@@ -54,37 +61,114 @@ public abstract class AbstractFFT {
 		this.nx = nx;
 		this.ny = ny;
 		this.nz = nz;
-		monitors.log(getName() + " initialized for [" + nx + "x" + ny + "x" + nz + "]");
+		monitors.log(getName() + " initialized for [" + nx + "x" + ny + "x" + nz + "]" + (halfSpectrum ? " half spectrum" : ""));
 	}
 	
 	public abstract void transformInternal(RealSignal xInput, ComplexSignal XAllocated);
 	public abstract void inverseInternal(ComplexSignal XInput, RealSignal xAllocated);
 	
+	/**
+	 * Real-to-complex transform into a half spectrum. By default, the full 
+	 * spectrum is computed and its non-redundant half is kept. The libraries 
+	 * having a native real-to-complex transform override this method.
+	 * 
+	 * @param xInput
+	 * @param XAllocated half spectrum
+	 */
+	public void transformHalfInternal(RealSignal xInput, ComplexSignal XAllocated) {
+		ComplexSignal full = new ComplexSignal("full(" + XAllocated.name + ")", nx, ny, nz);
+		transformInternal(xInput, full);
+		XAllocated.setFullSpectrum(full);
+		SignalCollector.free(full);
+	}
+
+	/**
+	 * Complex-to-real inverse transform of a half spectrum. By default, the 
+	 * full spectrum is rebuilt by Hermitian symmetry. The libraries having 
+	 * a native complex-to-real transform override this method. 
+	 * 
+	 * @param XInput half spectrum, unchanged
+	 * @param xAllocated
+	 */
+	public void inverseHalfInternal(ComplexSignal XInput, RealSignal xAllocated) {
+		ComplexSignal full = XInput.getFullSpectrum();
+		inverseInternal(full, xAllocated);
+		SignalCollector.free(full);
+	}
+	
 	public ComplexSignal transform(RealSignal x, ComplexSignal XAllocated) {
 		if (XAllocated == null)
-			XAllocated = new ComplexSignal("fft(" + x.name + ")", nx, ny, nz);
-		transformInternal(x, XAllocated);
+			XAllocated = createComplexSignal("fft(" + x.name + ")");
+		if (XAllocated.halfSpectrum)
+			transformHalfInternal(x, XAllocated);
+		else
+			transformInternal(x, XAllocated);
 		return XAllocated;
 	}
 
 	public ComplexSignal transform(RealSignal x) {
-		ComplexSignal X = new ComplexSignal("fft(" + x.name + ")", nx, ny, nz);
-		transformInternal(x, X);
-		return X;
+		return transform(x, null);
 	}
 
 	public RealSignal inverse(ComplexSignal X, RealSignal xAllocated) {
 		if (xAllocated == null)
 			xAllocated = new RealSignal("ifft(" + X.name + ")", nx, ny, nz);
-		inverseInternal(X, xAllocated);
+		if (X.halfSpectrum)
+			inverseHalfInternal(X, xAllocated);
+		else
+			inverseInternal(X, xAllocated);
 		return xAllocated;
 	}
+	
 	public RealSignal inverse(ComplexSignal X) {
-		RealSignal x = new RealSignal("ifft(" + X.name + ")", nx, ny, nz);
-		inverseInternal(X, x);
-		return x;
+		return inverse(X, null);
 	}
 	
+	/**
+	 * Allocates a complex signal having the layout of the output of this FFT,
+	 * full or half spectrum.
+	 * 
+	 * @param name
+	 * @return a new complex signal
+	 */
+	public ComplexSignal createComplexSignal(String name) {
+		return new ComplexSignal(name, nx, ny, nz, halfSpectrum);
+	}
+
+	/**
+	 * Returns a new FFT of the same kind, not initialized.
+	 * 
+	 * @return a new FFT or null if it cannot be instantiated
+	 */
+	public AbstractFFT newInstance() {
+		try {
+			AbstractFFT fft = getClass().getDeclaredConstructor().newInstance();
+			fft.setHalfSpectrum(halfSpectrum);
+			return fft;
+		}
+		catch (Exception ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes kept by this FFT between two transforms:
+	 * plans, tables and workspaces. By default, one complex volume.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getWorkspaceBytes() {
+		return 8L * nx * ny * nz;
+	}
+
+	public boolean isHalfSpectrum() {
+		return halfSpectrum;
+	}
+
+	public void setHalfSpectrum(boolean halfSpectrum) {
+		this.halfSpectrum = halfSpectrum;
+	}
+
 	public abstract String getName();
 	public abstract boolean isMultithreadable();
 
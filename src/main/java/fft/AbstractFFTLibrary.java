@@ -52,4 +52,13 @@ public abstract class AbstractFFTLibrary {
 	public ArrayList<AbstractFFT> getFFTs() {
 		return ffts;
 	}
+
+	/**
+	 * Sets the number of threads of the transforms, for the libraries having
+	 * a process-wide setting. By default, the library has no such setting.
+	 * 
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+	}
 }
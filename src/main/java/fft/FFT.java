@@ -37,6 +37,8 @@ import deconvolutionlab.monitor.Monitors;
 import fft.academic.Academic;
 import fft.academic.AcademicLibrary;
 import fft.fftw.FFTW3D;
+import fft.fftw.FFTWDirect;
+import fft.fftw.FFTWDirectLibrary;
 import fft.fftw.FFTWLibrary;
 import fft.jcufft.JCuFFTLibrary;
 import fft.jtransforms.JTransforms;
@@ -73,6 +75,14 @@ public class FFT {
 			monitors.log("FFTW not found");
 		}
 
+		FFTWDirectLibrary fftw3 = new FFTWDirectLibrary();
+		if (fftw3.isInstalled()) {
+			libraries.add(fftw3);
+			monitors.log("FFTW3 Added");
+		} else {
+			monitors.log("FFTW3 not found");
+		}
+
 		JCuFFTLibrary jcufft = new JCuFFTLibrary();
 		if (jcufft.isInstalled()) {
 			libraries.add(jcufft);
@@ -84,6 +94,7 @@ public class FFT {
 		registers.add(academic);
 		registers.add(jtransform);
 		registers.add(jfftw);
+		registers.add(fftw3);
 		registers.add(jcufft);
 
 	}
@@ -96,10 +107,22 @@ public class FFT {
 		return libraries;
 	}
 
+	/**
+	 * Sets the number of threads of all the installed libraries. The setting
+	 * is process-wide, it bounds the threads of every running transform.
+	 */
+	public static void setThreads(int threads) {
+		for (AbstractFFTLibrary library : libraries)
+			library.setThreads(threads);
+	}
+
 	public static AbstractFFTLibrary getFastestFFT() {
 		for (int i = 0; i < libraries.size(); i++)
 			if (libraries.get(i).getLibraryName().equals("JCuFFT (GPU support)"))
 				return libraries.get(i);
+		for (int i = 0; i < libraries.size(); i++)
+			if (libraries.get(i).getLibraryName().equals("FFTW3"))
+				return libraries.get(i);
 		for (int i = 0; i < libraries.size(); i++)
 			if (libraries.get(i).getLibraryName().equals("FFTW2"))
 				return libraries.get(i);
@@ -119,23 +142,15 @@ public class FFT {
 
 	public static AbstractFFT createFFT(Monitors monitors, AbstractFFTLibrary fftlib, int nx, int ny, int nz) {
 		String name = fftlib.getLibraryName().toLowerCase();
-		AbstractFFT fft = null;
 		String n = name.trim().toLowerCase();
-		if (n.equals("academic")) {
-			fft = new Academic();
-			fft.init(monitors, nx, ny, nz);
-			return fft;
-		}
-		if (n.equals("jtransforms")) {
-			fft = new JTransforms();
-			fft.init(monitors, nx, ny, nz);
-			return fft;
-		}
-		if (n.equals("fftw2")) {
-			fft = new FFTW3D();
-			fft.init(monitors, nx, ny, nz);
-			return fft;
-		}
+		if (n.equals("academic"))
+			return FFTCache.acquire(monitors, new Academic(), nx, ny, nz);
+		if (n.equals("jtransforms"))
+			return FFTCache.acquire(monitors, new JTransforms(), nx, ny, nz);
+		if (n.equals("fftw2"))
+			return FFTCache.acquire(monitors, new FFTW3D(), nx, ny, nz);
+		if (n.equals("fftw3"))
+			return FFTCache.acquire(monitors, new FFTWDirect(), nx, ny, nz);
 		return createDefaultFFT(monitors, nx, ny, nz);
 	}
 
@@ -149,9 +164,7 @@ public class FFT {
 	}
 
 	public static AbstractFFT createDefaultFFT(Monitors monitors, int nx, int ny, int nz) {
-		AbstractFFT fft = new Academic();
-		fft.init(monitors, nx, ny, nz);
-		return fft;
+		return FFTCache.acquire(monitors, new Academic(), nx, ny, nz);
 	}
 
 	public static String getLicence(String name) {
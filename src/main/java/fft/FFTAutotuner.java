@@ -0,0 +1,188 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import java.util.ArrayList;
+
+import deconvolutionlab.Config;
+import deconvolutionlab.monitor.Monitors;
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * Selects the fastest FFT for a given volume by measuring all the FFTs of the
+ * installed libraries, including their separability variants. As the FFTW 
+ * wisdom, the winner is stored in the config file, one entry per volume size
+ * and per number of cores, and it is reused for the next requests.
+ * 
+ * A large volume is measured on a proxy having the same nx and fewer slices
+ * and rows, a divisor of nz and of ny keeps the radices of the transforms.
+ * A candidate slower than twice the best one is not repeated, and the other
+ * variants of its library are not measured.
+ */
+public class FFTAutotuner {
+
+	private static int repetitions = 2;
+	private static int proxyVoxels = 1 << 21;
+
+	public static AbstractFFT getFastest(Monitors monitors, int nx, int ny, int nz) {
+		String key = getKey(nx, ny, nz);
+		String name = Config.getProperty(key, null);
+		if (name != null) {
+			AbstractFFT fft = getFFTByName(name);
+			if (fft != null) {
+				monitors.log("FFT autotuning: " + name + " for [" + nx + "x" + ny + "x" + nz + "] from config");
+				return fft;
+			}
+		}
+		return tune(monitors, nx, ny, nz);
+	}
+
+	/**
+	 * Measures the forward and the inverse transforms of all the FFTs and 
+	 * stores the name of the fastest one.
+	 */
+	public static AbstractFFT tune(Monitors monitors, int nx, int ny, int nz) {
+		int mz = getProxySize(nz, (long) nx * ny, 2);
+		int my = getProxySize(ny, (long) nx * mz, 1);
+		if (my != ny || mz != nz)
+			monitors.log("FFT autotuning: [" + nx + "x" + ny + "x" + nz + "] measured on [" + nx + "x" + my + "x" + mz + "]");
+		RealSignal x = new RealSignal("autotune", nx, my, mz);
+		for (int k = 0; k < mz; k++)
+			for (int i = 0; i < nx * my; i++)
+				x.data[k][i] = (float) Math.random();
+		Monitors silent = new Monitors();
+
+		// The first FFT of each library is measured first, the other variants
+		// of a library are skipped if it is slower than twice the best one
+		ArrayList<AbstractFFTLibrary> libraries = FFT.getInstalledLibraries();
+		double times[] = new double[libraries.size()];
+		AbstractFFT best = null;
+		double bestTime = Double.MAX_VALUE;
+		for (int pass = 0; pass < 2; pass++) {
+			for (int l = 0; l < libraries.size(); l++) {
+				ArrayList<AbstractFFT> ffts = libraries.get(l).getFFTs();
+				if (pass == 1 && times[l] > 2 * bestTime)
+					continue;
+				int first = pass == 0 ? 0 : 1;
+				int last = pass == 0 ? Math.min(1, ffts.size()) : ffts.size();
+				for (int c = first; c < last; c++) {
+					AbstractFFT fft = ffts.get(c).newInstance();
+					if (fft == null)
+						continue;
+					double time = measure(monitors, silent, fft, x, bestTime);
+					if (pass == 0)
+						times[l] = time;
+					if (time < bestTime) {
+						bestTime = time;
+						best = fft;
+					}
+				}
+			}
+		}
+		SignalCollector.free(x);
+		if (best == null)
+			return FFT.getFastestFFT().getDefaultFFT();
+		monitors.log("FFT autotuning: " + best.getName() + " for [" + nx + "x" + ny + "x" + nz + "]");
+		Config.putProperty(getKey(nx, ny, nz), best.getName());
+		// The winner is initialized, it is given to the cache for the next acquire
+		if (my == ny && mz == nz)
+			FFTCache.release(best);
+		return best;
+	}
+
+	/**
+	 * Returns the shortest time of the forward and inverse transforms, or 
+	 * Double.MAX_VALUE if the FFT failed. The repetitions stop as soon as 
+	 * the FFT is slower than twice the best time.
+	 */
+	private static double measure(Monitors monitors, Monitors silent, AbstractFFT fft, RealSignal x, double bestTime) {
+		double time = Double.MAX_VALUE;
+		try {
+			fft.init(silent, x.nx, x.ny, x.nz);
+			ComplexSignal X = fft.createComplexSignal("autotune");
+			RealSignal y = new RealSignal("autotune", x.nx, x.ny, x.nz);
+			for (int r = 0; r < repetitions && (r == 0 || time < 2 * bestTime); r++) {
+				double chrono = System.nanoTime();
+				fft.transform(x, X);
+				fft.inverse(X, y);
+				time = Math.min(time, System.nanoTime() - chrono);
+			}
+			SignalCollector.free(X);
+			SignalCollector.free(y);
+		}
+		catch (Throwable ex) {
+			monitors.error("FFT autotuning: " + fft.getName() + " failed " + ex);
+			return Double.MAX_VALUE;
+		}
+		monitors.detail("FFT autotuning: " + fft.getName() + " " + (time * 1e-6) + " ms");
+		return time;
+	}
+
+	/**
+	 * Returns the largest divisor of n, not smaller than min, such that the 
+	 * proxy holds the divisor times the other voxels, or min if none fits.
+	 */
+	private static int getProxySize(int n, long others, int min) {
+		if (n <= min || others * n <= proxyVoxels)
+			return n;
+		for (int d = n - 1; d >= min; d--)
+			if (n % d == 0 && others * d <= proxyVoxels)
+				return d;
+		return min;
+	}
+
+	public static void setRepetitions(int repetitions) {
+		FFTAutotuner.repetitions = Math.max(1, repetitions);
+	}
+
+	/**
+	 * Sets the maximal number of voxels of the volume measured, a larger 
+	 * volume is measured on a proxy.
+	 */
+	public static void setProxyVoxels(int proxyVoxels) {
+		FFTAutotuner.proxyVoxels = Math.max(1, proxyVoxels);
+	}
+
+	private static AbstractFFT getFFTByName(String name) {
+		for (AbstractFFTLibrary library : FFT.getInstalledLibraries())
+			for (AbstractFFT fft : library.getFFTs())
+				if (fft.getName().equals(name))
+					return fft.newInstance();
+		return null;
+	}
+
+	private static String getKey(int nx, int ny, int nz) {
+		return "FFT.autotuning." + nx + "x" + ny + "x" + nz + ".cores" + Runtime.getRuntime().availableProcessors();
+	}
+}
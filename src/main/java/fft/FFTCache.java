@@ -0,0 +1,156 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import deconvolutionlab.monitor.Monitors;
+
+/**
+ * Process-wide cache of initialized FFTs. An FFT holds plans, twiddle tables
+ * and workspaces for a given size, so it is kept after use and reused by the
+ * next job having the same library, separability and dimensions.
+ * 
+ * An FFT is not thread-safe: acquire() removes it from the cache and 
+ * release() gives it back. The least recently released FFTs are evicted 
+ * when the number of entries or the workspace bytes reported by the FFTs
+ * (getWorkspaceBytes) exceed the limits.
+ * A prototype already in use by another job is never handed out twice, a
+ * new instance is created instead.
+ */
+public class FFTCache {
+
+	private static int	maxEntries	= 8;
+	private static long	memoryCap	= 512L * 1024L * 1024L;
+	private static long	bytes		= 0;
+
+	/** Idle FFTs with their key, in order of release (eldest first) */
+	private static LinkedHashMap<AbstractFFT, String> idle = new LinkedHashMap<AbstractFFT, String>();
+
+	/** Bytes charged for each idle FFT, as reported when it was released */
+	private static HashMap<AbstractFFT, Long> charged = new HashMap<AbstractFFT, Long>();
+
+	/** FFTs acquired and not yet released */
+	private static HashSet<AbstractFFT> busy = new HashSet<AbstractFFT>();
+
+	/**
+	 * Returns an FFT of the same kind as the prototype, initialized for the 
+	 * dimensions. A cached FFT is returned if one is idle, otherwise the 
+	 * prototype is initialized.
+	 */
+	public static synchronized AbstractFFT acquire(Monitors monitors, AbstractFFT prototype, int nx, int ny, int nz) {
+		String key = key(prototype, nx, ny, nz);
+		AbstractFFT found = null;
+		for (Map.Entry<AbstractFFT, String> entry : idle.entrySet())
+			if (entry.getValue().equals(key))
+				found = entry.getKey();
+		if (found != null) {
+			idle.remove(found);
+			bytes -= charged.remove(found);
+			monitors.log(found.getName() + " reused for [" + nx + "x" + ny + "x" + nz + "]");
+			busy.add(found);
+			return found;
+		}
+		// The prototype could be idle in the cache with other dimensions
+		if (idle.containsKey(prototype)) {
+			idle.remove(prototype);
+			bytes -= charged.remove(prototype);
+		}
+		AbstractFFT fft = prototype;
+		if (busy.contains(prototype)) {
+			AbstractFFT instance = prototype.newInstance();
+			if (instance != null)
+				fft = instance;
+		}
+		fft.init(monitors, nx, ny, nz);
+		busy.add(fft);
+		return fft;
+	}
+
+	/**
+	 * Gives an FFT back to the cache once the caller does not use it anymore.
+	 */
+	public static synchronized void release(AbstractFFT fft) {
+		if (fft == null)
+			return;
+		busy.remove(fft);
+		if (idle.containsKey(fft))
+			return;
+		long size = fft.getWorkspaceBytes();
+		if (size > memoryCap)
+			return;
+		idle.put(fft, key(fft, fft.getSizeX(), fft.getSizeY(), fft.getSizeZ()));
+		charged.put(fft, size);
+		bytes += size;
+		ArrayList<AbstractFFT> evicted = new ArrayList<AbstractFFT>();
+		for (AbstractFFT eldest : idle.keySet()) {
+			if (idle.size() - evicted.size() <= maxEntries && bytes <= memoryCap)
+				break;
+			evicted.add(eldest);
+			bytes -= charged.get(eldest);
+		}
+		for (AbstractFFT eldest : evicted) {
+			idle.remove(eldest);
+			charged.remove(eldest);
+		}
+	}
+
+	public static synchronized void clear() {
+		idle.clear();
+		charged.clear();
+		bytes = 0;
+	}
+
+	public static synchronized void setMaxEntries(int maxEntries) {
+		FFTCache.maxEntries = Math.max(0, maxEntries);
+	}
+
+	public static synchronized void setMemoryCap(long memoryCap) {
+		FFTCache.memoryCap = Math.max(0, memoryCap);
+	}
+
+	public static synchronized int getCountEntries() {
+		return idle.size();
+	}
+
+	public static synchronized long getBytes() {
+		return bytes;
+	}
+
+	private static String key(AbstractFFT fft, int nx, int ny, int nz) {
+		return fft.getClass().getName() + " " + fft.getSeparability() + " " + (fft.isHalfSpectrum() ? "half" : "full") + " " + nx + "x" + ny + "x" + nz;
+	}
+}
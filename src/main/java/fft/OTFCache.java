@@ -0,0 +1,135 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * Process-wide cache of the transfer functions (OTF) of the PSFs. The OTF 
+ * depends on the content of the PSF, the padded size, the normalization and
+ * the FFT, it is computed once and reused by the next jobs having the same 
+ * PSF, for instance in a batch.
+ * 
+ * The callers get a copy of the cached OTF. The least recently used are 
+ * evicted when the number of entries or the memory exceeds the limits.
+ */
+public class OTFCache {
+
+	private static int	maxEntries	= 8;
+	private static long	memoryCap	= 256L * 1024L * 1024L;
+	private static long	bytes		= 0;
+
+	/** Cached OTFs in order of access (eldest first) */
+	private static LinkedHashMap<String, ComplexSignal> otfs = new LinkedHashMap<String, ComplexSignal>(16, 0.75f, true);
+
+	/**
+	 * Returns the key of the OTF of a PSF resized to [nx, ny, nz] and 
+	 * normalized to norm, computed by the fft.
+	 */
+	public static String getKey(RealSignal psf, int nx, int ny, int nz, double norm, AbstractFFT fft) {
+		long hash = 0xcbf29ce484222325L;
+		int nxy = psf.nx * psf.ny;
+		for (int k = 0; k < psf.nz; k++) {
+			float[] slice = psf.data[k];
+			for (int i = 0; i < nxy; i++) {
+				hash ^= Float.floatToIntBits(slice[i]);
+				hash *= 0x100000001b3L;
+			}
+		}
+		return Long.toHexString(hash) + " " + psf.dimAsString() + "-> " + nx + "x" + ny + "x" + nz + 
+				" norm " + norm + " " + fft.getClass().getName() + " " + (fft.isHalfSpectrum() ? "half" : "full");
+	}
+
+	/**
+	 * Returns a copy of the cached OTF, or null if it is not in the cache.
+	 */
+	public static synchronized ComplexSignal copy(String key) {
+		if (key == null)
+			return null;
+		ComplexSignal otf = otfs.get(key);
+		if (otf == null)
+			return null;
+		return otf.duplicate();
+	}
+
+	/**
+	 * Stores an OTF, the cache takes the ownership of the signal.
+	 */
+	public static synchronized void put(String key, ComplexSignal otf) {
+		if (key == null || otf == null)
+			return;
+		long size = SignalCollector.getBytes(otf);
+		if (size > memoryCap || otfs.containsKey(key)) {
+			SignalCollector.free(otf);
+			return;
+		}
+		otfs.put(key, otf);
+		bytes += size;
+		// get() reorders an access-ordered map, the entries are read through the iterator
+		Iterator<Map.Entry<String, ComplexSignal>> iterator = otfs.entrySet().iterator();
+		while (iterator.hasNext() && (otfs.size() > maxEntries || bytes > memoryCap)) {
+			ComplexSignal eldest = iterator.next().getValue();
+			iterator.remove();
+			bytes -= SignalCollector.getBytes(eldest);
+			SignalCollector.free(eldest);
+		}
+	}
+
+	public static synchronized void clear() {
+		for (ComplexSignal otf : otfs.values())
+			SignalCollector.free(otf);
+		otfs.clear();
+		bytes = 0;
+	}
+
+	public static synchronized void setMaxEntries(int maxEntries) {
+		OTFCache.maxEntries = Math.max(0, maxEntries);
+	}
+
+	public static synchronized void setMemoryCap(long memoryCap) {
+		OTFCache.memoryCap = Math.max(0, memoryCap);
+	}
+
+	public static synchronized int getCountEntries() {
+		return otfs.size();
+	}
+
+	public static synchronized long getBytes() {
+		return bytes;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import signal.ComplexSignal;
+import signal.SignalCollector;
+import deconvolutionlab.monitor.Monitors;
+
+/**
+ * This class reads and writes the transfer function (OTF) of a PSF in a 
+ * binary file, to skip the preparation and the FFT of the PSF in later jobs.
+ * 
+ * The file starts with a header of 32 bytes in little-endian order: the 
+ * magic number 'DL2O', the version, the padded size [nx, ny, nz] of the 
+ * spatial domain, the flag of half spectrum and the normalization of the 
+ * PSF as a double. The half spectrum follows, slice by slice, as interleaved
+ * floats.
+ */
+public class OTFFile {
+
+	private static final int	MAGIC	= 0x4F324C44;
+	private static final int	VERSION	= 1;
+	private static final int	HEADER	= 32;
+
+	/**
+	 * Writes the half spectrum of the OTF.
+	 * 
+	 * @return true if the file is written
+	 */
+	public static boolean write(Monitors monitors, String filename, ComplexSignal otf, double norm) {
+		ComplexSignal half = otf;
+		if (!otf.halfSpectrum) {
+			half = new ComplexSignal("half(" + otf.name + ")", otf.nxSpatial, otf.ny, otf.nz, true);
+			half.setFullSpectrum(otf);
+		}
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(filename, "rw");
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION);
+			header.putInt(half.nxSpatial).putInt(half.ny).putInt(half.nz).putInt(1);
+			header.putDouble(norm);
+			header.flip();
+			channel.write(header);
+			ByteBuffer slice = ByteBuffer.allocate(4 * half.data[0].length).order(ByteOrder.LITTLE_ENDIAN);
+			for (int k = 0; k < half.nz; k++) {
+				slice.clear();
+				slice.asFloatBuffer().put(half.data[k]);
+				channel.write(slice);
+			}
+			monitors.log("OTF saved in " + filename);
+			return true;
+		}
+		catch (IOException ex) {
+			monitors.error("OTF: unable to write " + filename + " " + ex.getMessage());
+			return false;
+		}
+		finally {
+			close(raf);
+			if (half != otf)
+				SignalCollector.free(half);
+		}
+	}
+
+	/**
+	 * Reads the OTF from a memory-mapped file, a warning is given if it was
+	 * not saved with the normalization of the PSF of the job.
+	 * 
+	 * @return the half spectrum of the OTF or null if the file is not valid
+	 */
+	public static ComplexSignal read(Monitors monitors, String filename, double normalization) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(new File(filename), "r");
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				monitors.error("OTF: " + filename + " is not an OTF file");
+				return null;
+			}
+			int nx = header.getInt();
+			int ny = header.getInt();
+			int nz = header.getInt();
+			int half = header.getInt();
+			double norm = header.getDouble();
+			if (half != 1) {
+				monitors.error("OTF: " + filename + " does not store a half spectrum");
+				return null;
+			}
+			if ((norm <= 0) != (normalization <= 0) || (norm > 0 && Math.abs(norm - normalization) > 1e-6 * norm))
+				monitors.error("OTF: " + filename + " was saved with the normalization " + (norm <= 0 ? "no" : norm) + 
+						", not " + (normalization <= 0 ? "no" : normalization) + " as given by -norm");
+			long bytes = 8L * (nx / 2 + 1) * ny;
+			if (channel.size() != HEADER + bytes * nz) {
+				monitors.error("OTF: " + filename + " is truncated");
+				return null;
+			}
+			ComplexSignal otf = new ComplexSignal("OTF", nx, ny, nz, true);
+			for (int k = 0; k < nz; k++) {
+				MappedByteBuffer slice = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + k * bytes, bytes);
+				slice.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(otf.data[k]);
+			}
+			monitors.log("OTF loaded from " + filename + " [" + nx + "x" + ny + "x" + nz + "] normalized " + (norm <= 0 ? "no" : norm));
+			return otf;
+		}
+		catch (IOException ex) {
+			monitors.error("OTF: unable to read " + filename + " " + ex.getMessage());
+			return null;
+		}
+		finally {
+			close(raf);
+		}
+	}
+
+	private static void close(RandomAccessFile raf) {
+		if (raf == null)
+			return;
+		try {
+			raf.close();
+		}
+		catch (IOException ex) {
+		}
+	}
+}
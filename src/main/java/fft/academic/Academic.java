@@ -67,6 +67,11 @@ public class Academic extends AbstractFFT {
 		x.setXYZ(real);
 	}
 	
+	@Override
+	public long getWorkspaceBytes() {
+		return fftXYZ == null ? 0L : fftXYZ.getRetainedBytes();
+	}
+
 	@Override
 	public String getName() {
 		return "AcademicFFT";
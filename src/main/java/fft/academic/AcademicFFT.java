@@ -13059,6 +13059,28 @@ public void circularFourierConvolution (
 	transformFloat(InputDataType.COMPLEXINPUT);
 } /* circularFourierConvolution */
 
+/*------------------------------------------------------------------*/
+/*********************************************************************
+ <p>
+ This method returns the number of bytes of the data and buffer arrays
+ that this object still references after its last transform.
+ </p>
+ @return The number of bytes retained by this object.
+ ********************************************************************/
+public long getRetainedBytes (
+) {
+	long bytes = 0L;
+	bytes += (null == reDataDouble) ? (0L) : (8L * reDataDouble.length);
+	bytes += (null == imDataDouble) ? (0L) : (8L * imDataDouble.length);
+	bytes += (null == reBufferDouble) ? (0L) : (8L * reBufferDouble.length);
+	bytes += (null == imBufferDouble) ? (0L) : (8L * imBufferDouble.length);
+	bytes += (null == reDataFloat) ? (0L) : (4L * reDataFloat.length);
+	bytes += (null == imDataFloat) ? (0L) : (4L * imDataFloat.length);
+	bytes += (null == reBufferFloat) ? (0L) : (4L * reBufferFloat.length);
+	bytes += (null == imBufferFloat) ? (0L) : (4L * imBufferFloat.length);
+	return(bytes);
+} /* getRetainedBytes */
+
 /*------------------------------------------------------------------*/
 /*********************************************************************
  <p>
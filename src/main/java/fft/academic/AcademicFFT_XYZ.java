@@ -98,6 +98,11 @@ public class AcademicFFT_XYZ extends AbstractFFT {
 		x.setXYZ(real);
 	}
 	
+	@Override
+	public long getWorkspaceBytes() {
+		return fftXYZ == null ? 0L : fftXYZ.getRetainedBytes();
+	}
+
 	@Override
 	public String getName() {
 		return "AcademicFFT XYZ";
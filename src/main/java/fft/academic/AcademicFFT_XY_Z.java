@@ -92,6 +92,11 @@ public class AcademicFFT_XY_Z extends AbstractFFT {
 		}
 	}
 	
+	@Override
+	public long getWorkspaceBytes() {
+		return fftXY == null ? 0L : fftXY.getRetainedBytes() + fftZ.getRetainedBytes();
+	}
+
 	@Override
 	public String getName() {
 		return "AcademicFFT XY and Z";
@@ -42,6 +42,12 @@ public class FFTW3D extends AbstractFFT {
 	
 	private Plan planForwardFFTW = null;
 	private Plan planBackwardFFTW = null;
+	private jfftw.real.nd.Plan planRealToComplexFFTW = null;
+	private jfftw.real.nd.Plan planComplexToRealFFTW = null;
+	
+	/** Workspaces reused across the calls, the plans are in-place */
+	private float[] buffer = null;
+	private float[] real = null;
 
 	public FFTW3D() {
 		super(Separability.XYZ);
@@ -53,23 +59,56 @@ public class FFTW3D extends AbstractFFT {
 		int dim[] = new int[] {nz, ny, nx};
 		planForwardFFTW = new Plan(dim, Plan.FORWARD, Plan.ESTIMATE | Plan.IN_PLACE | Plan.USE_WISDOM);
 		planBackwardFFTW = new Plan(dim, Plan.BACKWARD, Plan.ESTIMATE | Plan.IN_PLACE | Plan.USE_WISDOM);
+		planRealToComplexFFTW = null;
+		planComplexToRealFFTW = null;
+		buffer = null;
+		real = null;
 	}
 
 	@Override
 	public void transformInternal(RealSignal x, ComplexSignal X) {
-		float interleave[] = x.getInterleaveXYZAtReal();
-		planForwardFFTW.transform(interleave);
-		X.setInterleaveXYZ(interleave);
+		buffer = x.getInterleaveXYZAtReal(buffer);
+		planForwardFFTW.transform(1, buffer, 1, 0, buffer, 1, 0);
+		X.setInterleaveXYZ(buffer);
 	}
 	
 	@Override
 	public void inverseInternal(ComplexSignal X, RealSignal x) {
-		float[] interleave = X.getInterleaveXYZ();
-		planBackwardFFTW.transform(interleave);
-		x.setInterleaveXYZAtReal(interleave);
+		buffer = X.getInterleaveXYZ(buffer);
+		planBackwardFFTW.transform(1, buffer, 1, 0, buffer, 1, 0);
+		x.setInterleaveXYZAtReal(buffer);
 		x.multiply(1.0/(nx*ny*nz));
 	}
 	
+	@Override
+	public void transformHalfInternal(RealSignal x, ComplexSignal X) {
+		if (planRealToComplexFFTW == null)
+			planRealToComplexFFTW = new jfftw.real.nd.Plan(new int[] {nz, ny, nx}, jfftw.real.nd.Plan.REAL_TO_COMPLEX, Plan.ESTIMATE | Plan.USE_WISDOM);
+		real = x.getXYZ(real);
+		if (buffer == null || buffer.length != 2 * X.nx * ny * nz)
+			buffer = new float[2 * X.nx * ny * nz];
+		planRealToComplexFFTW.transform(1, real, 1, 0, buffer, 1, 0);
+		X.setInterleaveXYZ(buffer);
+	}
+
+	@Override
+	public void inverseHalfInternal(ComplexSignal X, RealSignal x) {
+		if (planComplexToRealFFTW == null)
+			planComplexToRealFFTW = new jfftw.real.nd.Plan(new int[] {nz, ny, nx}, jfftw.real.nd.Plan.COMPLEX_TO_REAL, Plan.ESTIMATE | Plan.USE_WISDOM);
+		// The complex-to-real transform of FFTW destroys its input, the buffer is a copy of X 
+		buffer = X.getInterleaveXYZ(buffer);
+		if (real == null || real.length != nx * ny * nz)
+			real = new float[nx * ny * nz];
+		planComplexToRealFFTW.transform(1, buffer, 1, 0, real, 1, 0);
+		x.setXYZ(real);
+		x.multiply(1.0/(nx*ny*nz));
+	}
+
+	@Override
+	public long getWorkspaceBytes() {
+		return (buffer == null ? 0L : 4L * buffer.length) + (real == null ? 0L : 4L * real.length);
+	}
+
 	@Override
 	public String getName() {
 		return "FFTW2";
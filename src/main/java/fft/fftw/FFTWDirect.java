@@ -0,0 +1,287 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft.fftw;
+
+import static org.bytedeco.javacpp.fftw3.FFTW_BACKWARD;
+import static org.bytedeco.javacpp.fftw3.FFTW_ESTIMATE;
+import static org.bytedeco.javacpp.fftw3.FFTW_FORWARD;
+import static org.bytedeco.javacpp.fftw3.fftwf_alignment_of;
+import static org.bytedeco.javacpp.fftw3.fftwf_alloc_complex;
+import static org.bytedeco.javacpp.fftw3.fftwf_alloc_real;
+import static org.bytedeco.javacpp.fftw3.fftwf_destroy_plan;
+import static org.bytedeco.javacpp.fftw3.fftwf_execute;
+import static org.bytedeco.javacpp.fftw3.fftwf_execute_dft_r2c;
+import static org.bytedeco.javacpp.fftw3.fftwf_free;
+import static org.bytedeco.javacpp.fftw3.fftwf_plan_dft_3d;
+import static org.bytedeco.javacpp.fftw3.fftwf_plan_dft_c2r_3d;
+import static org.bytedeco.javacpp.fftw3.fftwf_plan_dft_r2c_3d;
+import static org.bytedeco.javacpp.fftw3.fftwf_plan_with_nthreads;
+
+import java.nio.FloatBuffer;
+
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.javacpp.fftw3.fftwf_plan;
+
+import deconvolutionlab.monitor.Monitors;
+import fft.AbstractFFT;
+import fft.Separability;
+import signal.ComplexSignal;
+import signal.DirectStorage;
+import signal.RealSignal;
+import signal.SlabPool;
+
+/**
+ * FFTW 3 through the JavaCPP presets. The plans work on buffers allocated by
+ * fftwf_malloc, outside the Java heap and aligned for the SIMD instructions 
+ * of FFTW, and the JNI calls only pass pointers. The slices of the signals 
+ * are copied in bulk to and from these buffers. A real signal mapped in 
+ * direct memory is read by the plan in place, without any copy, if its 
+ * slices are contiguous and aligned as the buffer of the plan.
+ * 
+ * The plans use the threads of the pool of the calling thread, bounded by 
+ * setThreads(), and they are created again if this number changes. The 
+ * planner of FFTW is not thread-safe, the plans are created and destroyed 
+ * under a global lock.
+ */
+public class FFTWDirect extends AbstractFFT {
+
+	private static final Object	planner	= new Object();
+	private static int			threads	= Runtime.getRuntime().availableProcessors();
+
+	private int					nxh;
+	private int					planned;
+	private FloatPointer		real;
+	private FloatPointer		complex;
+	private FloatPointer		full;
+	private fftwf_plan			planR2C;
+	private fftwf_plan			planC2R;
+	private fftwf_plan			planForward;
+	private fftwf_plan			planBackward;
+
+	public FFTWDirect() {
+		super(Separability.XYZ);
+	}
+
+	public static void setThreads(int threads) {
+		FFTWDirect.threads = Math.max(1, threads);
+	}
+
+	@Override
+	public void init(Monitors monitors, int nx, int ny, int nz) {
+		super.init(monitors, nx, ny, nz);
+		dispose();
+		nxh = nx / 2 + 1;
+	}
+
+	@Override
+	public void transformHalfInternal(RealSignal x, ComplexSignal X) {
+		plan(false);
+		int nxy = nx * ny;
+		FloatPointer in = getDirect(x);
+		if (in == null) {
+			FloatBuffer buffer = real.asBuffer();
+			for (int k = 0; k < nz; k++) {
+				buffer.position(k * nxy);
+				if (x.isMapped())
+					buffer.put(x.getStorage().getSlice(k));
+				else
+					buffer.put(x.data[k], 0, nxy);
+			}
+			fftwf_execute(planR2C);
+		}
+		else
+			fftwf_execute_dft_r2c(planR2C, in, complex);
+		get(complex, X);
+	}
+
+	@Override
+	public void inverseHalfInternal(ComplexSignal X, RealSignal x) {
+		plan(false);
+		// The complex-to-real transform destroys its input, a copy of X
+		put(X, complex);
+		fftwf_execute(planC2R);
+		int nxy = nx * ny;
+		FloatBuffer buffer = real.asBuffer();
+		for (int k = 0; k < nz; k++) {
+			buffer.position(k * nxy);
+			buffer.get(x.data[k], 0, nxy);
+		}
+		x.multiply(1.0 / ((double) nx * ny * nz));
+	}
+
+	@Override
+	public void transformInternal(RealSignal x, ComplexSignal X) {
+		plan(true);
+		int nxy = nx * ny;
+		float[] line = new float[2 * nxy];
+		FloatBuffer buffer = full.asBuffer();
+		for (int k = 0; k < nz; k++) {
+			for (int i = 0; i < nxy; i++) {
+				line[2 * i] = x.data[k][i];
+				line[2 * i + 1] = 0f;
+			}
+			buffer.put(line);
+		}
+		fftwf_execute(planForward);
+		get(full, X);
+	}
+
+	@Override
+	public void inverseInternal(ComplexSignal X, RealSignal x) {
+		plan(true);
+		put(X, full);
+		fftwf_execute(planBackward);
+		int nxy = nx * ny;
+		float[] line = new float[2 * nxy];
+		float scale = (float) (1.0 / ((double) nx * ny * nz));
+		FloatBuffer buffer = full.asBuffer();
+		for (int k = 0; k < nz; k++) {
+			buffer.get(line);
+			for (int i = 0; i < nxy; i++)
+				x.data[k][i] = line[2 * i] * scale;
+		}
+	}
+
+	@Override
+	public long getWorkspaceBytes() {
+		long bytes = 0L;
+		if (real != null)
+			bytes += 4L * nx * ny * nz + 8L * nxh * ny * nz;
+		if (full != null)
+			bytes += 8L * nx * ny * nz;
+		return bytes;
+	}
+
+	@Override
+	public String getName() {
+		return "FFTW3";
+	}
+
+	@Override
+	public boolean isMultithreadable() {
+		return true;
+	}
+
+	/**
+	 * Returns the volume of a real signal mapped in direct memory if the plan
+	 * can read it in place, null otherwise.
+	 */
+	private FloatPointer getDirect(RealSignal x) {
+		if (!(x.getStorage() instanceof DirectStorage))
+			return null;
+		FloatBuffer volume = ((DirectStorage) x.getStorage()).getContiguous();
+		if (volume == null)
+			return null;
+		FloatPointer pointer = new FloatPointer(volume);
+		return fftwf_alignment_of(pointer) == fftwf_alignment_of(real) ? pointer : null;
+	}
+
+	private void put(ComplexSignal X, FloatPointer pointer) {
+		int length = 2 * X.nx * X.ny;
+		FloatBuffer buffer = pointer.asBuffer();
+		for (int k = 0; k < nz; k++)
+			buffer.put(X.data[k], 0, length);
+	}
+
+	private void get(FloatPointer pointer, ComplexSignal X) {
+		int length = 2 * X.nx * X.ny;
+		FloatBuffer buffer = pointer.asBuffer();
+		for (int k = 0; k < nz; k++)
+			buffer.get(X.data[k], 0, length);
+	}
+
+	/**
+	 * Allocates the buffers and creates the plans of the half or of the full
+	 * spectrum, if they do not exist or if the number of threads changed.
+	 */
+	private void plan(boolean fullSpectrum) {
+		int n = Math.max(1, Math.min(threads, SlabPool.getParallelism()));
+		if (n != planned)
+			dispose();
+		if (fullSpectrum ? planForward != null : planR2C != null)
+			return;
+		synchronized (planner) {
+			fftwf_plan_with_nthreads(n);
+			if (fullSpectrum) {
+				full = allocate(fftwf_alloc_complex((long) nx * ny * nz), 2L * nx * ny * nz);
+				planForward = fftwf_plan_dft_3d(nz, ny, nx, full, full, FFTW_FORWARD, (int) FFTW_ESTIMATE);
+				planBackward = fftwf_plan_dft_3d(nz, ny, nx, full, full, FFTW_BACKWARD, (int) FFTW_ESTIMATE);
+			}
+			else {
+				real = allocate(fftwf_alloc_real((long) nx * ny * nz), (long) nx * ny * nz);
+				complex = allocate(fftwf_alloc_complex((long) nxh * ny * nz), 2L * nxh * ny * nz);
+				planR2C = fftwf_plan_dft_r2c_3d(nz, ny, nx, real, complex, (int) FFTW_ESTIMATE);
+				planC2R = fftwf_plan_dft_c2r_3d(nz, ny, nx, complex, real, (int) FFTW_ESTIMATE);
+			}
+		}
+		planned = n;
+	}
+
+	private static FloatPointer allocate(FloatPointer pointer, long floats) {
+		if (pointer == null || pointer.isNull())
+			throw new OutOfMemoryError("FFTW buffer of " + floats + " floats");
+		pointer.capacity(floats);
+		return pointer;
+	}
+
+	/**
+	 * Destroys the plans and frees the buffers, they are created again by the
+	 * next transform.
+	 */
+	private void dispose() {
+		synchronized (planner) {
+			if (planR2C != null)
+				fftwf_destroy_plan(planR2C);
+			if (planC2R != null)
+				fftwf_destroy_plan(planC2R);
+			if (planForward != null)
+				fftwf_destroy_plan(planForward);
+			if (planBackward != null)
+				fftwf_destroy_plan(planBackward);
+		}
+		if (real != null)
+			fftwf_free(real);
+		if (complex != null)
+			fftwf_free(complex);
+		if (full != null)
+			fftwf_free(full);
+		planR2C = planC2R = planForward = planBackward = null;
+		real = complex = full = null;
+		planned = 0;
+	}
+
+	@Override
+	protected void finalize() throws Throwable {
+		dispose();
+		super.finalize();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft.fftw;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.fftw3;
+
+import fft.AbstractFFT;
+import fft.AbstractFFTLibrary;
+
+public class FFTWDirectLibrary extends AbstractFFTLibrary {
+
+	public FFTWDirectLibrary() {
+		try {
+			Loader.load(fftw3.class);
+			fftw3.fftwf_init_threads();
+			ffts.add(new FFTWDirect());
+			installed = true;
+		}
+		catch (LinkageError ex) {
+			installed = false;
+		}
+	}
+
+	@Override
+	public void setThreads(int threads) {
+		FFTWDirect.setThreads(threads);
+	}
+
+	@Override
+	public String getLocation() {
+		return FFTWDirectLibrary.class.getCanonicalName();
+	}
+
+	@Override
+	public String getCredit() {
+		return "http://www.fftw.org (FFTW Version 3, JavaCPP presets)";
+	}
+
+	@Override
+	public String getLibraryName() {
+		return "FFTW3";
+	}
+
+	@Override
+	public String getLicence() {
+		return "<h1>FFTW Version 3, " + "<p>http://www.fftw.org" + "<p>FFTW is free software; you can redistribute it and/or modify it " + "under the terms of the GNU General Public License as published by "
+		        + "the Free Software Foundation; either version 2 of the License, or " + "(at your option) any later version.";
+	}
+
+	@Override
+	public AbstractFFT getDefaultFFT() {
+		return new FFTWDirect();
+	}
+}
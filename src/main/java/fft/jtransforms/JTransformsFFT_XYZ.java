@@ -44,6 +44,8 @@ public class JTransformsFFT_XYZ extends AbstractFFT {
 
 	private FloatFFT_3D fftXYZ = null;
 	private FloatFFT_2D fftXY = null;
+	private JTransformsRealToComplex r2c = null;
+	private float[] buffer = null;
 
 	public JTransformsFFT_XYZ() {
 		super(Separability.XYZ);
@@ -52,6 +54,10 @@ public class JTransformsFFT_XYZ extends AbstractFFT {
 	@Override
 	public void init(Monitors monitors, int nx, int ny, int nz) {					
 		super.init(monitors, nx, ny, nz);
+		r2c = new JTransformsRealToComplex(nx, ny, nz);
+		buffer = null;
+		fftXYZ = null;
+		fftXY = null;
 		try {
 			if (nz > 1)
 				fftXYZ = new FloatFFT_3D(nz, ny, nx);
@@ -65,22 +71,44 @@ public class JTransformsFFT_XYZ extends AbstractFFT {
 
 	@Override
 	public void transformInternal(RealSignal x, ComplexSignal X) {
-		float[] interleave = x.getInterleaveXYZAtReal();
-		if (fftXYZ != null)
-			fftXYZ.complexForward(interleave);
-		if (fftXY != null)
-			fftXY.complexForward(interleave);
-		X.setInterleaveXYZ(interleave);
+		if (fftXYZ != null) {
+			buffer = x.getInterleaveXYZAtReal(buffer);
+			fftXYZ.complexForward(buffer);
+			X.setInterleaveXYZ(buffer);
+		}
+		if (fftXY != null) {
+			// The single slice of X is transformed in place, a new slice is
+			// returned if X does not have the layout of x
+			float[] slice = x.getInterleaveXYAtReal(0, X.data[0]);
+			fftXY.complexForward(slice);
+			if (slice != X.data[0])
+				X.setInterleaveXY(0, slice);
+		}
 	}
 	
 	@Override
 	public void inverseInternal(ComplexSignal X, RealSignal x) {
-		float[] interleave = X.getInterleaveXYZ();
+		buffer = X.getInterleaveXYZ(buffer);
 		if (fftXYZ != null)
-			fftXYZ.complexInverse(interleave, true);
+			fftXYZ.complexInverse(buffer, true);
 		if (fftXY != null)
-			fftXY.complexInverse(interleave, true);
-		x.setInterleaveXYZAtReal(interleave);
+			fftXY.complexInverse(buffer, true);
+		x.setInterleaveXYZAtReal(buffer);
+	}
+
+	@Override
+	public void transformHalfInternal(RealSignal x, ComplexSignal X) {
+		r2c.transform(x, X);
+	}
+	
+	@Override
+	public void inverseHalfInternal(ComplexSignal X, RealSignal x) {
+		r2c.inverse(X, x);
+	}
+
+	@Override
+	public long getWorkspaceBytes() {
+		return (buffer == null ? 0L : 4L * buffer.length) + (r2c == null ? 0L : r2c.getWorkspaceBytes());
 	}
 
 	@Override
@@ -44,6 +44,9 @@ public class JTransformsFFT_XY_Z extends AbstractFFT {
 
 	private FloatFFT_2D	fftXY	= null;
 	private FloatFFT_1D	fftZ	= null;
+	private JTransformsRealToComplex r2c = null;
+	private float[][] work = null;
+	private float[] line = null;
 
 	public JTransformsFFT_XY_Z() {
 		super(Separability.XY_Z);
@@ -52,6 +55,10 @@ public class JTransformsFFT_XY_Z extends AbstractFFT {
 	@Override
 	public void init(Monitors monitors, int nx, int ny, int nz) {					
 		super.init(monitors, nx, ny, nz);
+		r2c = new JTransformsRealToComplex(nx, ny, nz);
+		work = null;
+		line = null;
+		fftZ = null;
 		try {
 			fftXY = new FloatFFT_2D(ny, nx);
 			if (nz > 1)
@@ -63,37 +70,69 @@ public class JTransformsFFT_XY_Z extends AbstractFFT {
 
 	@Override
 	public void transformInternal(RealSignal x, ComplexSignal X) {
+		// The slices of X are transformed in place
 		for (int k = 0; k < nz; k++) {
-			float interleave[] = x.getInterleaveXYAtReal(k);
-			fftXY.complexForward(interleave);
-			X.setInterleaveXY(k, interleave);
+			// A new slice is returned if X does not have the layout of x
+			float[] slice = x.getInterleaveXYAtReal(k, X.data[k]);
+			fftXY.complexForward(slice);
+			if (slice != X.data[k])
+				X.setInterleaveXY(k, slice);
 		}
-		if (fftZ == null)
-			return;
-		for (int i = 0; i < nx; i++)
-			for (int j = 0; j < ny; j++) {
-				float interleave[] = X.getInterleaveZ(i, j);
-				fftZ.complexForward(interleave);
-				X.setInterleaveZ(i, j, interleave);
-			}
+		if (fftZ != null)
+			transformZ(X.data, false);
 	}
 
 	@Override
 	public void inverseInternal(ComplexSignal X, RealSignal x) {
+		if (work == null)
+			work = new float[nz][2 * nx * ny];
+		for (int k = 0; k < nz; k++)
+			System.arraycopy(X.data[k], 0, work[k], 0, 2 * nx * ny);
+		if (fftZ != null)
+			transformZ(work, true);
 		for (int k = 0; k < nz; k++) {
-			float interleave[] = X.getInterleaveXY(k);
-			fftXY.complexInverse(interleave, true);
-			X.setInterleaveXY(k, interleave);
+			fftXY.complexInverse(work[k], true);
+			x.setInterleaveXYAtReal(k, work[k]);
 		}
-		if (fftZ != null) {
-			for (int i = 0; i < nx; i++)
-				for (int j = 0; j < ny; j++) {
-					float interleave[] = X.getInterleaveZ(i, j);
-					fftZ.complexInverse(interleave, true);
-					X.setInterleaveZ(i, j, interleave);
-				}
+	}
+	
+	private void transformZ(float[][] data, boolean inverse) {
+		if (line == null)
+			line = new float[2 * nz];
+		for (int p = 0; p < 2 * nx * ny; p += 2) {
+			for (int k = 0; k < nz; k++) {
+				line[2 * k] = data[k][p];
+				line[2 * k + 1] = data[k][p + 1];
+			}
+			if (inverse)
+				fftZ.complexInverse(line, true);
+			else
+				fftZ.complexForward(line);
+			for (int k = 0; k < nz; k++) {
+				data[k][p] = line[2 * k];
+				data[k][p + 1] = line[2 * k + 1];
+			}
 		}
-		x = X.getRealSignal();
+	}
+
+	@Override
+	public void transformHalfInternal(RealSignal x, ComplexSignal X) {
+		r2c.transform(x, X);
+	}
+	
+	@Override
+	public void inverseHalfInternal(ComplexSignal X, RealSignal x) {
+		r2c.inverse(X, x);
+	}
+
+	@Override
+	public long getWorkspaceBytes() {
+		long bytes = r2c == null ? 0L : r2c.getWorkspaceBytes();
+		if (work != null)
+			bytes += 4L * work.length * work[0].length;
+		if (line != null)
+			bytes += 4L * line.length;
+		return bytes;
 	}
 
 	@Override
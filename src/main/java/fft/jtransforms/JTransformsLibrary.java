@@ -31,6 +31,8 @@
 
 package fft.jtransforms;
 
+import pl.edu.icm.jlargearrays.ConcurrencyUtils;
+
 import fft.AbstractFFT;
 import fft.AbstractFFTLibrary;
 
@@ -55,6 +57,11 @@ public class JTransformsLibrary extends AbstractFFTLibrary {
 		}
 	}
 	
+	@Override
+	public void setThreads(int threads) {
+		ConcurrencyUtils.setNumberOfThreads(Math.max(1, threads));
+	}
+
 	@Override
 	public String getLocation() {
 		return JTransformsLibrary.class.getCanonicalName();
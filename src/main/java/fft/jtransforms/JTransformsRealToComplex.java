@@ -0,0 +1,246 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft.jtransforms;
+
+import org.jtransforms.fft.FloatFFT_1D;
+
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SlabPool;
+
+/**
+ * Real-to-complex and complex-to-real transforms with JTransforms. The 
+ * output of the forward transform is the half spectrum (nx/2+1 bins along X) 
+ * of a real signal. The X lines are transformed by the real 1D FFT, then 
+ * the Y and Z lines of the half spectrum by the complex 1D FFT. The lines 
+ * are distributed on the threads of the SlabPool; the Z lines are gathered 
+ * by groups of neighbors to read the slices contiguously.
+ */
+public class JTransformsRealToComplex {
+
+	/** Number of Z lines gathered together */
+	private static final int	GROUP	= 16;
+
+	private int nx;
+	private int ny;
+	private int nz;
+	private int nxh;
+	
+	private FloatFFT_1D fftX;
+	private FloatFFT_1D fftY;
+	private FloatFFT_1D fftZ;
+	
+	/** Workspace of the inverse transform, the input spectrum is kept unchanged */
+	private float[][] work;
+	
+	public JTransformsRealToComplex(int nx, int ny, int nz) {
+		this.nx = nx;
+		this.ny = ny;
+		this.nz = nz;
+		this.nxh = nx / 2 + 1;
+		fftX = new FloatFFT_1D(nx);
+		fftY = new FloatFFT_1D(ny);
+		fftZ = new FloatFFT_1D(nz);
+	}
+
+	/** Bytes of the workspace of the inverse transform, once allocated. */
+	public long getWorkspaceBytes() {
+		return work == null ? 0L : 8L * nxh * ny * nz;
+	}
+	
+	public void transform(final RealSignal x, final ComplexSignal X) {
+		run(nz * ny, nx, new Lines() {
+			@Override
+			public void apply(int first, int last) {
+				float[] line = new float[nx];
+				for (int r = first; r < last; r++) {
+					int k = r / ny;
+					int j = r % ny;
+					System.arraycopy(x.data[k], j * nx, line, 0, nx);
+					fftX.realForward(line);
+					unpack(line, X.data[k], 2 * j * nxh);
+				}
+			}
+		});
+		transformY(X.data, false);
+		transformZ(X.data, X.data, false);
+	}
+	
+	public void inverse(ComplexSignal X, final RealSignal x) {
+		if (work == null)
+			work = new float[nz][2 * nxh * ny];
+		// The first pass reads X and writes the workspace, without a copy
+		if (nz > 1)
+			transformZ(X.data, work, true);
+		else
+			System.arraycopy(X.data[0], 0, work[0], 0, 2 * nxh * ny);
+		transformY(work, true);
+		run(nz * ny, nx, new Lines() {
+			@Override
+			public void apply(int first, int last) {
+				float[] line = new float[nx];
+				for (int r = first; r < last; r++) {
+					int k = r / ny;
+					int j = r % ny;
+					pack(work[k], 2 * j * nxh, line);
+					fftX.realInverse(line, true);
+					System.arraycopy(line, 0, x.data[k], j * nx, nx);
+				}
+			}
+		});
+	}
+	
+	private void transformY(final float[][] data, final boolean inverse) {
+		if (ny <= 1)
+			return;
+		run(nz * nxh, 2 * ny, new Lines() {
+			@Override
+			public void apply(int first, int last) {
+				float[] line = new float[2 * ny];
+				for (int c = first; c < last; c++) {
+					float[] slice = data[c / nxh];
+					int i = c % nxh;
+					for (int j = 0; j < ny; j++) {
+						line[2 * j] = slice[2 * (i + j * nxh)];
+						line[2 * j + 1] = slice[2 * (i + j * nxh) + 1];
+					}
+					if (inverse)
+						fftY.complexInverse(line, true);
+					else
+						fftY.complexForward(line);
+					for (int j = 0; j < ny; j++) {
+						slice[2 * (i + j * nxh)] = line[2 * j];
+						slice[2 * (i + j * nxh) + 1] = line[2 * j + 1];
+					}
+				}
+			}
+		});
+	}
+
+	/** Transforms the Z lines of input into output, which can be the same arrays. */
+	private void transformZ(final float[][] input, final float[][] output, final boolean inverse) {
+		if (nz <= 1)
+			return;
+		run(nxh * ny, 2 * nz, new Lines() {
+			@Override
+			public void apply(int first, int last) {
+				float[][] lines = new float[GROUP][2 * nz];
+				for (int p = first; p < last; p += GROUP) {
+					int n = Math.min(GROUP, last - p);
+					for (int k = 0; k < nz; k++) {
+						float[] slice = input[k];
+						for (int q = 0; q < n; q++) {
+							lines[q][2 * k] = slice[2 * (p + q)];
+							lines[q][2 * k + 1] = slice[2 * (p + q) + 1];
+						}
+					}
+					for (int q = 0; q < n; q++) {
+						if (inverse)
+							fftZ.complexInverse(lines[q], true);
+						else
+							fftZ.complexForward(lines[q]);
+					}
+					for (int k = 0; k < nz; k++) {
+						float[] slice = output[k];
+						for (int q = 0; q < n; q++) {
+							slice[2 * (p + q)] = lines[q][2 * k];
+							slice[2 * (p + q) + 1] = lines[q][2 * k + 1];
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/** Lines [first, last[ of a pass */
+	private static abstract class Lines {
+		public abstract void apply(int first, int last);
+	}
+
+	/** 
+	 * Distributes n lines of cost floats on the SlabPool, the ranges of the 
+	 * kernel are aligned on the lines.
+	 */
+	private static void run(final int n, int cost, final Lines lines) {
+		final int unit = (long) n * cost <= Integer.MAX_VALUE ? cost : 1;
+		SlabPool.run(1, n * unit, unit, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				lines.apply(begin / unit, (end + unit - 1) / unit);
+			}
+		});
+	}
+	
+	/** 
+	 * Converts the packed output of realForward to nx/2+1 interleaved 
+	 * complex values.
+	 */
+	private void unpack(float[] a, float[] out, int offset) {
+		out[offset] = a[0];
+		out[offset + 1] = 0f;
+		if (nx == 1)
+			return;
+		for (int i = 1; i < nx / 2; i++) {
+			out[offset + 2 * i] = a[2 * i];
+			out[offset + 2 * i + 1] = a[2 * i + 1];
+		}
+		if (nx % 2 == 0) {
+			out[offset + nx] = a[1];
+			out[offset + nx + 1] = 0f;
+		}
+		else {
+			out[offset + nx - 1] = a[nx - 1];
+			out[offset + nx] = a[1];
+		}
+	}
+
+	/** 
+	 * Converts nx/2+1 interleaved complex values to the packed input of 
+	 * realInverse.
+	 */
+	private void pack(float[] in, int offset, float[] a) {
+		a[0] = in[offset];
+		if (nx == 1)
+			return;
+		for (int i = 1; i < nx / 2; i++) {
+			a[2 * i] = in[offset + 2 * i];
+			a[2 * i + 1] = in[offset + 2 * i + 1];
+		}
+		if (nx % 2 == 0) {
+			a[1] = in[offset + nx];
+		}
+		else {
+			a[nx - 1] = in[offset + nx - 1];
+			a[1] = in[offset + nx];
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import bilib.tools.NumFormat;
+
+/**
+ * This class accounts the signals allocated by a job. A scope is bound to a
+ * thread and to the threads it creates by SignalCollector.openScope(); the
+ * signals allocated in the scope are credited to it when they are freed,
+ * whatever the thread.
+ */
+public class AllocationScope {
+
+	private String			name;
+	private AtomicLong		bytes		= new AtomicLong();
+	private AtomicLong		bytesPeak	= new AtomicLong();
+	private AtomicInteger	count		= new AtomicInteger();
+	private AtomicInteger	countPeak	= new AtomicInteger();
+	private AtomicInteger	allocations	= new AtomicInteger();
+
+	public AllocationScope(String name) {
+		this.name = name;
+	}
+
+	void add(long b, int sign) {
+		SignalCollector.max(bytesPeak, bytes.addAndGet(b));
+		SignalCollector.max(countPeak, count.addAndGet(sign));
+		if (sign > 0)
+			allocations.incrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public long getBytesPeak() {
+		return bytesPeak.get();
+	}
+
+	public int getCount() {
+		return count.get();
+	}
+
+	public int getCountPeak() {
+		return countPeak.get();
+	}
+
+	public int getAllocations() {
+		return allocations.get();
+	}
+
+	@Override
+	public String toString() {
+		return name + " " + getCount() + " signals " + NumFormat.bytes(getBytes()) + " (peak " + NumFormat.bytes(getBytesPeak()) + ")";
+	}
+}
@@ -34,26 +34,71 @@ package signal;
 public class Assessment {
 
 	public static double snr(RealSignal test, RealSignal ref) {
+		if (sameSize(test, ref))
+			return Statistics.compute(test, ref, null).getSNR();
 		double measures[] = measure(test, ref);
 		return measures[0];
 	}
 
 	public static double psnr(RealSignal test, RealSignal ref) {
+		if (sameSize(test, ref))
+			return Statistics.compute(test, ref, null).getPSNR();
 		double measures[] = measure(test, ref);
 		return measures[1];
 	}
 
 	public static double rmse(RealSignal test, RealSignal ref) {
+		if (sameSize(test, ref))
+			return Statistics.compute(test, ref, null).getRMSE();
 		double measures[] = measure(test, ref);
 		return measures[3];
 	}
 	
 	public static double relativeResidu(RealSignal test, RealSignal ref) {
+		if (sameSize(test, ref))
+			return Statistics.compute(test, null, ref).getResidu();
 		double measures[] = measure(test, ref);
 		return measures[3] / Math.max(measures[2], Operations.epsilon);
 	}
 
+	private static boolean sameSize(RealSignal a, RealSignal b) {
+		return a.nx == b.nx && a.ny == b.ny && a.nz == b.nz;
+	}
+
+	/**
+	 * Relative residu computed on the spectra. By the Parseval theorem, it is
+	 * equal to the relative residu of the inverse transforms, without FFT. The
+	 * bins of a half spectrum which stand for two conjugate bins count twice.
+	 */
+	public static double relativeResidu(ComplexSignal test, ComplexSignal ref) {
+		int nx = ref.nx;
+		int ny = ref.ny;
+		int nz = ref.nz;
+		boolean even = ref.nxSpatial % 2 == 0;
+		double sref = 0.0;
+		double rmse = 0.0;
+		for (int k = 0; k < nz; k++)
+		for (int j = 0; j < ny; j++)
+		for (int i = 0; i < nx; i++) {
+			int index = 2 * (i + nx * j);
+			double w = 1.0;
+			if (ref.halfSpectrum && i > 0 && !(even && i == nx - 1))
+				w = 2.0;
+			double ar = ref.data[k][index];
+			double ai = ref.data[k][index + 1];
+			double dr = ar - test.data[k][index];
+			double di = ai - test.data[k][index + 1];
+			sref += w * (ar * ar + ai * ai);
+			rmse += w * (dr * dr + di * di);
+		}
+		double n = (double) ref.nxSpatial * ny * nz;
+		sref = Math.sqrt(sref) / n;
+		rmse = Math.sqrt(rmse) / n;
+		return rmse / Math.max(sref, Operations.epsilon);
+	}
+
 	/**
+	 * Measures on the common part of two signals of different sizes.
 	 * 
 	 * @param test	RealSignal
 	 * @param ref	RealSignal
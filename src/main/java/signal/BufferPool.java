@@ -0,0 +1,160 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the slices of the freed signals to reuse them in the new
+ * signals of the same size. The slices are grouped by length; when the
+ * capacity is exceeded, the slices of the lengths least recently used are
+ * dropped first and left to the garbage collector.
+ * 
+ * The small slices are not pooled.
+ */
+public class BufferPool {
+
+	/** Minimum number of floats of a pooled slice */
+	private static int								minimumLength	= 1024;
+
+	private LinkedHashMap<Integer, ArrayDeque<float[]>>	buffers		= new LinkedHashMap<Integer, ArrayDeque<float[]>>(16, 0.75f, true);
+	private long									capacity;
+	private long									bytes			= 0;
+	private long									hits			= 0;
+	private long									misses			= 0;
+
+	/**
+	 * @param capacity
+	 *            maximum number of bytes kept in the pool, 0 to disable it
+	 */
+	public BufferPool(long capacity) {
+		this.capacity = Math.max(0, capacity);
+	}
+
+	/**
+	 * Returns a slice of length floats, from the pool if possible.
+	 * 
+	 * @param zero
+	 *            if true, a reused slice is filled with zeros; a new slice is
+	 *            always zero
+	 */
+	public float[] acquire(int length, boolean zero) {
+		float[] array = poll(length);
+		if (array == null)
+			return new float[length];
+		if (zero)
+			Arrays.fill(array, 0f);
+		return array;
+	}
+
+	private synchronized float[] poll(int length) {
+		ArrayDeque<float[]> queue = length < minimumLength ? null : buffers.get(length);
+		if (queue == null) {
+			misses++;
+			return null;
+		}
+		float[] array = queue.poll();
+		if (queue.isEmpty())
+			buffers.remove(length);
+		bytes -= 4L * length;
+		hits++;
+		return array;
+	}
+
+	/**
+	 * Gives a slice back to the pool. The slice should not be used anymore by
+	 * the caller.
+	 */
+	public synchronized void recycle(float[] array) {
+		if (array == null || array.length < minimumLength)
+			return;
+		long size = 4L * array.length;
+		if (size > capacity)
+			return;
+		trim(capacity - size);
+		ArrayDeque<float[]> queue = buffers.get(array.length);
+		if (queue == null) {
+			queue = new ArrayDeque<float[]>();
+			buffers.put(array.length, queue);
+		}
+		queue.add(array);
+		bytes += size;
+	}
+
+	/**
+	 * Drops the slices of the lengths least recently used until the pool
+	 * holds at most bytes.
+	 */
+	public synchronized void trim(long target) {
+		Iterator<Map.Entry<Integer, ArrayDeque<float[]>>> iterator = buffers.entrySet().iterator();
+		while (bytes > target && iterator.hasNext()) {
+			Map.Entry<Integer, ArrayDeque<float[]>> entry = iterator.next();
+			ArrayDeque<float[]> queue = entry.getValue();
+			while (bytes > target && !queue.isEmpty()) {
+				queue.poll();
+				bytes -= 4L * entry.getKey();
+			}
+			if (queue.isEmpty())
+				iterator.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		buffers.clear();
+		bytes = 0;
+	}
+
+	public synchronized void setCapacity(long capacity) {
+		this.capacity = Math.max(0, capacity);
+		trim(this.capacity);
+	}
+
+	public synchronized long getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
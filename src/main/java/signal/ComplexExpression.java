@@ -0,0 +1,203 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.util.ArrayList;
+
+/**
+ * Lazy chain of pointwise operations on a ComplexSignal. The operations are
+ * recorded and evaluated in one pass over the memory, block by block, on 
+ * the slabs of the SlabPool.
+ * 
+ * <pre>
+ * X.lazy().times(A).plus(G).evaluate();
+ * </pre>
+ */
+public class ComplexExpression {
+
+	private static final int	TIMES			= 0;
+	private static final int	TIMES_CONJUGATE	= 1;
+	private static final int	PLUS			= 2;
+	private static final int	MINUS			= 3;
+	private static final int	DIVIDE			= 4;
+	private static final int	TIMES_SCALAR	= 5;
+	private static final int	PLUS_SCALAR		= 6;
+
+	/** Number of floats processed by all the operations before the next block, even */
+	private static final int	BLOCK			= 4096;
+
+	private ComplexSignal				first;
+	private ArrayList<Integer>			codes		= new ArrayList<Integer>();
+	private ArrayList<ComplexSignal>	operands	= new ArrayList<ComplexSignal>();
+	private ArrayList<float[]>			scalars		= new ArrayList<float[]>();
+
+	public ComplexExpression(ComplexSignal first) {
+		this.first = first;
+	}
+
+	public ComplexExpression times(ComplexSignal factor) {
+		return add(TIMES, factor, 0f, 0f);
+	}
+
+	/** Multiplication by the conjugate of H */
+	public ComplexExpression timesConjugate(ComplexSignal H) {
+		return add(TIMES_CONJUGATE, H, 0f, 0f);
+	}
+
+	public ComplexExpression plus(ComplexSignal term) {
+		return add(PLUS, term, 0f, 0f);
+	}
+
+	public ComplexExpression minus(ComplexSignal term) {
+		return add(MINUS, term, 0f, 0f);
+	}
+
+	/** Division stabilized by Operations.epsilon, as ComplexSignal.divide */
+	public ComplexExpression divide(ComplexSignal denominator) {
+		return add(DIVIDE, denominator, 0f, 0f);
+	}
+
+	public ComplexExpression times(float factor) {
+		return add(TIMES_SCALAR, null, factor, 0f);
+	}
+
+	public ComplexExpression plus(float real, float imag) {
+		return add(PLUS_SCALAR, null, real, imag);
+	}
+
+	private ComplexExpression add(int code, ComplexSignal operand, float real, float imag) {
+		codes.add(code);
+		operands.add(operand);
+		scalars.add(new float[] { real, imag });
+		return this;
+	}
+
+	/**
+	 * Evaluates the expression in place.
+	 * 
+	 * @return the first signal of the expression
+	 */
+	public ComplexSignal evaluate() {
+		return evaluate(first);
+	}
+
+	/**
+	 * Evaluates the expression into the output, the first signal is unchanged
+	 * if it is not the output.
+	 * 
+	 * @return the output
+	 */
+	public ComplexSignal evaluate(final ComplexSignal output) {
+		final int n = codes.size();
+		final int code[] = new int[n];
+		final ComplexSignal operand[] = new ComplexSignal[n];
+		final float scalar[][] = new float[n][];
+		for (int o = 0; o < n; o++) {
+			code[o] = codes.get(o);
+			operand[o] = operands.get(o);
+			scalar[o] = scalars.get(o);
+		}
+		final float epsilon2 = (float) (Operations.epsilon * Operations.epsilon);
+		SlabPool.run(first, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] src = first.data[k];
+				float[] d = output.data[k];
+				for (int b = begin; b < end; b += BLOCK) {
+					int e = Math.min(end, b + BLOCK);
+					if (d != src)
+						System.arraycopy(src, b, d, b, e - b);
+					for (int o = 0; o < n; o++) {
+						float[] f = (operand[o] == null ? null : operand[o].data[k]);
+						float sr = scalar[o][0];
+						float si = scalar[o][1];
+						switch (code[o]) {
+						case TIMES:
+							for (int i = b; i < e; i += 2) {
+								float a1 = d[i];
+								float b1 = d[i + 1];
+								float a2 = f[i];
+								float b2 = f[i + 1];
+								d[i] = a1 * a2 - b1 * b2;
+								d[i + 1] = a1 * b2 + a2 * b1;
+							}
+							break;
+						case TIMES_CONJUGATE:
+							for (int i = b; i < e; i += 2) {
+								float a1 = d[i];
+								float b1 = d[i + 1];
+								float a2 = f[i];
+								float b2 = -f[i + 1];
+								d[i] = a1 * a2 - b1 * b2;
+								d[i + 1] = a1 * b2 + a2 * b1;
+							}
+							break;
+						case PLUS:
+							for (int i = b; i < e; i++)
+								d[i] += f[i];
+							break;
+						case MINUS:
+							for (int i = b; i < e; i++)
+								d[i] -= f[i];
+							break;
+						case DIVIDE:
+							for (int i = b; i < e; i += 2) {
+								float a1 = d[i];
+								float b1 = d[i + 1];
+								float a2 = f[i];
+								float b2 = f[i + 1];
+								float mag = Math.max(a2 * a2 + b2 * b2, epsilon2);
+								d[i] = (a1 * a2 + b1 * b2) / mag;
+								d[i + 1] = (b1 * a2 - a1 * b2) / mag;
+							}
+							break;
+						case TIMES_SCALAR:
+							for (int i = b; i < e; i++)
+								d[i] *= sr;
+							break;
+						case PLUS_SCALAR:
+							for (int i = b; i < e; i += 2) {
+								d[i] += sr;
+								d[i + 1] += si;
+							}
+							break;
+						}
+					}
+				}
+			}
+		});
+		codes.clear();
+		operands.clear();
+		scalars.clear();
+		return output;
+	}
+}
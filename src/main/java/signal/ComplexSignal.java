@@ -33,17 +33,48 @@ package signal;
 
 public class ComplexSignal extends Signal implements SignalListener {
 
+	/** 
+	 * Size along X of the real signal in the spatial domain. It is equal to nx 
+	 * for a full spectrum, nx is then nxSpatial/2+1 for a half spectrum.
+	 */
+	final public int		nxSpatial;
+	
+	/** 
+	 * True if only the non-redundant half of the Hermitian spectrum 
+	 * of a real signal is stored (nxSpatial/2+1 bins along X).
+	 */
+	final public boolean	halfSpectrum;
+
 	public ComplexSignal(String name, int nx, int ny, int nz) {
-		super(name, nx, ny, nz);
-		int step = Math.max(1, nz/SignalCollector.NOTIFICATION_RATE);
+		this(name, nx, ny, nz, false);
+	}
+
+	/**
+	 * Allocates a complex signal to store the spectrum of a real signal of
+	 * size [nx, ny, nz].
+	 * 
+	 * @param name
+	 * @param nx size along X of the real signal
+	 * @param ny
+	 * @param nz
+	 * @param halfSpectrum if true, only nx/2+1 bins are stored along X
+	 */
+	public ComplexSignal(String name, int nx, int ny, int nz, boolean halfSpectrum) {
+		this(name, nx, ny, nz, halfSpectrum, true);
+	}
+
+	/**
+	 * @param zero
+	 *            if false, the slices reused from the pool are not cleared, 
+	 *            the caller overwrites all the samples
+	 */
+	ComplexSignal(String name, int nx, int ny, int nz, boolean halfSpectrum, boolean zero) {
+		super(name, halfSpectrum ? nx / 2 + 1 : nx, ny, nz);
+		this.nxSpatial = nx;
+		this.halfSpectrum = halfSpectrum;
 		this.data = new float[nz][];
-		notify(name, 0);
-		for(int k=0; k<nz; k++) {
-			data[k] = new float[nx * ny * 2];
-			if (k % step == 0)
-				notify(name, k*100.0/nz);
-		}
-		notify(name, 100);
+		for(int k=0; k<nz; k++)
+			data[k] = SignalCollector.acquire(this.nx * ny * 2, zero);
 		SignalCollector.alloc(this);//name, nx, ny, ny, true);
 	}
 
@@ -55,7 +86,7 @@ public class ComplexSignal extends Signal implements SignalListener {
 	public void set(RealSignal real) {
 		for(int k=0; k<nz; k++) {
 			float[] s = data[k];
-			float[] r = real.getXY(k);
+			float[] r = real.data[k];
 			for(int i=0; i<nx*ny; i++) {
 				s[2*i] = r[i];
 			}
@@ -65,8 +96,8 @@ public class ComplexSignal extends Signal implements SignalListener {
 	public void set(RealSignal real, RealSignal imag) {
 		for(int k=0; k<nz; k++) {
 			float[] s = data[k];
-			float[] re = real.getXY(k);
-			float[] im = imag.getXY(k);
+			float[] re = real.data[k];
+			float[] im = imag.data[k];
 			for(int i=0; i<nx*ny; i++) {
 				s[2*i] = re[i];
 				s[2*i+1] = im[i];
@@ -74,27 +105,33 @@ public class ComplexSignal extends Signal implements SignalListener {
 		}
 	}
 
-	public void divide(ComplexSignal denominator) {
-		float a1, a2, b1, b2, mag;
-		float epsilon2 = (float)(Operations.epsilon*Operations.epsilon);
-		int nxy = nx * ny * 2;
-
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = data[k][i];
-			b1 = data[k][i+1];
-			a2 = denominator.data[k][i];
-			b2 = denominator.data[k][i+1];
-			mag = a2*a2 + b2*b2;
-			if (mag >= epsilon2) {
-				data[k][i] = (a1*a2 + b1*b2) / mag;
-				data[k][i+1] = (b1*a2 - a1*b2) / mag;
-			}
-			else {
-				data[k][i] = (a1*a2 + b1*b2) / epsilon2;
-				data[k][i+1] = (b1*a2 - a1*b2) / epsilon2;
+	public void divide(final ComplexSignal denominator) {
+		final float epsilon2 = (float)(Operations.epsilon*Operations.epsilon);
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] q = denominator.data[k];
+				for (int i = begin; i < end; i += 2) {
+					float a1 = d[i];
+					float b1 = d[i+1];
+					float a2 = q[i];
+					float b2 = q[i+1];
+					float mag = Math.max(a2*a2 + b2*b2, epsilon2);
+					d[i] = (a1*a2 + b1*b2) / mag;
+					d[i+1] = (b1*a2 - a1*b2) / mag;
+				}
 			}
-		}
+		});
+	}
+
+	/**
+	 * Starts a lazy chain of pointwise operations evaluated in a single pass.
+	 * 
+	 * @return an expression on this signal
+	 */
+	public ComplexExpression lazy() {
+		return new ComplexExpression(this);
 	}
 
 	public double[][][] getReal3DArrayAsDouble() {
@@ -132,77 +169,103 @@ public class ComplexSignal extends Signal implements SignalListener {
 		}
 	}
 	
-	public ComplexSignal times(float factor) {
-		int nxy = nx * ny * 2;
-		for (int k = 0; k < nz; k++)
-		for (int i = 0; i < nxy; i++)
-			data[k][i] *= factor;
+	public ComplexSignal times(final float factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i++)
+					d[i] *= factor;
+			}
+		});
 		return this;
 	}
 	
-	public ComplexSignal plus(float real, float imag) {
-		int nxy = nx * ny * 2;
-		for (int k = 0; k < nz; k++)
-		for (int i = 0; i < nxy; i+=2) {
-			data[k][i] += real;	
-			data[k][i+1] += imag;
-		}
+	public ComplexSignal plus(final float real, final float imag) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i += 2) {
+					d[i] += real;
+					d[i+1] += imag;
+				}
+			}
+		});
 		return this;
 	}
 
-	public ComplexSignal times(ComplexSignal factor) {
-		float a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = data[k][i];
-			b1 = data[k][i+1];
-			a2 = factor.data[k][i];
-			b2 = factor.data[k][i+1];
-			data[k][i] = a1*a2 - b1*b2;
-			data[k][i+1] = a1*b2 + a2*b1;
-		}
+	public ComplexSignal times(final ComplexSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i += 2) {
+					float a1 = d[i];
+					float b1 = d[i+1];
+					float a2 = f[i];
+					float b2 = f[i+1];
+					d[i] = a1*a2 - b1*b2;
+					d[i+1] = a1*b2 + a2*b1;
+				}
+			}
+		});
 		return this;
 	}
 	
 	// this <- Ht * this
-	public void timesConjugate(ComplexSignal H) {
-		float a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = data[k][i];
-			b1 = data[k][i+1];
-			a2 = H.data[k][i];
-			b2 = -H.data[k][i+1];
-			data[k][i] = a1*a2 - b1*b2;
-			data[k][i+1] = a1*b2 + a2*b1;
-		}
+	public void timesConjugate(final ComplexSignal H) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] h = H.data[k];
+				for (int i = begin; i < end; i += 2) {
+					float a1 = d[i];
+					float b1 = d[i+1];
+					float a2 = h[i];
+					float b2 = -h[i+1];
+					d[i] = a1*a2 - b1*b2;
+					d[i+1] = a1*b2 + a2*b1;
+				}
+			}
+		});
 	}
 
-	public void plus(ComplexSignal term) {
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			data[k][i] += term.data[k][i];
-			data[k][i+1] += term.data[k][i+1];
-		}
+	public void plus(final ComplexSignal term) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] t = term.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] += t[i];
+			}
+		});
 	}
 
-	public void minus(ComplexSignal term) {
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			data[k][i] -= term.data[k][i];
-			data[k][i+1] -= term.data[k][i+1];
-		}
+	public void minus(final ComplexSignal term) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] t = term.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] -= t[i];
+			}
+		});
 	}
 
 	public void conjugate() {
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2)
-			data[k][i+1] = -data[k][i+1];		
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i += 2)
+					d[i+1] = -d[i+1];
+			}
+		});
 	}
 
 	public float[] getValue(int i, int j, int k) {
@@ -215,27 +278,29 @@ public class ComplexSignal extends Signal implements SignalListener {
 	}
 
 	public float[] getInterleaveXYZ() {
+		return getInterleaveXYZ(null);
+	}
+
+	/**
+	 * Copies the slices into a contiguous interleaved buffer. The buffer is 
+	 * allocated only if it is null or if it has not the size 2*nx*ny*nz, so
+	 * that a workspace can be reused.
+	 */
+	public float[] getInterleaveXYZ(float[] interleave) {
 		int nxy = nx*ny*2;
-		float[] interleave = new float[nz*nxy];
+		if (interleave == null || interleave.length != nz*nxy)
+			interleave = new float[nz*nxy];
 		for (int k = 0; k < nz; k++)
-		for (int i = 0; i < nx; i++)
-		for (int j = 0; j < ny; j++) {
-			int index = 2*(k*nx*ny + j*nx + i);
-			interleave[index] = data[k][(i+j*nx)*2];
-			interleave[index + 1] = data[k][(i+j*nx)*2+1];
-		}
+			System.arraycopy(data[k], 0, interleave, k*nxy, nxy);
 		return interleave;
 	}
 	
 	public void setInterleaveXYZ(float[] interleave) {
 		int nxy = nx * ny * 2;
-		this.data = new float[nz][nxy];		
-		for (int i = 0; i < nx; i++)	
-		for (int j = 0; j < ny; j++) 
 		for (int k = 0; k < nz; k++) {
-			int index = 2*(k*nx*ny + j*nx + i);
-			data[k][(i+j*nx)*2] = interleave[index];
-			data[k][(i+j*nx)*2 + 1] = interleave[index+1];
+			if (data[k].length != nxy)
+				data[k] = new float[nxy];
+			System.arraycopy(interleave, k*nxy, data[k], 0, nxy);
 		}
 	}
 
@@ -244,7 +309,7 @@ public class ComplexSignal extends Signal implements SignalListener {
 		RealSignal real = new RealSignal(n, nx, ny, nz);
 		int nxy = nx * ny;
 		for (int k = 0; k < nz; k++) {
-			float[] r = real.getXY(k);
+			float[] r = real.data[k];
 			for (int i = 0; i < nxy; i++)
 				r[i] = data[k][2*i];
 		}
@@ -256,7 +321,7 @@ public class ComplexSignal extends Signal implements SignalListener {
 		RealSignal real = new RealSignal(n, nx, ny, nz);
 		int nxy = nx * ny;
 		for (int k = 0; k < nz; k++) {
-			float[] r = real.getXY(k);
+			float[] r = real.data[k];
 			for (int i = 0; i < nxy; i++)
 				r[i] = data[k][2*i+1];
 		}
@@ -268,7 +333,7 @@ public class ComplexSignal extends Signal implements SignalListener {
 		String n = "mod(" + name + ")";
 		RealSignal module = new RealSignal(n, nx, ny, nz);
 		for (int k = 0; k < nz; k++)
-			module.setXY(k, getModuleXY(k));
+			module.data[k] = getModuleXY(k);
 		return module;
 	}
 	
@@ -286,8 +351,14 @@ public class ComplexSignal extends Signal implements SignalListener {
 		return m;
 	}
 
+	public void copy(ComplexSignal source) {
+		int nxy = nx * ny * 2;
+		for (int k = 0; k < nz; k++)
+			System.arraycopy(source.data[k], 0, data[k], 0, nxy);
+	}
+
 	public ComplexSignal duplicate() {
-		ComplexSignal out = new ComplexSignal("copy(" + name + ")", nx, ny, nz);
+		ComplexSignal out = new ComplexSignal("copy(" + name + ")", nxSpatial, ny, nz, halfSpectrum, false);
 		int nxy = nx * ny * 2;
 		for (int k = 0; k < nz; k++)
 			System.arraycopy(data[k], 0, out.data[k], 0, nxy);
@@ -295,7 +366,64 @@ public class ComplexSignal extends Signal implements SignalListener {
 	}
 
 	public ComplexSignal replicate() {
-		return new ComplexSignal(">" + name, nx, ny, nz);
+		return replicate(">" + name);
+	}
+
+	/**
+	 * Allocates a new complex signal with the same size and the same layout
+	 * (full or half spectrum), the content is not copied.
+	 * 
+	 * @param name
+	 * @return a new complex signal
+	 */
+	public ComplexSignal replicate(String name) {
+		return new ComplexSignal(name, nxSpatial, ny, nz, halfSpectrum);
+	}
+
+	/**
+	 * Expands a half spectrum to the full spectrum using the Hermitian 
+	 * symmetry X(-w) = conj(X(w)) of the spectrum of a real signal.
+	 * 
+	 * @return a new complex signal storing the full spectrum
+	 */
+	public ComplexSignal getFullSpectrum() {
+		if (!halfSpectrum)
+			return duplicate();
+		int mx = nxSpatial;
+		ComplexSignal full = new ComplexSignal("full(" + name + ")", mx, ny, nz, false);
+		for (int k = 0; k < nz; k++) {
+			float[] f = full.data[k];
+			float[] h = data[k];
+			float[] s = data[(nz - k) % nz];
+			for (int j = 0; j < ny; j++) {
+				int js = ((ny - j) % ny) * nx;
+				for (int i = 0; i < mx; i++) {
+					int index = 2 * (i + j * mx);
+					if (i < nx) {
+						f[index] = h[2 * (i + j * nx)];
+						f[index + 1] = h[2 * (i + j * nx) + 1];
+					}
+					else {
+						f[index] = s[2 * (mx - i + js)];
+						f[index + 1] = -s[2 * (mx - i + js) + 1];
+					}
+				}
+			}
+		}
+		return full;
+	}
+
+	/**
+	 * Fills this half spectrum with the non-redundant part of a full spectrum.
+	 * 
+	 * @param full the full spectrum of a real signal
+	 */
+	public void setFullSpectrum(ComplexSignal full) {
+		int mx = full.nx;
+		int mxy = Math.min(nx, mx);
+		for (int k = 0; k < nz; k++)
+			for (int j = 0; j < ny; j++)
+				System.arraycopy(full.data[k], 2 * j * mx, data[k], 2 * j * nx, 2 * mxy);
 	}
 
 	public float getEnergy() {
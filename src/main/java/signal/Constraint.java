@@ -61,8 +61,7 @@ public class Constraint {
 	}
 	
 	public static void setModel(RealSignal signal) {
-		float 
-		stats[] = signal.getStats();
+		float stats[] = Statistics.compute(signal).toArray();
 		mean = stats[0];
 		min = stats[1];
 		max = stats[2];
@@ -114,7 +113,7 @@ public class Constraint {
 
 	public void normalized(RealSignal x, float meang, float stdevg) {
 		monitors.log("Apply normalized constraint (" + meang + ", " + stdevg + ")");
-		float stats[] = x.getStats();
+		float stats[] = Statistics.compute(x).toArray();
 		int nxy = x.nx * x.ny;
 		for(int k=0; k<x.nz; k++)
 		for(int i=0; i<nxy; i++) {
@@ -126,7 +125,7 @@ public class Constraint {
 	public void rescaled(RealSignal x, float ming, float maxg) {
 		monitors.log("Apply rescaled constraint (" + ming + " ... " + maxg + ")");
 		int nxy = x.nx * x.ny;
-		float stats[] = x.getStats();
+		float stats[] = Statistics.compute(x).toArray();
 		float a = (maxg-ming) / (stats[2] - stats[1]);
 		for(int k=0; k<x.nz; k++)
 		for(int i=0; i<nxy; i++) {
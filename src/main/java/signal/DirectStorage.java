@@ -0,0 +1,113 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * This class stores the slices of a signal in direct buffers, outside the 
+ * Java heap and without scratch file. The slices are packed in blocks of at 
+ * most 1 GB, at offsets multiple of 64 bytes from the start of their block;
+ * the address of the block itself is only aligned as allocateDirect() gives
+ * it. The direct memory is bounded by the option -XX:MaxDirectMemorySize of 
+ * the JVM.
+ * 
+ * The memory is returned when the storage is closed and collected.
+ */
+public class DirectStorage extends SliceStorage {
+
+	/** Offset in bytes between the slices of a block */
+	private static final int	ALIGNMENT	= 64;
+
+	/** Maximum number of bytes of a block */
+	private static final int	BLOCK		= 1 << 30;
+
+	private ByteBuffer[]		blocks;
+	private long				stride;
+
+	/**
+	 * @param nz
+	 *            number of slices
+	 * @param length
+	 *            number of floats of one slice
+	 */
+	public DirectStorage(int nz, int length) throws IOException {
+		super(nz, length);
+		long bytes = 4L * length;
+		stride = (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+		if (stride > BLOCK)
+			throw new IOException("Slice too large for a direct buffer " + bytes);
+		int perBlock = (int) (BLOCK / stride);
+		blocks = new ByteBuffer[(nz + perBlock - 1) / perBlock];
+		for (int b = 0; b < blocks.length; b++) {
+			int n = Math.min(perBlock, nz - b * perBlock);
+			try {
+				blocks[b] = ByteBuffer.allocateDirect((int) (n * stride));
+			}
+			catch (OutOfMemoryError ex) {
+				blocks = null;
+				throw new IOException("Direct memory exhausted");
+			}
+			for (int i = 0; i < n; i++) {
+				ByteBuffer view = blocks[b].duplicate();
+				view.position((int) (i * stride));
+				view.limit((int) (i * stride + bytes));
+				slices[b * perBlock + i] = view.slice().order(ByteOrder.nativeOrder()).asFloatBuffer();
+			}
+		}
+	}
+
+	/**
+	 * Returns the whole volume as one buffer if the slices are adjacent in a
+	 * single block, that is if the bytes of a slice are a multiple of 64; 
+	 * null otherwise.
+	 */
+	public FloatBuffer getContiguous() {
+		if (blocks == null || blocks.length != 1 || stride != 4L * length)
+			return null;
+		return blocks[0].duplicate().order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
+	@Override
+	public void close() {
+		slices = null;
+		blocks = null;
+	}
+
+	@Override
+	public String toString() {
+		return "direct memory";
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class stores the slices of a signal in a memory-mapped scratch file,
+ * one mapping per slice. The pages are kept in the cache of the operating
+ * system instead of the Java heap.
+ * 
+ * The scratch file is deleted when the storage is closed.
+ */
+public class MappedStorage extends SliceStorage {
+
+	private static File		directory	= new File(System.getProperty("java.io.tmpdir"));
+
+	private File			file;
+	private RandomAccessFile	raf;
+	private FileChannel		channel;
+
+	/**
+	 * @param nz
+	 *            number of slices
+	 * @param length
+	 *            number of floats of one slice
+	 */
+	public MappedStorage(int nz, int length) throws IOException {
+		super(nz, length);
+		file = File.createTempFile("dl2-", ".scratch", directory);
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		long bytes = 4L * length;
+		for (int k = 0; k < nz; k++) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, k * bytes, bytes);
+			buffer.order(ByteOrder.nativeOrder());
+			slices[k] = buffer.asFloatBuffer();
+		}
+	}
+
+	public static void setDirectory(String path) {
+		File dir = new File(path);
+		if (dir.isDirectory())
+			directory = dir;
+	}
+
+	public static String getDirectory() {
+		return directory.getAbsolutePath();
+	}
+
+	@Override
+	public void close() {
+		slices = null;
+		try {
+			channel.close();
+			raf.close();
+		}
+		catch (IOException ex) {
+		}
+		file.delete();
+	}
+
+	@Override
+	public String toString() {
+		return file.getAbsolutePath();
+	}
+}
@@ -49,19 +49,25 @@ public class Operations {
 		return log;
 	}
 
-	public static void divide(RealSignal numerator, RealSignal denominator, RealSignal output) { 
+	public static void divide(final RealSignal numerator, final RealSignal denominator, RealSignal output) {
 		String name = numerator.name + "/" + denominator.name;
 		if (output == null)
 			 output = new RealSignal(name, numerator.nx, numerator.ny, numerator.nz);
-		
-		int nxy = numerator.nx * numerator.ny;
-		for(int k=0; k<numerator.nz; k++)
-		for(int i=0; i< nxy; i++) {
-			if (denominator.data[k][i] < epsilon)
-				output.data[k][i] = 0.0f;
-			else
-				output.data[k][i] = numerator.data[k][i] / denominator.data[k][i];
-		}
+		final RealSignal result = output;
+		SlabPool.run(numerator, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] n = numerator.data[k];
+				float[] d = denominator.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i++) {
+					if (d[i] < epsilon)
+						o[i] = 0.0f;
+					else
+						o[i] = n[i] / d[i];
+				}
+			}
+		});
 	}
 
 	public static RealSignal divide(RealSignal numerator, RealSignal denominator) {
@@ -71,191 +77,220 @@ public class Operations {
 		return output;
 	}
 
-	public static ComplexSignal conjugate(ComplexSignal s) {
+	public static ComplexSignal conjugate(final ComplexSignal s) {
 		String name = "conj(" + s.name + ")";
-		int nx = s.nx;
-		int ny = s.ny;
-		int nz = s.nz;
-		int nxy = nx * ny * 2;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			result.data[k][i] = s.data[k][i];
-			result.data[k][i+1] = -s.data[k][i+1];
-		}
+		final ComplexSignal result = s.replicate(name);
+		SlabPool.run(s, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = s.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					o[i] = d[i];
+					o[i+1] = -d[i+1];
+				}
+			}
+		});
 		return result;
 	}
 
-	public static void multiply(ComplexSignal a, ComplexSignal b, ComplexSignal output) {
+	public static void multiply(final ComplexSignal a, final ComplexSignal b, ComplexSignal output) {
 		String name = a.name + "*" + b.name;
 		if (output == null)
-			 output = new ComplexSignal(name, a.nx, a.ny, a.nz);
-		int nx = a.nx;
-		int ny = a.ny;
-		int nz = a.nz;
-		double ar, ai, br, bi;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			ar = a.data[k][i];
-			ai = a.data[k][i+1];
-			br = b.data[k][i];
-			bi = b.data[k][i+1];
-			output.data[k][i] = (float)(ar*br - ai*bi);
-			output.data[k][i+1] = (float)(ar*bi + br*ai);
-		}
+			 output = a.replicate(name);
+		final ComplexSignal result = output;
+		SlabPool.run(a, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = a.data[k];
+				float[] q = b.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = p[i];
+					double b1 = p[i+1];
+					double a2 = q[i];
+					double b2 = q[i+1];
+					o[i] = (float)(a1*a2 - b1*b2);
+					o[i+1] = (float)(a1*b2 + a2*b1);
+				}
+			}
+		});
 	}
 
 	public static ComplexSignal multiply(ComplexSignal a, ComplexSignal b) {
 		String name = a.name + "*" + b.name;
-		ComplexSignal output = new ComplexSignal(name, a.nx, a.ny, a.nz);
+		ComplexSignal output = a.replicate(name);
 		multiply(a, b, output);
 		return output;
 	}
 
 	public static ComplexSignal multiplyConjugate(ComplexSignal aConjugate, ComplexSignal b) {
 		String name = aConjugate.name + "* *" + b.name;
-		ComplexSignal output = new ComplexSignal(name, b.nx, b.ny, b.nz);
+		ComplexSignal output = b.replicate(name);
 		multiplyConjugate(aConjugate, b, output);
 		return output;
 	}
 
-	public static void multiplyConjugate(ComplexSignal aConjugate, ComplexSignal b, ComplexSignal output) {
+	public static void multiplyConjugate(final ComplexSignal aConjugate, final ComplexSignal b, ComplexSignal output) {
 		String name = aConjugate.name + "* *" + b.name;
 		if (output == null)
-			 output = new ComplexSignal(name, b.nx, b.ny, b.nz);
-		int nx = b.nx;
-		int ny = b.ny;
-		int nz = b.nz;
-		double a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = aConjugate.data[k][i];
-			b1 = -aConjugate.data[k][i+1];
-			a2 = b.data[k][i];
-			b2 = b.data[k][i+1];
-			output.data[k][i] = (float)(a1*a2 - b1*b2);
-			output.data[k][i+1] = (float)(a1*b2 + a2*b1);
-		}
+			 output = b.replicate(name);
+		final ComplexSignal result = output;
+		SlabPool.run(b, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = aConjugate.data[k];
+				float[] q = b.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = p[i];
+					double b1 = -p[i+1];
+					double a2 = q[i];
+					double b2 = q[i+1];
+					o[i] = (float)(a1*a2 - b1*b2);
+					o[i+1] = (float)(a1*b2 + a2*b1);
+				}
+			}
+		});
 	}
 	
-	public static ComplexSignal multiply(double w, ComplexSignal a, ComplexSignal b) {
+	public static ComplexSignal multiply(final double w, final ComplexSignal a, final ComplexSignal b) {
 		String name = a.name + "* w *" + b.name;
-		int nx = a.nx;
-		int ny = a.ny;
-		int nz = a.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = a.data[k][i];
-			b1 = a.data[k][i+1];
-			a2 = b.data[k][i];
-			b2 = b.data[k][i+1];
-			result.data[k][i] = (float)(w*(a1*a2 - b1*b2));
-			result.data[k][i+1] = (float)(w*(a1*b2 + a2*b1));
-		}
+		final ComplexSignal result = a.replicate(name);
+		SlabPool.run(a, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = a.data[k];
+				float[] q = b.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = p[i];
+					double b1 = p[i+1];
+					double a2 = q[i];
+					double b2 = q[i+1];
+					o[i] = (float)(w*(a1*a2 - b1*b2));
+					o[i+1] = (float)(w*(a1*b2 + a2*b1));
+				}
+			}
+		});
 		return result;
 	}
 
-	public static ComplexSignal multiplyConjugate(double w, ComplexSignal aConjugate, ComplexSignal b) {
+	public static ComplexSignal multiplyConjugate(final double w, final ComplexSignal aConjugate, final ComplexSignal b) {
 		String name = aConjugate.name + "* * w *" + b.name;
-		int nx = b.nx;
-		int ny = b.ny;
-		int nz = b.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = aConjugate.data[k][i];
-			b1 = -aConjugate.data[k][i+1];
-			a2 = b.data[k][i];
-			b2 = b.data[k][i+1];
-			result.data[k][i] = (float)(w*(a1*a2 - b1*b2));
-			result.data[k][i+1] = (float)(w*(a1*b2 + a2*b1));
-		}
+		final ComplexSignal result = b.replicate(name);
+		SlabPool.run(b, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = aConjugate.data[k];
+				float[] q = b.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = p[i];
+					double b1 = -p[i+1];
+					double a2 = q[i];
+					double b2 = q[i+1];
+					o[i] = (float)(w*(a1*a2 - b1*b2));
+					o[i+1] = (float)(w*(a1*b2 + a2*b1));
+				}
+			}
+		});
 		return result;
 	}
 
-	public static ComplexSignal divideStabilized(ComplexSignal numerator, ComplexSignal denominator) {
+	public static ComplexSignal divideStabilized(final ComplexSignal numerator, final ComplexSignal denominator) {
 		String name = numerator.name + " / " + denominator.name;
-		int nx = numerator.nx;
-		int ny = numerator.ny;
-		int nz = numerator.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a1, a2, b1, b2, mag;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = numerator.data[k][i];
-			b1 = numerator.data[k][i+1];
-			a2 = denominator.data[k][i];
-			b2 = denominator.data[k][i+1];
-			mag = Math.max(epsilon, a2*a2 + b2*b2);
-			result.data[k][i] = (float)((a1*a2 + b1*b2) / mag);
-			result.data[k][i+1] = (float)((b1*a2 - a1*b2) / mag);
-		}
+		final ComplexSignal result = numerator.replicate(name);
+		SlabPool.run(numerator, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] n = numerator.data[k];
+				float[] d = denominator.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = n[i];
+					double b1 = n[i+1];
+					double a2 = d[i];
+					double b2 = d[i+1];
+					double mag = Math.max(epsilon, a2*a2 + b2*b2);
+					o[i] = (float)((a1*a2 + b1*b2) / mag);
+					o[i+1] = (float)((b1*a2 - a1*b2) / mag);
+				}
+			}
+		});
 		return result;
 	}
 	
-	public static ComplexSignal divideNotStabilized(ComplexSignal numerator, ComplexSignal denominator) {
+	public static ComplexSignal divideNotStabilized(final ComplexSignal numerator, final ComplexSignal denominator) {
 		String name = numerator.name + " /0/ " + denominator.name;
-		int nx = numerator.nx;
-		int ny = numerator.ny;
-		int nz = numerator.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a1, a2, b1, b2;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a1 = numerator.data[k][i];
-			b1 = numerator.data[k][i+1];
-			a2 = denominator.data[k][i];
-			b2 = denominator.data[k][i+1];
-			double mag = a2*a2 + b2*b2;
-			result.data[k][i] = (float)((a1*a2 + b1*b2) / mag);
-			result.data[k][i+1] = (float)((b1*a2 - a1*b2) / mag);
-		}
+		final ComplexSignal result = numerator.replicate(name);
+		SlabPool.run(numerator, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] n = numerator.data[k];
+				float[] d = denominator.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a1 = n[i];
+					double b1 = n[i+1];
+					double a2 = d[i];
+					double b2 = d[i+1];
+					double mag = a2*a2 + b2*b2;
+					o[i] = (float)((a1*a2 + b1*b2) / mag);
+					o[i+1] = (float)((b1*a2 - a1*b2) / mag);
+				}
+			}
+		});
 		return result;
 	}
 
-	public static ComplexSignal add(ComplexSignal s1, ComplexSignal s2) {
+	public static ComplexSignal add(final ComplexSignal s1, final ComplexSignal s2) {
 		String name = s1.name + " + " + s2.name;
-		int nx = s1.nx;
-		int ny = s1.ny;
-		int nz = s1.nz;
-		int nxy = nx * ny * 2;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		for(int k=0; k<nz; k++)
-		for(int i=0; i<nxy; i++)
-			result.data[k][i] = s1.data[k][i] + s2.data[k][i];
+		final ComplexSignal result = s1.replicate(name);
+		SlabPool.run(s1, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = s1.data[k];
+				float[] q = s2.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i++)
+					o[i] = p[i] + q[i];
+			}
+		});
 		return result;
 	}
 
-	public static ComplexSignal subtract(ComplexSignal s1, ComplexSignal s2) {
+	public static ComplexSignal subtract(final ComplexSignal s1, final ComplexSignal s2) {
 		String name = s1.name + " - " + s2.name;
-		int nx = s1.nx;
-		int ny = s1.ny;
-		int nz = s1.nz;
-		int nxy = nx * ny * 2;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		for(int k=0; k<nz; k++)
-		for(int i=0; i<nxy; i++)
-			result.data[k][i] = s1.data[k][i] - s2.data[k][i];
+		final ComplexSignal result = s1.replicate(name);
+		SlabPool.run(s1, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = s1.data[k];
+				float[] q = s2.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i++)
+					o[i] = p[i] - q[i];
+			}
+		});
 		return result;
 	}
 
-	public static void subtract(RealSignal s1, RealSignal s2, RealSignal output) {
+	public static void subtract(final RealSignal s1, final RealSignal s2, RealSignal output) {
 		String name = s1.name + " - " + s2.name;
 		if (output == null)
 			output = new RealSignal(name, s1.nx, s1.ny, s1.nz);
-		int nxy = s1.nx * s1.ny;
-		for(int k=0; k<s1.nz; k++)
-		for(int i=0; i<nxy; i++)
-			output.data[k][i] = s1.data[k][i] - s2.data[k][i];
+		final RealSignal result = output;
+		SlabPool.run(s1, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] p = s1.data[k];
+				float[] q = s2.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i++)
+					o[i] = p[i] - q[i];
+			}
+		});
 	}
 	
 	public static RealSignal subtract(RealSignal s1, RealSignal s2) {
@@ -265,72 +300,122 @@ public class Operations {
 		return output;
 	}
 
-	public static ComplexSignal computeHtH(double w, ComplexSignal h) {
+	public static ComplexSignal computeHtH(final double w, final ComplexSignal h) {
 		String name = " w * HtH( " + h.name + ")";
-		int nx = h.nx;
-		int ny = h.ny;
-		int nz = h.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a, b;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a = h.data[k][i];
-			b = h.data[k][i+1];
-			result.data[k][i] = (float)(w*(a*a + b*b));
-			//result.data[k][i+1] = 0f;
-		}
+		final ComplexSignal result = h.replicate(name);
+		SlabPool.run(h, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = h.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a = d[i];
+					double b = d[i+1];
+					o[i] = (float)(w*(a*a + b*b));
+				}
+			}
+		});
 		return result;
 	}
 
 	// I - gamma * Ht * H
-	public static ComplexSignal delta(double w, ComplexSignal h) {
+	public static ComplexSignal delta(final double w, final ComplexSignal h) {
 		String name = " w * Delta2( " + h.name + ")";
-		int nx = h.nx;
-		int ny = h.ny;
-		int nz = h.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a, b;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a = h.data[k][i];
-			b = h.data[k][i+1];
-			result.data[k][i] = (float)(1.0 - w*(a*a + b*b));
-			//result.data[k][i+1] = 0f;
-		}
+		final ComplexSignal result = h.replicate(name);
+		SlabPool.run(h, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = h.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a = d[i];
+					double b = d[i+1];
+					o[i] = (float)(1.0 - w*(a*a + b*b));
+				}
+			}
+		});
 		return result;
 	}
 
 	// I - gamma * H
-	public static ComplexSignal delta1(double w, ComplexSignal h) {
+	public static ComplexSignal delta1(final double w, final ComplexSignal h) {
 		String name = " w * Delta1( " + h.name + ")";
-		int nx = h.nx;
-		int ny = h.ny;
-		int nz = h.nz;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		double a, b;
-		int nxy = nx * ny * 2;
-		for(int k=0; k<nz; k++)
-		for(int i=0; i< nxy; i+=2) {
-			a = h.data[k][i];
-			b = h.data[k][i+1];
-			result.data[k][i] = (float)(1.0 - w*a);
-			result.data[k][i+1] = (float)(- w*b);
-		}
+		final ComplexSignal result = h.replicate(name);
+		SlabPool.run(h, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = h.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i += 2) {
+					double a = d[i];
+					double b = d[i+1];
+					o[i] = (float)(1.0 - w*a);
+					o[i+1] = (float)(- w*b);
+				}
+			}
+		});
 		return result;
 	}
 
-	public static ComplexSignal multiply(double factor, ComplexSignal s) {
+	/**
+	 * Advances the linear iteration X(n+1) = A*X(n) + G by n steps at once.
+	 * X is updated in place with A^n*X + (1 + A + ... + A^(n-1))*G, the power
+	 * and the geometric series being computed by repeated squaring.
+	 */
+	public static void fastForward(final ComplexSignal A, final ComplexSignal G, final ComplexSignal X, final int n) {
+		SlabPool.run(X, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] a = A.data[k];
+				float[] g = G.data[k];
+				float[] x = X.data[k];
+				int high = Integer.highestOneBit(n);
+				for (int i = begin; i < end; i += 2) {
+					double ar = a[i];
+					double ai = a[i+1];
+					double pr = 1.0, pi = 0.0;
+					double sr = 0.0, si = 0.0;
+					for (int bit = high; bit > 0; bit >>= 1) {
+						// S(2m) = S(m)*(1+A^m), A^2m = A^m*A^m
+						double tr = sr * (1.0 + pr) - si * pi;
+						double ti = sr * pi + si * (1.0 + pr);
+						sr = tr;
+						si = ti;
+						tr = pr * pr - pi * pi;
+						pi = 2.0 * pr * pi;
+						pr = tr;
+						if ((n & bit) != 0) {
+							// S(m+1) = S(m) + A^m, A^(m+1) = A^m*A
+							sr += pr;
+							si += pi;
+							tr = pr * ar - pi * ai;
+							pi = pr * ai + pi * ar;
+							pr = tr;
+						}
+					}
+					double xr = x[i];
+					double xi = x[i+1];
+					double gr = g[i];
+					double gi = g[i+1];
+					x[i] = (float)(pr * xr - pi * xi + sr * gr - si * gi);
+					x[i+1] = (float)(pr * xi + pi * xr + sr * gi + si * gr);
+				}
+			}
+		});
+	}
+
+	public static ComplexSignal multiply(final double factor, final ComplexSignal s) {
 		String name = " w * ( " + s.name + ")";
-		int nx = s.nx;
-		int ny = s.ny;
-		int nz = s.nz;
-		int nxy = nx * ny * 2;
-		ComplexSignal result = new ComplexSignal(name, nx, ny, nz);
-		for(int k=0; k<nz; k++)
-		for(int i=0; i<nxy; i++)
-			result.data[k][i] = (float)(factor * s.data[k][i]);
+		final ComplexSignal result = s.replicate(name);
+		SlabPool.run(s, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = s.data[k];
+				float[] o = result.data[k];
+				for (int i = begin; i < end; i++)
+					o[i] = (float)(factor * d[i]);
+			}
+		});
 		return result;
 	}
 	
@@ -0,0 +1,190 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.util.ArrayList;
+
+/**
+ * Lazy chain of pointwise operations on a RealSignal. The operations are
+ * recorded and evaluated in one pass over the memory, block by block, on 
+ * the slabs of the SlabPool.
+ * 
+ * <pre>
+ * x.lazy().times(u).times(tv).evaluate();
+ * y.lazy().divide(u).evaluate(p);
+ * </pre>
+ */
+public class RealExpression {
+
+	private static final int	TIMES			= 0;
+	private static final int	PLUS			= 1;
+	private static final int	MINUS			= 2;
+	private static final int	DIVIDE			= 3;
+	private static final int	MAX				= 4;
+	private static final int	MIN				= 5;
+	private static final int	TIMES_SCALAR	= 6;
+	private static final int	PLUS_SCALAR		= 7;
+
+	/** Number of floats processed by all the operations before the next block */
+	private static final int	BLOCK			= 4096;
+
+	private RealSignal				first;
+	private ArrayList<Integer>		codes		= new ArrayList<Integer>();
+	private ArrayList<RealSignal>	operands	= new ArrayList<RealSignal>();
+	private ArrayList<Float>		scalars		= new ArrayList<Float>();
+
+	public RealExpression(RealSignal first) {
+		this.first = first;
+	}
+
+	public RealExpression times(RealSignal factor) {
+		return add(TIMES, factor, 0f);
+	}
+
+	public RealExpression plus(RealSignal term) {
+		return add(PLUS, term, 0f);
+	}
+
+	public RealExpression minus(RealSignal term) {
+		return add(MINUS, term, 0f);
+	}
+
+	/** Division set to 0 where the denominator is below Operations.epsilon */
+	public RealExpression divide(RealSignal denominator) {
+		return add(DIVIDE, denominator, 0f);
+	}
+
+	public RealExpression max(RealSignal factor) {
+		return add(MAX, factor, 0f);
+	}
+
+	public RealExpression min(RealSignal factor) {
+		return add(MIN, factor, 0f);
+	}
+
+	public RealExpression times(float factor) {
+		return add(TIMES_SCALAR, null, factor);
+	}
+
+	public RealExpression plus(float term) {
+		return add(PLUS_SCALAR, null, term);
+	}
+
+	private RealExpression add(int code, RealSignal operand, float scalar) {
+		codes.add(code);
+		operands.add(operand);
+		scalars.add(scalar);
+		return this;
+	}
+
+	/**
+	 * Evaluates the expression in place.
+	 * 
+	 * @return the first signal of the expression
+	 */
+	public RealSignal evaluate() {
+		return evaluate(first);
+	}
+
+	/**
+	 * Evaluates the expression into the output, the first signal is unchanged
+	 * if it is not the output.
+	 * 
+	 * @return the output
+	 */
+	public RealSignal evaluate(final RealSignal output) {
+		final int n = codes.size();
+		final int code[] = new int[n];
+		final RealSignal operand[] = new RealSignal[n];
+		final float scalar[] = new float[n];
+		for (int o = 0; o < n; o++) {
+			code[o] = codes.get(o);
+			operand[o] = operands.get(o);
+			scalar[o] = scalars.get(o);
+		}
+		final float epsilon = (float) Operations.epsilon;
+		SlabPool.run(first, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] src = first.data[k];
+				float[] d = output.data[k];
+				for (int b = begin; b < end; b += BLOCK) {
+					int e = Math.min(end, b + BLOCK);
+					if (d != src)
+						System.arraycopy(src, b, d, b, e - b);
+					for (int o = 0; o < n; o++) {
+						float[] f = (operand[o] == null ? null : operand[o].data[k]);
+						float s = scalar[o];
+						switch (code[o]) {
+						case TIMES:
+							for (int i = b; i < e; i++)
+								d[i] *= f[i];
+							break;
+						case PLUS:
+							for (int i = b; i < e; i++)
+								d[i] += f[i];
+							break;
+						case MINUS:
+							for (int i = b; i < e; i++)
+								d[i] -= f[i];
+							break;
+						case DIVIDE:
+							for (int i = b; i < e; i++)
+								d[i] = (f[i] < epsilon ? 0f : d[i] / f[i]);
+							break;
+						case MAX:
+							for (int i = b; i < e; i++)
+								d[i] = Math.max(d[i], f[i]);
+							break;
+						case MIN:
+							for (int i = b; i < e; i++)
+								d[i] = Math.min(d[i], f[i]);
+							break;
+						case TIMES_SCALAR:
+							for (int i = b; i < e; i++)
+								d[i] *= s;
+							break;
+						case PLUS_SCALAR:
+							for (int i = b; i < e; i++)
+								d[i] += s;
+							break;
+						}
+					}
+				}
+			}
+		});
+		codes.clear();
+		operands.clear();
+		scalars.clear();
+		return output;
+	}
+}
@@ -40,16 +40,19 @@ public class RealSignal extends Signal implements SignalListener {
 	private BufferedImage preview;
 	
 	public RealSignal(String name, int nx, int ny, int nz) {
+		this(name, nx, ny, nz, true);
+	}
+
+	/**
+	 * @param zero
+	 *            if false, the slices reused from the pool are not cleared, 
+	 *            the caller overwrites all the samples
+	 */
+	RealSignal(String name, int nx, int ny, int nz, boolean zero) {
 		super(name, nx, ny, nz);
 		this.data = new float[nz][];
-		int step = Math.max(1, nz / SignalCollector.NOTIFICATION_RATE);
-		notify(name, 0);
-		for (int k = 0; k < nz; k++) {
-			data[k] = new float[nx * ny];
-			if (k % step == 0)
-				notify(name, k * 100.0 / nz);
-		}
-		notify(name, 100);
+		for (int k = 0; k < nz; k++)
+			data[k] = SignalCollector.acquire(nx * ny, zero);
 		SignalCollector.alloc(this);//name, nx, ny, ny, false);
 	}
 
@@ -95,17 +98,21 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param superiorLimit
 	 * @return the instance of the calling object
 	 */
-	public RealSignal thresholdSoft(float inferiorLimit, float superiorLimit) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				if (data[k][i] <= inferiorLimit)
-					data[k][i] += inferiorLimit;
-				else if (data[k][i] >= superiorLimit)
-					data[k][i] -= superiorLimit;
-				else
-					data[k][i] = 0f;
+	public RealSignal thresholdSoft(final float inferiorLimit, final float superiorLimit) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i++) {
+					if (d[i] <= inferiorLimit)
+						d[i] += inferiorLimit;
+					else if (d[i] >= superiorLimit)
+						d[i] -= superiorLimit;
+					else
+						d[i] = 0f;
+				}
 			}
+		});
 		return this;
 	}
 
@@ -115,12 +122,16 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal times(RealSignal factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] *= factor.data[k][i];
+	public RealSignal times(final RealSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] *= f[i];
 			}
+		});
 		return this;
 	}
 
@@ -130,12 +141,15 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal times(float factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] *= factor;
+	public RealSignal times(final float factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i++)
+					d[i] *= factor;
 			}
+		});
 		return this;
 	}
 
@@ -145,12 +159,16 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal plus(RealSignal factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] += factor.data[k][i];
+	public RealSignal plus(final RealSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] += f[i];
 			}
+		});
 		return this;
 	}
 
@@ -160,12 +178,16 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal minus(RealSignal factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] -= factor.data[k][i];
+	public RealSignal minus(final RealSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] -= f[i];
 			}
+		});
 		return this;
 	}
 
@@ -175,12 +197,15 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param term
 	 * @return the instance of the calling object
 	 */
-	public RealSignal plus(float term) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] += term;
+	public RealSignal plus(final float term) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i++)
+					d[i] += term;
 			}
+		});
 		return this;
 	}
 
@@ -190,12 +215,15 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param term
 	 * @return the instance of the calling object
 	 */
-	public RealSignal minus(float term) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] -= term;
+	public RealSignal minus(final float term) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				for (int i = begin; i < end; i++)
+					d[i] -= term;
 			}
+		});
 		return this;
 	}
 
@@ -205,12 +233,16 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal max(RealSignal factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] = Math.max(data[k][i], factor.data[k][i]);
+	public RealSignal max(final RealSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] = Math.max(d[i], f[i]);
 			}
+		});
 		return this;
 	}
 
@@ -220,15 +252,28 @@ public class RealSignal extends Signal implements SignalListener {
 	 * @param factor
 	 * @return the instance of the calling object
 	 */
-	public RealSignal min(RealSignal factor) {
-		int nxy = nx * ny;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				data[k][i] = Math.min(data[k][i], factor.data[k][i]);
+	public RealSignal min(final RealSignal factor) {
+		SlabPool.run(this, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[] d = data[k];
+				float[] f = factor.data[k];
+				for (int i = begin; i < end; i++)
+					d[i] = Math.min(d[i], f[i]);
 			}
+		});
 		return this;
 	}
 
+	/**
+	 * Starts a lazy chain of pointwise operations evaluated in a single pass.
+	 * 
+	 * @return an expression on this signal
+	 */
+	public RealExpression lazy() {
+		return new RealExpression(this);
+	}
+
 	public double[][][] get3DArrayAsDouble() {
 		double[][][] ar = new double[nx][ny][nz];
 		for (int k = 0; k < nz; k++) {
@@ -252,7 +297,7 @@ public class RealSignal extends Signal implements SignalListener {
 	}
 
 	public RealSignal duplicate() {
-		RealSignal out = new RealSignal("copy(" + name + ")", nx, ny, nz);
+		RealSignal out = new RealSignal("copy(" + name + ")", nx, ny, nz, false);
 		int nxy = nx * ny;
 		for (int k = 0; k < nz; k++)
 			System.arraycopy(data[k], 0, out.data[k], 0, nxy);
@@ -269,32 +314,7 @@ public class RealSignal extends Signal implements SignalListener {
 	}
 
 	public float[] getStats() {
-		int nxy = nx * ny;
-		float min = Float.MAX_VALUE;
-		float max = -Float.MAX_VALUE;
-		double norm1 = 0.0;
-		double norm2 = 0.0;
-		double mean = 0.0;
-		
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				float v = data[k][i];
-				max = Math.max(max, v);
-				min = Math.min(min, v);
-				mean += v;
-				norm1 += (v > 0 ? v : -v);
-				norm2 += v * v;
-			}
-		mean = mean / (nz * nxy);
-		norm1 = norm1 / (nz * nxy);
-		norm2 = Math.sqrt(norm2 / (nz * nxy));
-		double stdev = 0.0;
-		for (int k = 0; k < nz; k++)
-			for (int i = 0; i < nxy; i++) {
-				stdev += (data[k][i] - mean) * (data[k][i] - mean);
-			}
-		stdev = Math.sqrt(stdev / (nz * nxy));
-		return new float[] { (float) mean, min, max, (float) stdev, (float) norm1, (float) norm2 };
+		return Statistics.compute(this).toArray();
 	}
 
 	public float[] getExtrema() {
@@ -350,28 +370,49 @@ public class RealSignal extends Signal implements SignalListener {
 	}
 
 	public float[] getInterleaveXYZAtReal() {
-		float[] interleave = new float[2 * nz * nx * ny];
-		for (int k = 0; k < nz; k++)
-			for (int j = 0; j < ny; j++)
-				for (int i = 0; i < nx; i++)
-					interleave[2 * (k * nx * ny + j * nx + i)] = data[k][i + j * nx];
+		return getInterleaveXYZAtReal(null);
+	}
+
+	/**
+	 * Fills an interleaved complex buffer with this signal as real part and
+	 * zero as imaginary part. The buffer is allocated only if it is null or 
+	 * if it has not the size 2*nx*ny*nz, so that a workspace can be reused.
+	 */
+	public float[] getInterleaveXYZAtReal(float[] interleave) {
+		int nxy = nx * ny;
+		if (interleave == null || interleave.length != 2 * nz * nxy)
+			interleave = new float[2 * nz * nxy];
+		for (int k = 0; k < nz; k++) {
+			int offset = 2 * k * nxy;
+			for (int i = 0; i < nxy; i++) {
+				interleave[offset + 2 * i] = data[k][i];
+				interleave[offset + 2 * i + 1] = 0f;
+			}
+		}
 		return interleave;
 	}
 
 	public void setInterleaveXYZAtReal(float[] interleave) {
-		for (int k = 0; k < nz; k++)
-			for (int j = 0; j < ny; j++)
-				for (int i = 0; i < nx; i++)
-					data[k][i + nx * j] = interleave[(k * nx * ny + j * nx + i) * 2];
+		int nxy = nx * ny;
+		for (int k = 0; k < nz; k++) {
+			int offset = 2 * k * nxy;
+			for (int i = 0; i < nxy; i++)
+				data[k][i] = interleave[offset + 2 * i];
+		}
 	}
 
 	public float[] getInterleaveXYAtReal(int k) {
-		float real[] = new float[nx * ny * 2];
-		for (int i = 0; i < nx; i++)
-			for (int j = 0; j < ny; j++) {
-				int index = i + j * nx;
-				real[2 * index] = data[k][index];
-			}
+		return getInterleaveXYAtReal(k, null);
+	}
+
+	public float[] getInterleaveXYAtReal(int k, float real[]) {
+		int nxy = nx * ny;
+		if (real == null || real.length != 2 * nxy)
+			real = new float[2 * nxy];
+		for (int index = 0; index < nxy; index++) {
+			real[2 * index] = data[k][index];
+			real[2 * index + 1] = 0f;
+		}
 		return real;
 	}
 
@@ -384,8 +425,13 @@ public class RealSignal extends Signal implements SignalListener {
 	}
 
 	public float[] getXYZ() {
+		return getXYZ(null);
+	}
+
+	public float[] getXYZ(float[] d) {
 		int nxy = nx * ny;
-		float[] d = new float[nz * nx * ny];
+		if (d == null || d.length != nz * nxy)
+			d = new float[nz * nxy];
 		for (int k = 0; k < nz; k++)
 			for (int i = 0; i < nxy; i++)
 				d[k * nxy + i] = data[k][i];
@@ -402,10 +448,12 @@ public class RealSignal extends Signal implements SignalListener {
 	}
 
 	public float[] getXY(int k) {
+		setShared();
 		return data[k];
 	}
 
 	public void setXY(int k, float slice[]) {
+		setShared();
 		data[k] = slice;
 	}
 
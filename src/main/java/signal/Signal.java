@@ -49,6 +49,15 @@ public class Signal {
 	final public int nz;
 	public float	data[][];
 	public String	name = "untitled";
+
+	/** Storage holding the slices while the signal is mapped, null otherwise. */
+	private SliceStorage	storage;
+
+	/** True if the slices may be referenced outside, they are then not pooled. */
+	private boolean			shared	= false;
+
+	/** Scope of the job which allocated the signal, or null. */
+	AllocationScope			scope;
 	
 	public Signal(String name, int nx, int ny, int nz) {
 		this.name = name;
@@ -65,5 +74,74 @@ public class Signal {
 	public String dimAsString() {
 		return nx + "x" + ny + "x" + nz + " ";
 	}
+
+	public boolean isMapped() {
+		return storage != null;
+	}
+
+	public boolean isShared() {
+		return shared;
+	}
+
+	void setShared() {
+		shared = true;
+	}
+
+	public SliceStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Moves the slices to a memory-mapped scratch file, or to direct memory
+	 * in the off-heap mode, and releases the arrays of the heap. The array 'data' can not be used until unmap(), 
+	 * the slices are accessible through getStorage().
+	 * 
+	 * @return true if the signal is mapped
+	 */
+	public synchronized boolean map() {
+		if (storage != null)
+			return true;
+		if (nz == 0 || data[0] == null)
+			return false;
+		try {
+			storage = SliceStorage.create(nz, data[0].length);
+		}
+		catch (Exception ex) {
+			storage = null;
+			return false;
+		}
+		for (int k = 0; k < nz; k++) {
+			storage.write(k, data[k]);
+			if (!shared)
+				SignalCollector.recycle(data[k]);
+			data[k] = null;
+		}
+		SignalCollector.addMapped(this, 1);
+		return true;
+	}
+
+	/**
+	 * Moves back the slices on the heap and closes the storage.
+	 */
+	public synchronized void unmap() {
+		if (storage == null)
+			return;
+		for (int k = 0; k < nz; k++) {
+			data[k] = SignalCollector.acquire(storage.getSliceLength(), false);
+			storage.read(k, data[k]);
+		}
+		release();
+		SignalCollector.addMapped(this, -1);
+	}
+
+	/**
+	 * Closes the storage without reading it back.
+	 */
+	synchronized void release() {
+		if (storage == null)
+			return;
+		storage.close();
+		storage = null;
+	}
 	
 }
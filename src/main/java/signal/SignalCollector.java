@@ -1,66 +1,119 @@
 package signal;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 import bilib.table.CustomizedColumn;
 import bilib.table.CustomizedTable;
 import bilib.tools.NumFormat;
+import deconvolutionlab.monitor.Monitors;
 import deconvolutionlab.system.SystemUsage;
 
+/**
+ * This class accounts the signals in memory. The counters are atomic and the
+ * allocation path does not touch the user interface: a sampler publishes 
+ * snapshots to the table and to the monitors at a fixed rate. The table is 
+ * created on demand, the rows of the individual signals are only traced 
+ * while the table exists.
+ */
 public class SignalCollector {
 
-	private static long					bytesReal			= 0;
-	private static int					countReal			= 0;
-	private static long					bytesComplex		= 0;
-	private static int					countComplex		= 0;
-	private static double				chrono				= 0;
+	private static AtomicLong			bytesReal			= new AtomicLong();
+	private static AtomicInteger		countReal			= new AtomicInteger();
+	private static AtomicLong			bytesComplex		= new AtomicLong();
+	private static AtomicInteger		countComplex		= new AtomicInteger();
+	private static double				chrono				= System.nanoTime();
 	private static CustomizedTable		table;
-	private static double				progress			= 0;
-
-	private static int					countPeakComplex = 0;
-	private static int					countPeakReal = 0;
-	private static long					bytesPeakComplex = 0;
-	private static long					bytesPeakReal = 0;
-
-	private static ArrayList<Signal>	signals;
-	protected final static int			NOTIFICATION_RATE	= 25;
-
-	static {
-		bytesReal = 0;
-		countReal = 0;
-		bytesComplex = 0;
-		countComplex = 0;
-		signals = new ArrayList<Signal>();
-		chrono = System.nanoTime();
-		ArrayList<CustomizedColumn> columns = new ArrayList<CustomizedColumn>();
-		columns.add(new CustomizedColumn("Time", String.class, 100, false));
-		columns.add(new CustomizedColumn("Name", String.class, 600, false));
-		columns.add(new CustomizedColumn("Dimension", String.class, 60, false));
-		columns.add(new CustomizedColumn("Count", String.class, 100, false));
-		columns.add(new CustomizedColumn("Total", String.class, 100, false));
-		columns.add(new CustomizedColumn("Memory", String.class, 100, false));
-		table = new CustomizedTable(columns, true);
-		table.getColumnModel().getColumn(4).setMaxWidth(100);
-		table.getColumnModel().getColumn(4).setMinWidth(100);
-	}
-
-	public static JScrollPane getPanel(int w, int h) {
+	private static volatile double		progress			= 0;
+
+	private static AtomicInteger		countPeakComplex	= new AtomicInteger();
+	private static AtomicInteger		countPeakReal		= new AtomicInteger();
+	private static AtomicLong			bytesPeakComplex	= new AtomicLong();
+	private static AtomicLong			bytesPeakReal		= new AtomicLong();
+	private static AtomicLong			bytesMapped			= new AtomicLong();
+	private static AtomicInteger		countMapped			= new AtomicInteger();
+	private static AtomicLong			bytesPeakMapped		= new AtomicLong();
+	private static AtomicInteger		allocations			= new AtomicInteger();
+	private static AtomicInteger		frees				= new AtomicInteger();
+	
+	/** Size in bytes above which the idle signals are mapped, negative to disable */
+	private static long					mappingThreshold = -1;
+
+	/** Slices of the freed signals reused by the new signals, 1/8 of the heap by default */
+	private static BufferPool			pool = new BufferPool(Runtime.getRuntime().maxMemory() / 8);
+
+	private static Set<Signal>			signals				= Collections.newSetFromMap(new ConcurrentHashMap<Signal, Boolean>());
+	private static ThreadLocal<AllocationScope>	scope		= new InheritableThreadLocal<AllocationScope>();
+
+	/** Rows of the individual signals waiting for the sampler, bounded by MAXIMUM_TRACES */
+	private static ConcurrentLinkedQueue<String[]>	traces	= new ConcurrentLinkedQueue<String[]>();
+	private static AtomicInteger		countTraces			= new AtomicInteger();
+	private static volatile boolean		tracing				= false;
+	private final static int			MAXIMUM_TRACES		= 4096;
+
+	private static Timer				sampler;
+	private static Monitors				samplerMonitors;
+	private static int					lastAllocations		= 0;
+	private static int					lastFrees			= 0;
+
+	/**
+	 * Returns the table of the signals, created on the first call with a
+	 * sampler refreshing it every second.
+	 */
+	public static synchronized JScrollPane getPanel(int w, int h) {
+		if (table == null) {
+			ArrayList<CustomizedColumn> columns = new ArrayList<CustomizedColumn>();
+			columns.add(new CustomizedColumn("Time", String.class, 100, false));
+			columns.add(new CustomizedColumn("Name", String.class, 600, false));
+			columns.add(new CustomizedColumn("Dimension", String.class, 60, false));
+			columns.add(new CustomizedColumn("Count", String.class, 100, false));
+			columns.add(new CustomizedColumn("Total", String.class, 100, false));
+			columns.add(new CustomizedColumn("Memory", String.class, 100, false));
+			table = new CustomizedTable(columns, true);
+			table.getColumnModel().getColumn(4).setMaxWidth(100);
+			table.getColumnModel().getColumn(4).setMinWidth(100);
+			tracing = true;
+			if (sampler == null)
+				startSampler(1000, samplerMonitors);
+		}
 		return table.getPane(w, h);
 	}
 
 	public static String sumarize() {
-		return "" + NumFormat.bytes(bytesReal + bytesComplex);
+		long bytes = bytesReal.get() + bytesComplex.get();
+		if (countMapped.get() > 0)
+			return "" + NumFormat.bytes(bytes) + " + " + NumFormat.bytes(bytesMapped.get()) + " mapped";
+		return "" + NumFormat.bytes(bytes);
 	}
 
 	public static void clear() {
 		for(Signal signal : signals) {
+			signal.release();
 			for (int z = 0; z < signal.nz; z++)
 				signal.data[z] = new float[1];
 		}
 		signals.clear();
-		table.removeRows();
+		pool.clear();
+		traces.clear();
+		countTraces.set(0);
+		final CustomizedTable t = table;
+		if (t != null)
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					t.removeRows();
+				}
+			});
 	}
 
 	public static double getProgress() {
@@ -72,8 +125,25 @@ public class SignalCollector {
 	}
 
 	public static void marker(String msg) {
-		String row[] = { "", msg, "", "", "", "" };
-		table.append(row);
+		trace(new String[] { "", msg, "", "", "", "" });
+	}
+
+	/**
+	 * Binds a new scope to the calling thread and to the threads it creates.
+	 * The signals allocated in these threads are accounted in the scope.
+	 */
+	public static AllocationScope openScope(String name) {
+		AllocationScope s = new AllocationScope(name);
+		scope.set(s);
+		return s;
+	}
+
+	public static void closeScope() {
+		scope.remove();
+	}
+
+	public static AllocationScope getScope() {
+		return scope.get();
 	}
 
 	public static void alloc(Signal signal) {
@@ -81,8 +151,12 @@ public class SignalCollector {
 			marker("error in allocating");
 			return;
 		}
+		signal.scope = scope.get();
 		signals.add(signal);
-		addTable(signal, 1);
+		allocations.incrementAndGet();
+		account(signal, 1);
+		if (tracing)
+			trace(signal, "+");
 	}
 
 	public static void free(Signal signal) { 
@@ -90,67 +164,221 @@ public class SignalCollector {
 			marker("error in freeing");
 			return;
 		}
-		for (int z = 0; z < signal.nz; z++)
+		if (signal.isMapped()) {
+			signal.release();
+			addMapped(signal, -1);
+		}
+		boolean pooled = !signal.isShared();
+		for (int z = 0; z < signal.nz; z++) {
+			if (pooled)
+				pool.recycle(signal.data[z]);
 			signal.data[z] = new float[1];
+		}
 
-		signals.remove(signal);
-		addTable(signal, -1);
-		signal = null;
+		// A signal freed twice is only accounted once
+		if (!signals.remove(signal))
+			return;
+		frees.incrementAndGet();
+		account(signal, -1);
+		if (tracing)
+			trace(signal, "-");
 	}
 
-	public static void addTable(Signal signal, int sign) {
-		boolean complex = signal instanceof ComplexSignal;
-		int nx = signal.nx;
-		int ny = signal.ny;
-		int nz = signal.nz;
-		long b = sign * (nx * ny * nz * 4 * (complex ? 2 : 1));
-
-		if (complex) {
-			bytesComplex += b;
-			countComplex += sign;
+	private static void account(Signal signal, int sign) {
+		long b = sign * getBytes(signal);
+		if (signal instanceof ComplexSignal) {
+			max(bytesPeakComplex, bytesComplex.addAndGet(b));
+			max(countPeakComplex, countComplex.addAndGet(sign));
 		}
 		else {
-			bytesReal += b;
-			countReal += sign;
+			max(bytesPeakReal, bytesReal.addAndGet(b));
+			max(countPeakReal, countReal.addAndGet(sign));
 		}
-		
-		bytesPeakComplex = Math.max(bytesPeakComplex, bytesComplex);
-		bytesPeakReal = Math.max(bytesPeakReal, bytesReal);
-		countPeakComplex = Math.max(countPeakComplex, countComplex);
-		countPeakReal = Math.max(countPeakReal, countReal);
-		String m = NumFormat.bytes(SystemUsage.getHeapUsed());
-		String t = NumFormat.time(System.nanoTime() - chrono);
-		String dim = "" + nx + "x" + ny + "x" + nz;
-		String c = "" + (countReal + countComplex);
-		String a = NumFormat.bytes(bytesReal + bytesComplex);
-		String row[] = { t, (sign > 0 ? "+" : "-") + signal.name, dim, c, a, m };
-		table.append(row);
+		if (signal.scope != null)
+			signal.scope.add(b, sign);
 	}
 	
+	/**
+	 * Moves the bytes of a signal from the heap to the mapped memory (sign 1)
+	 * or back (sign -1).
+	 */
+	public static void addMapped(Signal signal, int sign) {
+		long b = sign * getBytes(signal);
+		if (signal instanceof ComplexSignal)
+			bytesComplex.addAndGet(-b);
+		else
+			bytesReal.addAndGet(-b);
+		max(bytesPeakMapped, bytesMapped.addAndGet(b));
+		countMapped.addAndGet(sign);
+		if (tracing)
+			trace(signal, sign > 0 ? "map " : "unmap ");
+	}
+
+	static void max(AtomicLong peak, long value) {
+		long current = peak.get();
+		while (value > current && !peak.compareAndSet(current, value))
+			current = peak.get();
+	}
+
+	static void max(AtomicInteger peak, int value) {
+		int current = peak.get();
+		while (value > current && !peak.compareAndSet(current, value))
+			current = peak.get();
+	}
+
+	private static void trace(Signal signal, String prefix) {
+		String t = NumFormat.time(System.nanoTime() - chrono);
+		String dim = "" + signal.nx + "x" + signal.ny + "x" + signal.nz;
+		trace(new String[] { t, prefix + signal.name, dim, "", "", "" });
+	}
+
+	private static void trace(String[] row) {
+		if (countTraces.incrementAndGet() > MAXIMUM_TRACES) {
+			countTraces.decrementAndGet();
+			return;
+		}
+		traces.add(row);
+	}
+
+	/**
+	 * Starts to publish a snapshot of the signals at a fixed rate, to the 
+	 * table if it exists and to the monitors if they are not null. A snapshot
+	 * is only published if signals were allocated or freed since the last one.
+	 * 
+	 * @param period
+	 *            period in milliseconds
+	 */
+	public static synchronized void startSampler(long period, Monitors monitors) {
+		stopSampler();
+		samplerMonitors = monitors;
+		sampler = new Timer("DL2 signals", true);
+		sampler.scheduleAtFixedRate(new TimerTask() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, period, period);
+	}
+
+	public static synchronized void stopSampler() {
+		if (sampler != null)
+			sampler.cancel();
+		sampler = null;
+	}
+
+	private static void sample() {
+		final ArrayList<String[]> rows = new ArrayList<String[]>();
+		String[] row;
+		while ((row = traces.poll()) != null) {
+			countTraces.decrementAndGet();
+			rows.add(row);
+		}
+		int a = allocations.get();
+		int f = frees.get();
+		if (a != lastAllocations || f != lastFrees) {
+			String m = NumFormat.bytes(SystemUsage.getHeapUsed());
+			String t = NumFormat.time(System.nanoTime() - chrono);
+			String c = "" + getCountSignals();
+			String s = "+" + (a - lastAllocations) + " -" + (f - lastFrees) + " signals";
+			rows.add(new String[] { t, s, "", c, sumarize(), m });
+			Monitors monitors = samplerMonitors;
+			if (monitors != null)
+				monitors.log("Signals: " + s + ", " + c + " in memory, " + sumarize());
+			lastAllocations = a;
+			lastFrees = f;
+		}
+		final CustomizedTable t = table;
+		if (t == null || rows.size() == 0)
+			return;
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				for (String[] r : rows)
+					t.append(r);
+			}
+		});
+	}
+
+	static float[] acquire(int length, boolean zero) {
+		return pool.acquire(length, zero);
+	}
+
+	static void recycle(float[] array) {
+		pool.recycle(array);
+	}
+
+	public static BufferPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the maximum number of bytes kept in the pool of slices, 0 disables
+	 * the pooling.
+	 */
+	public static void setPoolCapacity(long bytes) {
+		pool.setCapacity(bytes);
+	}
+
+	/**
+	 * Sets the size in bytes above which Algorithm moves the idle signals 
+	 * to memory-mapped scratch files or to direct memory, a negative value 
+	 * disables the mapping.
+	 */
+	public static void setMappingThreshold(long bytes) {
+		mappingThreshold = bytes;
+	}
+
+	public static long getMappingThreshold() {
+		return mappingThreshold;
+	}
+
+	public static boolean isMappable(Signal signal) {
+		return mappingThreshold >= 0 && signal != null && getBytes(signal) > mappingThreshold;
+	}
+
+	public static long getBytes(Signal signal) {
+		return 4L * signal.nx * signal.ny * signal.nz * (signal instanceof ComplexSignal ? 2 : 1);
+	}
+
+	public static long getBytesMapped() {
+		return bytesMapped.get();
+	}
+
+	public static long getBytesPeakMapped() {
+		return bytesPeakMapped.get();
+	}
+
+	public static int getCountMapped() {
+		return countMapped.get();
+	}
+
 	public static int getCountSignals() {
-		return countComplex + countReal;	
+		return countComplex.get() + countReal.get();	
 	}
 
 	public static long getBytesSignals() {
-		return bytesComplex + bytesReal;	
+		return bytesComplex.get() + bytesReal.get();	
 	}
 
 	public static long getBytesPeakSignals() {
-		return bytesPeakComplex + bytesPeakReal;	
+		return bytesPeakComplex.get() + bytesPeakReal.get();	
 	}
 
 	public static int getCountPeakSignals() {
-		return countPeakComplex + countPeakReal;	
+		return countPeakComplex.get() + countPeakReal.get();	
 	}
 
 	public static void resetSignals() {
-		countPeakComplex = 0;
-		countPeakReal = 0;
-		bytesPeakComplex = 0;
-		bytesPeakReal = 0;
-		countComplex = 0;
-		countReal = 0;
-		bytesComplex = 0;
-		bytesReal = 0;
+		countPeakComplex.set(0);
+		countPeakReal.set(0);
+		bytesPeakComplex.set(0);
+		bytesPeakReal.set(0);
+		countComplex.set(0);
+		countReal.set(0);
+		bytesComplex.set(0);
+		bytesReal.set(0);
+		countMapped.set(0);
+		bytesMapped.set(0);
+		bytesPeakMapped.set(0);
 	}
 }
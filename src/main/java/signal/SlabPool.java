@@ -0,0 +1,155 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the pointwise kernels of the signals on a shared fork-join pool. The 
+ * work is split in z-slabs, and in blocks of a slice when there are fewer 
+ * slices than threads. The small signals are processed sequentially.
+ * 
+ * The parallelism is enabled or disabled by the option -multithreading. A
+ * thread can be bound to its own pool to limit the number of cores used by
+ * its kernels, as done by the batch scheduler. The pool and the option are
+ * bound to the calling thread and inherited by the threads it creates, so
+ * that concurrent jobs do not override each other.
+ */
+public class SlabPool {
+
+	/** Kernel applied on the range [begin, end[ of the array data[k] */
+	public static abstract class Kernel {
+		public abstract void apply(int k, int begin, int end);
+	}
+
+	private static ForkJoinPool					pool		= new ForkJoinPool();
+	private static ThreadLocal<ForkJoinPool>	local		= new InheritableThreadLocal<ForkJoinPool>();
+	private static ThreadLocal<Boolean>			enabled		= new InheritableThreadLocal<Boolean>();
+
+	/** Minimum number of floats to run in parallel */
+	private static int							threshold	= 1 << 15;
+
+	public static void setEnabled(boolean enabled) {
+		SlabPool.enabled.set(enabled);
+	}
+
+	public static boolean isEnabled() {
+		Boolean bound = enabled.get();
+		return bound == null || bound.booleanValue();
+	}
+
+	public static void setThreshold(int threshold) {
+		SlabPool.threshold = threshold;
+	}
+
+	public static int getParallelism() {
+		return isEnabled() ? getPool().getParallelism() : 1;
+	}
+
+	/**
+	 * Binds a pool to the calling thread and to the threads it creates, the
+	 * shared pool is used again if the pool is null.
+	 */
+	public static void setPool(ForkJoinPool pool) {
+		if (pool == null)
+			local.remove();
+		else
+			local.set(pool);
+	}
+
+	private static ForkJoinPool getPool() {
+		ForkJoinPool bound = local.get();
+		return bound == null ? pool : bound;
+	}
+
+	/**
+	 * Applies the kernel on all the samples of the signal, 2 floats per 
+	 * sample for a complex signal.
+	 */
+	public static void run(Signal signal, Kernel kernel) {
+		int step = (signal instanceof ComplexSignal ? 2 : 1);
+		run(signal.nz, signal.nx * signal.ny * step, step, kernel);
+	}
+
+	/**
+	 * Applies the kernel on nz arrays of length floats. The ranges given to
+	 * the kernel are aligned on step.
+	 */
+	public static void run(int nz, int length, int step, Kernel kernel) {
+		ForkJoinPool current = getPool();
+		int nthreads = current.getParallelism();
+		if (!isEnabled() || nthreads <= 1 || (long) nz * length < threshold) {
+			for (int k = 0; k < nz; k++)
+				kernel.apply(k, 0, length);
+			return;
+		}
+		// Blocks per slice, enough blocks to balance the threads
+		int blocks = Math.max(1, (4 * nthreads + nz - 1) / nz);
+		int size = (length / step + blocks - 1) / blocks * step;
+		blocks = (length + size - 1) / size;
+		current.invoke(new Task(kernel, 0, nz * blocks, blocks, size, length));
+	}
+
+	private static class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Kernel	kernel;
+		private int		first;
+		private int		last;
+		private int		blocks;
+		private int		size;
+		private int		length;
+
+		public Task(Kernel kernel, int first, int last, int blocks, int size, int length) {
+			this.kernel = kernel;
+			this.first = first;
+			this.last = last;
+			this.blocks = blocks;
+			this.size = size;
+			this.length = length;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				int middle = (first + last) / 2;
+				invokeAll(new Task(kernel, first, middle, blocks, size, length), new Task(kernel, middle, last, blocks, size, length));
+				return;
+			}
+			int k = first / blocks;
+			int begin = (first % blocks) * size;
+			kernel.apply(k, begin, Math.min(length, begin + size));
+		}
+	}
+}
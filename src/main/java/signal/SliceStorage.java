@@ -0,0 +1,116 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+
+/**
+ * This class stores the slices of a signal outside the Java heap, in a
+ * memory-mapped scratch file (MappedStorage) or in direct buffers 
+ * (DirectStorage). The slices are accessed through read and write.
+ */
+public abstract class SliceStorage {
+
+	private static boolean	offHeap	= false;
+
+	protected FloatBuffer[]	slices;
+	protected int			length;
+
+	/**
+	 * @param nz
+	 *            number of slices
+	 * @param length
+	 *            number of floats of one slice
+	 */
+	protected SliceStorage(int nz, int length) {
+		this.length = length;
+		this.slices = new FloatBuffer[nz];
+	}
+
+	/**
+	 * Creates a storage in direct buffers if the off-heap mode is set, in a
+	 * scratch file otherwise.
+	 */
+	public static SliceStorage create(int nz, int length) throws IOException {
+		if (offHeap)
+			return new DirectStorage(nz, length);
+		return new MappedStorage(nz, length);
+	}
+
+	public static void setOffHeap(boolean offHeap) {
+		SliceStorage.offHeap = offHeap;
+	}
+
+	public static boolean isOffHeap() {
+		return offHeap;
+	}
+
+	public int getSliceLength() {
+		return length;
+	}
+
+	public long getBytes() {
+		return 4L * length * slices.length;
+	}
+
+	public void read(int k, float[] slice) {
+		read(k, 0, slice, 0, length);
+	}
+
+	public void write(int k, float[] slice) {
+		write(k, 0, slice, 0, length);
+	}
+
+	/** Reads count floats of the slice k starting at position. */
+	public void read(int k, int position, float[] dst, int offset, int count) {
+		FloatBuffer buffer = slices[k].duplicate();
+		buffer.position(position);
+		buffer.get(dst, offset, count);
+	}
+
+	/** Writes count floats in the slice k starting at position. */
+	public void write(int k, int position, float[] src, int offset, int count) {
+		FloatBuffer buffer = slices[k].duplicate();
+		buffer.position(position);
+		buffer.put(src, offset, count);
+	}
+
+	/**
+	 * Returns the slice k as a buffer sharing the storage.
+	 */
+	public FloatBuffer getSlice(int k) {
+		return slices[k].duplicate();
+	}
+
+	public abstract void close();
+}
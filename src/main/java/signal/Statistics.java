@@ -0,0 +1,246 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package signal;
+
+/**
+ * Streaming accumulator of the statistics of a real signal: mean, minimum,
+ * maximum, stdev, norm L1 and energy (norm L2). Optionally, it accumulates in
+ * the same pass the error to a reference (SNR, PSNR) and the difference to 
+ * the previous estimate (relative residu).
+ * 
+ * The samples are fed by blocks with accumulate(), and the partial results of
+ * several threads are combined with merge(). The method compute() does it in
+ * one parallel pass over the signal.
+ */
+public class Statistics {
+
+	private long	count	= 0;
+	private double	mean	= 0.0;
+	private double	m2		= 0.0;
+	private double	norm1	= 0.0;
+	private double	norm2	= 0.0;
+	private float	min		= Float.MAX_VALUE;
+	private float	max		= -Float.MAX_VALUE;
+
+	private long	countRef	= 0;
+	private double	maxRef		= -Double.MAX_VALUE;
+	private double	energyRef	= 0.0;
+	private double	errorRef	= 0.0;
+
+	private long	countPrev	= 0;
+	private double	energyPrev	= 0.0;
+	private double	errorPrev	= 0.0;
+
+	/**
+	 * Computes the statistics of x in one parallel pass.
+	 * 
+	 * @param x		signal
+	 * @param ref	reference, or null
+	 * @param prev	previous estimate, or null
+	 */
+	public static Statistics compute(final RealSignal x, final RealSignal ref, final RealSignal prev) {
+		final Statistics stats = new Statistics();
+		final RealSignal r = (ref != null && sameSize(x, ref) ? ref : null);
+		final RealSignal p = (prev != null && sameSize(x, prev) ? prev : null);
+		SlabPool.run(x, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				Statistics block = new Statistics();
+				block.accumulate(x.data[k], r == null ? null : r.data[k], p == null ? null : p.data[k], begin, end);
+				synchronized (stats) {
+					stats.merge(block);
+				}
+			}
+		});
+		return stats;
+	}
+
+	public static Statistics compute(RealSignal x) {
+		return compute(x, null, null);
+	}
+
+	private static boolean sameSize(RealSignal a, RealSignal b) {
+		return a.nx == b.nx && a.ny == b.ny && a.nz == b.nz;
+	}
+
+	/**
+	 * Accumulates the samples [begin, end[ of the array x. The arrays ref and
+	 * prev are optional.
+	 */
+	public void accumulate(float[] x, float[] ref, float[] prev, int begin, int end) {
+		int n = end - begin;
+		if (n <= 0)
+			return;
+		// Sums shifted by the first sample to keep the variance accurate
+		double shift = x[begin];
+		double s1 = 0.0;
+		double s2 = 0.0;
+		double l1 = 0.0;
+		double l2 = 0.0;
+		float mi = min;
+		float ma = max;
+		for (int i = begin; i < end; i++) {
+			float v = x[i];
+			if (v < mi)
+				mi = v;
+			if (v > ma)
+				ma = v;
+			double d = v - shift;
+			s1 += d;
+			s2 += d * d;
+			l1 += (v > 0 ? v : -v);
+			l2 += v * v;
+		}
+		min = mi;
+		max = ma;
+		norm1 += l1;
+		norm2 += l2;
+		combine(n, shift + s1 / n, s2 - s1 * s1 / n);
+
+		if (ref != null) {
+			double mr = maxRef;
+			double er = 0.0;
+			double ee = 0.0;
+			for (int i = begin; i < end; i++) {
+				double a = ref[i];
+				if (a > mr)
+					mr = a;
+				er += a * a;
+				ee += (a - x[i]) * (a - x[i]);
+			}
+			maxRef = mr;
+			energyRef += er;
+			errorRef += ee;
+			countRef += n;
+		}
+
+		if (prev != null) {
+			double ep = 0.0;
+			double ee = 0.0;
+			for (int i = begin; i < end; i++) {
+				double a = prev[i];
+				ep += a * a;
+				ee += (a - x[i]) * (a - x[i]);
+			}
+			energyPrev += ep;
+			errorPrev += ee;
+			countPrev += n;
+		}
+	}
+
+	/** Combines the partial statistics of another block. */
+	public void merge(Statistics block) {
+		if (block.count > 0) {
+			min = Math.min(min, block.min);
+			max = Math.max(max, block.max);
+			norm1 += block.norm1;
+			norm2 += block.norm2;
+			combine(block.count, block.mean, block.m2);
+		}
+		countRef += block.countRef;
+		maxRef = Math.max(maxRef, block.maxRef);
+		energyRef += block.energyRef;
+		errorRef += block.errorRef;
+		countPrev += block.countPrev;
+		energyPrev += block.energyPrev;
+		errorPrev += block.errorPrev;
+	}
+
+	// Parallel update of the mean and of the sum of squared deviations (Chan)
+	private void combine(long n, double meanb, double m2b) {
+		long total = count + n;
+		double delta = meanb - mean;
+		mean += delta * n / total;
+		m2 += m2b + delta * delta * count * n / total;
+		count = total;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public float getMinimum() {
+		return min;
+	}
+
+	public float getMaximum() {
+		return max;
+	}
+
+	public double getStdev() {
+		return count == 0 ? 0.0 : Math.sqrt(Math.max(0.0, m2) / count);
+	}
+
+	public double getNorm1() {
+		return count == 0 ? 0.0 : norm1 / count;
+	}
+
+	public double getEnergy() {
+		return count == 0 ? 0.0 : Math.sqrt(norm2 / count);
+	}
+
+	public boolean hasReference() {
+		return countRef > 0;
+	}
+
+	public boolean hasPrevious() {
+		return countPrev > 0;
+	}
+
+	public double getSNR() {
+		double sref = Math.sqrt(energyRef / countRef);
+		double rmse = Math.sqrt(errorRef / countRef);
+		return rmse <= 0 ? Double.POSITIVE_INFINITY : 20 * Math.log10(sref / rmse);
+	}
+
+	public double getPSNR() {
+		double rmse = Math.sqrt(errorRef / countRef);
+		return rmse <= 0 ? Double.POSITIVE_INFINITY : 20 * Math.log10(maxRef / rmse);
+	}
+
+	public double getRMSE() {
+		return Math.sqrt(errorRef / countRef);
+	}
+
+	/** Relative residu to the previous estimate, see Assessment.relativeResidu. */
+	public double getResidu() {
+		double sref = Math.sqrt(energyPrev / countPrev);
+		double rmse = Math.sqrt(errorPrev / countPrev);
+		return rmse / Math.max(sref, Operations.epsilon);
+	}
+
+	/** Same layout as RealSignal.getStats(): mean, min, max, stdev, norm1, norm2 */
+	public float[] toArray() {
+		return new float[] { (float) getMean(), min, max, (float) getStdev(), (float) getNorm1(), (float) getEnergy() };
+	}
+}
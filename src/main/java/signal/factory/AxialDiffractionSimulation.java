@@ -34,6 +34,7 @@ package signal.factory;
 import deconvolutionlab.monitor.Monitors;
 import fft.AbstractFFT;
 import fft.FFT;
+import fft.FFTCache;
 import signal.ComplexSignal;
 import signal.RealSignal;
 import signal.factory.complex.ComplexSignalFactory;
@@ -77,8 +78,7 @@ public class AxialDiffractionSimulation extends SignalFactory {
 
 	@Override
 	public void fill(RealSignal signal) {
-		AbstractFFT fft = FFT.getFastestFFT().getDefaultFFT();
-		fft.init(Monitors.createDefaultMonitor(), nx, ny, 1);
+		AbstractFFT fft = FFTCache.acquire(Monitors.createDefaultMonitor(), FFT.getFastestFFT().getDefaultFFT(), nx, ny, 1);
 
 		double defocusTop = 2.0*Math.PI / (defocusFactor*pupil);
 		double defocusCen = 2.0*Math.PI / pupil;
@@ -111,6 +111,7 @@ public class AxialDiffractionSimulation extends SignalFactory {
 			signal.setXY(z, pz.getXY(0));
 			signal.setXY(nz-1-z, pz.duplicate().getXY(0));
 		}
+		FFTCache.release(fft);
 		signal.rescale(0, amplitude);
 	}
 }
@@ -34,6 +34,7 @@ package signal.factory;
 import deconvolutionlab.monitor.Monitors;
 import fft.AbstractFFT;
 import fft.FFT;
+import fft.FFTCache;
 import signal.ComplexSignal;
 import signal.RealSignal;
 import signal.factory.complex.ComplexSignalFactory;
@@ -79,6 +80,7 @@ public class DirectionalDerivative extends SignalFactory {
 		AbstractFFT fft = FFT.createDefaultFFT(Monitors.createDefaultMonitor(), nx, ny, nz);
 		ComplexSignal C = ComplexSignalFactory.directionalDerivative(nx, ny, nz, vx, vy, vz);
 		RealSignal s = fft.inverse(C).circular().times((float)amplitude);
+		FFTCache.release(fft);
 		signal.copy(s);
 	}
 
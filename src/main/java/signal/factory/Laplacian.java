@@ -37,6 +37,7 @@ import signal.factory.complex.ComplexSignalFactory;
 import deconvolutionlab.monitor.Monitors;
 import fft.AbstractFFT;
 import fft.FFT;
+import fft.FFTCache;
 
 public class Laplacian extends SignalFactory {
 
@@ -68,6 +69,7 @@ public class Laplacian extends SignalFactory {
 		AbstractFFT fft = FFT.createDefaultFFT(Monitors.createDefaultMonitor(), nx, ny, nz);
 		ComplexSignal C = ComplexSignalFactory.laplacian(nx, ny, nz);
 		RealSignal s = fft.inverse(C).circular().times((float)amplitude);
+		FFTCache.release(fft);
 		signal.copy(s);
 	}
 }
@@ -36,6 +36,10 @@ import signal.ComplexSignal;
 public class ComplexSignalFactory {
 
 	public static ComplexSignal gaussian(int nx, int ny, int nz, double sigma) {
+		return gaussian(nx, ny, nz, sigma, false);
+	}
+
+	public static ComplexSignal gaussian(int nx, int ny, int nz, double sigma, boolean halfSpectrum) {
 		double K = sigma * sigma / 2.0;
 		int xsize = nx / 2;
 		int ysize = ny / 2;
@@ -51,10 +55,14 @@ public class ComplexSignalFactory {
 					wr = Math.sqrt(wx * wx + wy * wy + wz * wz);
 					function[x][y][z] = (float) Math.exp(-wr * wr * K);
 				}
-		return createHermitian("Gaussian", nx, ny, nz, function);
+		return createHermitian("Gaussian", nx, ny, nz, function, halfSpectrum);
 	}
 
 	public static ComplexSignal identity(int nx, int ny, int nz) {
+		return identity(nx, ny, nz, false);
+	}
+
+	public static ComplexSignal identity(int nx, int ny, int nz, boolean halfSpectrum) {
 		int xsize = nx / 2;
 		int ysize = ny / 2;
 		int zsize = nz / 2;
@@ -63,10 +71,14 @@ public class ComplexSignalFactory {
 			for (int y = 0; y <= ysize; y++)
 				for (int x = 0; x <= xsize; x++)
 					function[x][y][z] = 1.0f;
-		return createHermitian("Identity", nx, ny, nz, function);
+		return createHermitian("Identity", nx, ny, nz, function, halfSpectrum);
 	}
 
 	public static ComplexSignal laplacian(int nx, int ny, int nz) {
+		return laplacian(nx, ny, nz, false);
+	}
+
+	public static ComplexSignal laplacian(int nx, int ny, int nz, boolean halfSpectrum) {
 		int xsize = nx / 2;
 		int ysize = ny / 2;
 		int zsize = nz / 2;
@@ -80,10 +92,14 @@ public class ComplexSignalFactory {
 					wz = (zsize > 0 ? Math.PI * z / zsize : 0);
 					function[x][y][z] = (float) ((wx * wx + wy * wy + wz * wz));
 				}
-		return createHermitian("Laplacian", nx, ny, nz, function);
+		return createHermitian("Laplacian", nx, ny, nz, function, halfSpectrum);
 	}
 	
 	public static ComplexSignal directionalDerivative(int nx, int ny, int nz, double vx, double vy, double vz) {
+		return directionalDerivative(nx, ny, nz, vx, vy, vz, false);
+	}
+
+	public static ComplexSignal directionalDerivative(int nx, int ny, int nz, double vx, double vy, double vz, boolean halfSpectrum) {
 		int xsize = nx / 2;
 		int ysize = ny / 2;
 		int zsize = nz / 2;
@@ -97,10 +113,14 @@ public class ComplexSignalFactory {
 					wz = (zsize > 0 ? Math.PI * z / zsize : 0);
 					function[x][y][z] = (float) ((wx * vx + vy * wy + vz * wz));
 				}
-		return createHermitian("Directional Derivative", nx, ny, nz, function);
+		return createHermitian("Directional Derivative", nx, ny, nz, function, halfSpectrum);
 	}
 
 	public static ComplexSignal rings(int nx, int ny, int nz, double mu) {
+		return rings(nx, ny, nz, mu, false);
+	}
+
+	public static ComplexSignal rings(int nx, int ny, int nz, double mu, boolean halfSpectrum) {
 		int xsize = nx / 2;
 		int ysize = ny / 2;
 		int zsize = nz / 2;
@@ -119,7 +139,7 @@ public class ComplexSignalFactory {
 							+ 1.0 / (1.0 + Math.exp(-K * (wr - 0.6 * mu))) 
 							- 1.0 / (1.0 + Math.exp(-K * (wr - 0.4 * mu))));
 				}
-		return createHermitian("Airy", nx, ny, nz, function);
+		return createHermitian("Airy", nx, ny, nz, function, halfSpectrum);
 	}
 
 	public static ComplexSignal createHermitian(String name, int nx, int ny, int nz, float[][][] firstQuadrantReal, float[][][] firstQuadrantImag) {
@@ -219,4 +239,24 @@ public class ComplexSignalFactory {
 		}
 		return signal;
 	}
+
+	/**
+	 * Creates a symmetric real function from its first quadrant, as a full
+	 * spectrum or as a half spectrum (nx/2+1 bins along X).
+	 */
+	public static ComplexSignal createHermitian(String name, int nx, int ny, int nz, float[][][] firstQuadrant, boolean halfSpectrum) {
+		if (!halfSpectrum)
+			return createHermitian(name, nx, ny, nz, firstQuadrant);
+		ComplexSignal signal = new ComplexSignal(name, nx, ny, nz, true);
+		int mx = signal.nx;
+		for (int z = 0; z < nz; z++) {
+			int c = (z <= nz / 2 ? z : nz - z);
+			for (int y = 0; y < ny; y++) {
+				int b = (y <= ny / 2 ? y : ny - y);
+				for (int x = 0; x < mx; x++)
+					signal.data[z][2 * (x + mx * y)] = firstQuadrant[x][b][c];
+			}
+		}
+		return signal;
+	}
 }
@@ -0,0 +1,168 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal.padding;
+
+import java.util.HashMap;
+
+import deconvolutionlab.monitor.Monitors;
+import fft.AbstractFFT;
+import fft.FFT;
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+/**
+ * Padding which selects, for each axis, the size m >= n minimizing the 
+ * predicted cost of one iteration: m * (F * fft(m) + P * pointwise), where F
+ * is the number of FFTs per iteration, P the number of pointwise passes per 
+ * iteration, fft(m) the measured time per sample of a transform of length m 
+ * and pointwise the measured time per sample of a pointwise operation.
+ * 
+ * The timings are measured with the FFT of the job on the first request of a
+ * size, after a warm-up run, and kept in a table shared by all the instances.
+ */
+public class OptimalPadding extends AbstractPadding {
+
+	private static HashMap<String, Double>	timings		= new HashMap<String, Double>();
+	private static double					pointwise	= -1;
+
+	/** Number of rows of the measured transform, the timing is per sample */
+	private static int						rows		= 16;
+
+	/** Number of timed runs, the minimum is kept */
+	private static int						repetitions	= 5;
+
+	private double							ffts		= 4;
+	private double							passes		= 6;
+	private AbstractFFT						fft			= null;
+
+	public OptimalPadding() {
+	}
+
+	/**
+	 * Sets the number of FFTs and of pointwise passes per iteration of the 
+	 * algorithm, and the FFT to time. The fastest library is timed if the FFT
+	 * is null.
+	 */
+	public void setCostModel(double fftsPerIteration, double passesPerIteration, AbstractFFT fft) {
+		this.ffts = Math.max(0, fftsPerIteration);
+		this.passes = Math.max(0, passesPerIteration);
+		this.fft = fft;
+	}
+
+	@Override
+	public String getName() {
+		return "Optimal (cost model)";
+	}
+
+	@Override
+	public String getShortname() {
+		return "OPTIMAL";
+	}
+
+	@Override
+	public int padding(int n) {
+		if (n <= 2)
+			return n;
+		int upper = 1;
+		while (upper < n)
+			upper *= 2;
+		int best = n;
+		double bestCost = Double.MAX_VALUE;
+		for (int m = n; m <= upper; m++) {
+			if (m != n && m != upper && !isSmooth(m))
+				continue;
+			double cost = m * (ffts * getTiming(fft, m) + passes * getPointwise());
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = m;
+			}
+		}
+		return best;
+	}
+
+	private static boolean isSmooth(int m) {
+		for (int p : new int[] { 2, 3, 5, 7 })
+			while (m % p == 0)
+				m /= p;
+		return m == 1;
+	}
+
+	/** Time per sample of a forward and an inverse transform of length m. */
+	private static synchronized double getTiming(AbstractFFT prototype, int m) {
+		String key = (prototype == null ? "fastest" : prototype.getName() + (prototype.isHalfSpectrum() ? " half" : " full")) + " " + m;
+		Double timing = timings.get(key);
+		if (timing != null)
+			return timing.doubleValue();
+		// A new instance is timed, the FFT of the job is not initialized here
+		AbstractFFT fft = prototype == null ? null : prototype.newInstance();
+		if (fft == null)
+			fft = FFT.getFastestFFT().getDefaultFFT();
+		fft.init(new Monitors(), m, rows, 1);
+		RealSignal x = new RealSignal("timing", m, rows, 1);
+		ComplexSignal X = fft.createComplexSignal("timing");
+		fft.transform(x, X);
+		fft.inverse(X, x);
+		double time = Double.MAX_VALUE;
+		for (int r = 0; r < repetitions; r++) {
+			double chrono = System.nanoTime();
+			fft.transform(x, X);
+			fft.inverse(X, x);
+			time = Math.min(time, System.nanoTime() - chrono);
+		}
+		SignalCollector.free(x);
+		SignalCollector.free(X);
+		timing = time / (m * rows);
+		timings.put(key, timing);
+		return timing.doubleValue();
+	}
+
+	/** Time per sample of a complex multiplication. */
+	private static synchronized double getPointwise() {
+		if (pointwise > 0)
+			return pointwise;
+		int n = 256 * rows;
+		ComplexSignal a = new ComplexSignal("timing", n, 1, 1);
+		ComplexSignal b = new ComplexSignal("timing", n, 1, 1);
+		a.times(b);
+		double time = Double.MAX_VALUE;
+		for (int r = 0; r < repetitions; r++) {
+			double chrono = System.nanoTime();
+			a.times(b);
+			time = Math.min(time, System.nanoTime() - chrono);
+		}
+		SignalCollector.free(a);
+		SignalCollector.free(b);
+		pointwise = time / n;
+		return pointwise;
+	}
+}
@@ -34,6 +34,7 @@ package signal.padding;
 import java.util.ArrayList;
 
 import deconvolutionlab.monitor.Monitors;
+import fft.AbstractFFT;
 import signal.RealSignal;
 
 public class Padding {
@@ -113,6 +114,7 @@ public class Padding {
 		pads.add(new Power2Padding());
 		pads.add(new Multiple23Padding());
 		pads.add(new Multiple235Padding());
+		pads.add(new OptimalPadding());
 		return pads;
 	}
 	
@@ -153,6 +155,24 @@ public class Padding {
 		return new NoPadding();
 	}
 
+	/** 
+	 * Returns a padding with the same settings. The original size is stored
+	 * by pad() for crop(), so concurrent jobs need their own instance.
+	 */
+	public Padding duplicate() {
+		return new Padding(padX, padY, padZ, minExtensionX, minExtensionY, minExtensionZ);
+	}
+
+	/**
+	 * Gives the number of FFTs and of pointwise passes per iteration, and the
+	 * FFT of the job, to the cost-model paddings.
+	 */
+	public void setCostModel(double fftsPerIteration, double passesPerIteration, AbstractFFT fft) {
+		for (AbstractPadding pad : new AbstractPadding[] { padX, padY, padZ })
+			if (pad instanceof OptimalPadding)
+				((OptimalPadding) pad).setCostModel(fftsPerIteration, passesPerIteration, fft);
+	}
+
 	public int[] pad(int nx, int ny, int nz) {
 		return new int[] { padX.padding(nx+minExtensionX), padY.padding(ny+minExtensionY), padZ.padding(nz+minExtensionZ)};
 	}
@@ -32,12 +32,22 @@
 package wavelets;
 
 import signal.RealSignal;
-import signal.SignalCollector;
+import signal.SlabPool;
 
+/**
+ * Separable wavelet transforms computed in place. The scales are processed on
+ * the top-left sub-volume of the coefficients, without intermediate signals,
+ * and the lines are filtered in parallel on the SlabPool. Each thread keeps
+ * its own line buffers for the whole run.
+ * 
+ * The subclasses only give the 1D filters split() and merge().
+ */
 public abstract class AbstractWavelets {
 
 	protected int scales;
-	
+
+	private static ThreadLocal<float[][]> lines = new ThreadLocal<float[][]>();
+
 	public AbstractWavelets() {
 		this.scales = 3;
 	}
@@ -47,18 +57,35 @@ public abstract class AbstractWavelets {
 	}
 	
 	public abstract void setScale(int scale);
-	public abstract void analysis1(RealSignal in, RealSignal out);
-	public abstract void synthesis1(RealSignal in, RealSignal out);
 	public abstract String getName();
 	public abstract String getDocumentation();
+
+	/** One level of 1D analysis of the n first samples of vin. */
+	public abstract void split(float vin[], float vout[], int n);
+
+	/** One level of 1D synthesis of the n first samples of vin. */
+	public abstract void merge(float vin[], float vout[], int n);
 	
 	public int getScales() {
 		return scales;
 	}
 	
+	/**
+	 * Analysis, soft threshold and synthesis. The threshold is applied on the
+	 * coefficients of each scale as soon as they are final, during the last
+	 * pass of the analysis.
+	 */
 	public void shrinkage(float threshold, RealSignal in, RealSignal out, RealSignal buffer) {
-		analysis(in, buffer);
-		buffer.thresholdSoft(-threshold, threshold);
+		buffer.copy(in);
+		int nx = in.nx;
+		int ny = in.ny;
+		int nz = in.nz;
+		for (int i = 0; i < scales; i++) {
+			transform(buffer, nx, ny, nz, true, threshold, i == scales - 1);
+			nx = Math.max(1, nx / 2);
+			ny = Math.max(1, ny / 2);
+			nz = Math.max(1, nz / 2);
+		}
 		synthesis(buffer, out);
 	}
 
@@ -67,23 +94,12 @@ public abstract class AbstractWavelets {
 
 		if (out == null)
 			out = new RealSignal(name, in.nx, in.ny, in.nz);	
-		int nxfine = in.nx;
-		int nyfine = in.ny;
-		int nzfine = in.nz;
-		int nx = nxfine;
-		int ny = nyfine;
-		int nz = nzfine;
+		out.copy(in);
+		int nx = in.nx;
+		int ny = in.ny;
+		int nz = in.nz;
 		for ( int i=0; i<scales; i++) {
-			RealSignal sub = new RealSignal("sub" + i, nx, ny, nz);
-			if (i==0)
-				in.getSignal(sub);
-			else
-				out.getSignal(sub);
-			RealSignal subout = new RealSignal("subout" + i, nx, ny, nz);
-			analysis1(sub, subout);
-			out.setSignal(subout);
-			SignalCollector.free(sub);
-			SignalCollector.free(subout);
+			transform(out, nx, ny, nz, true, -1, false);
 			nx = Math.max(1, nx / 2);
 			ny = Math.max(1, ny / 2);
 			nz = Math.max(1, nz / 2);
@@ -104,13 +120,7 @@ public abstract class AbstractWavelets {
 		out.copy(in);
 		
 		for ( int i=0; i<scales; i++) {
-			RealSignal sub = new RealSignal("sub" + i, nx, ny, nz);
-			out.getSignal(sub);
-			RealSignal subout = new RealSignal("subout" + i, nx, ny, nz);
-			synthesis1(sub, subout);
-			out.setSignal(subout);
-			SignalCollector.free(sub);
-			SignalCollector.free(subout);
+			transform(out, nx, ny, nz, false, -1, false);
 			nx = nx * 2;
 			ny = ny * 2;
 			if (nz > 1) 
@@ -118,4 +128,127 @@ public abstract class AbstractWavelets {
 		}
 	}
 
+	/** One level of analysis of the signal. */
+	public void analysis1(RealSignal in, RealSignal out) {
+		out.copy(in);
+		transform(out, in.nx, in.ny, in.nz, true, -1, false);
+	}
+
+	/** One level of synthesis of the signal. */
+	public void synthesis1(RealSignal in, RealSignal out) {
+		out.copy(in);
+		transform(out, in.nx, in.ny, in.nz, false, -1, false);
+	}
+
+	/**
+	 * Transforms in place the sub-volume [0..nx[ x [0..ny[ x [0..nz[ of the 
+	 * signal, along x, y, then z if nz > 1. If threshold is positive, the soft
+	 * threshold is applied in the last pass to the coefficients which are not
+	 * transformed by the next scale, or to all of them for the last scale.
+	 */
+	private void transform(final RealSignal signal, final int nx, final int ny, final int nz, final boolean forward, final float threshold, final boolean last) {
+		final float[][] data = signal.data;
+		final int mx = signal.nx;
+		final int my = signal.ny;
+		final boolean shrink = threshold >= 0;
+		final boolean alongZ = nz > 1;
+		// Size of the sub-volume of the next scale
+		final int nx2 = last ? 0 : Math.max(1, nx / 2);
+		final int ny2 = last ? 0 : Math.max(1, ny / 2);
+		final int nz2 = last ? 0 : Math.max(1, nz / 2);
+
+		// Lines along x, the kernel receives a range of rows
+		SlabPool.run(nz, nx * ny, nx, new SlabPool.Kernel() {
+			@Override
+			public void apply(int z, int begin, int end) {
+				float[][] buffers = getLines(nx);
+				float u[] = buffers[0];
+				float v[] = buffers[1];
+				float[] d = data[z];
+				for (int y = begin / nx; y < end / nx; y++) {
+					int offset = mx * y;
+					System.arraycopy(d, offset, u, 0, nx);
+					filter(u, v, nx, forward);
+					System.arraycopy(v, 0, d, offset, nx);
+				}
+			}
+		});
+
+		// Lines along y, the kernel receives a range of columns
+		SlabPool.run(nz, nx * ny, ny, new SlabPool.Kernel() {
+			@Override
+			public void apply(int z, int begin, int end) {
+				float[][] buffers = getLines(ny);
+				float u[] = buffers[0];
+				float v[] = buffers[1];
+				float[] d = data[z];
+				int cut = (shrink && !alongZ && z < nz2) ? ny2 : 0;
+				for (int x = begin / ny; x < end / ny; x++) {
+					for (int y = 0; y < ny; y++)
+						u[y] = d[x + mx * y];
+					filter(u, v, ny, forward);
+					if (shrink && !alongZ)
+						threshold(v, x < nx2 ? cut : 0, ny, threshold);
+					for (int y = 0; y < ny; y++)
+						d[x + mx * y] = v[y];
+				}
+			}
+		});
+
+		if (!alongZ)
+			return;
+
+		// Lines along z, the kernel receives a range of rows
+		SlabPool.run(1, nx * ny * nz, nx * nz, new SlabPool.Kernel() {
+			@Override
+			public void apply(int k, int begin, int end) {
+				float[][] buffers = getLines(nz);
+				float u[] = buffers[0];
+				float v[] = buffers[1];
+				for (int y = begin / (nx * nz); y < end / (nx * nz); y++)
+				for (int x = 0; x < nx; x++) {
+					int index = x + mx * y;
+					for (int z = 0; z < nz; z++)
+						u[z] = data[z][index];
+					filter(u, v, nz, forward);
+					if (shrink)
+						threshold(v, (x < nx2 && y < ny2) ? nz2 : 0, nz, threshold);
+					for (int z = 0; z < nz; z++)
+						data[z][index] = v[z];
+				}
+			}
+		});
+	}
+
+	private void filter(float u[], float v[], int n, boolean forward) {
+		// The last sample of an odd line is not produced by the filters
+		if (n % 2 == 1)
+			v[n - 1] = 0f;
+		if (forward)
+			split(u, v, n);
+		else
+			merge(u, v, n);
+	}
+
+	// Same rule as RealSignal.thresholdSoft(-threshold, threshold)
+	private static void threshold(float v[], int begin, int end, float threshold) {
+		float inferiorLimit = -threshold;
+		for (int i = begin; i < end; i++) {
+			if (v[i] <= inferiorLimit)
+				v[i] += inferiorLimit;
+			else if (v[i] >= threshold)
+				v[i] -= threshold;
+			else
+				v[i] = 0f;
+		}
+	}
+
+	private static float[][] getLines(int n) {
+		float[][] buffers = lines.get();
+		if (buffers == null || buffers[0].length < n) {
+			buffers = new float[][] { new float[n], new float[n] };
+			lines.set(buffers);
+		}
+		return buffers;
+	}
 }
@@ -31,7 +31,6 @@
 
 package wavelets.haar;
 
-import signal.RealSignal;
 import wavelets.AbstractWavelets;
 
 public class HaarWavelets extends AbstractWavelets {
@@ -58,79 +57,8 @@ public class HaarWavelets extends AbstractWavelets {
 	}
 
 	@Override
-	public void analysis1(RealSignal in, RealSignal out) {
-		int nx = in.nx;
-		int ny = in.ny;
-		int nz = in.nz;
-
-		float ux[] = new float[nx];
-		float vx[] = new float[nx];
-		for (int z = 0; z < nz; z++)
-			for (int y = 0; y < ny; y++) {
-				ux = in.getX(y, z);
-				split(ux, vx);
-				out.setX(y, z, vx);
-			}
-
-		float uy[] = new float[ny];
-		float vy[] = new float[ny];
-		for (int z = 0; z < nz; z++)
-			for (int x = 0; x < nx; x++) {
-				uy = out.getY(x, z);
-				split(uy, vy);
-				out.setY(x, z, vy);
-			}
-		if (nz > 1) {
-			float uz[] = new float[nz];
-			float vz[] = new float[nz];
-			for (int x = 0; x < nx; x++)
-				for (int y = 0; y < ny; y++) {
-					uz = out.getZ(x, y);
-					split(uz, vz);
-					out.setZ(x, y, vz);
-				}
-		}
-	}
-
-	@Override
-	public void synthesis1(RealSignal in, RealSignal out) {
-
-		int nx = in.nx;
-		int ny = in.ny;
-		int nz = in.nz;
-
-		float ux[] = new float[nx];
-		float vx[] = new float[nx];
-		for (int z = 0; z < nz; z++)
-			for (int y = 0; y < ny; y++) {
-				ux = in.getX(y, z);
-				merge(ux, vx);
-				out.setX(y, z, vx);
-			}
-
-		float uy[] = new float[ny];
-		float vy[] = new float[ny];
-		for (int z = 0; z < nz; z++)
-			for (int x = 0; x < nx; x++) {
-				uy = out.getY(x, z);
-				merge(uy, vy);
-				out.setY(x, z, vy);
-			}
-		
-		if (nz > 1) {
-			float uz[] = new float[nz];
-			float vz[] = new float[nz];
-			for (int x = 0; x < nx; x++)
-				for (int y = 0; y < ny; y++) {
-					uz = out.getZ(x, y);
-					merge(uz, vz);
-					out.setZ(x, y, vz);
-				}
-		}
-	}
-
-	private void split(float vin[], float vout[]) {
-		int n2 = vin.length / 2;
+	public void split(float vin[], float vout[], int n) {
+		int n2 = n / 2;
 		int j;
 		for (int i = 0; i < n2; i++) {
 			j = 2 * i;
@@ -140,8 +68,9 @@ public class HaarWavelets extends AbstractWavelets {
 
 	}
 
-	private void merge(float vin[], float vout[]) {
-		int n2 = vin.length / 2;
+	@Override
+	public void merge(float vin[], float vout[], int n) {
+		int n2 = n / 2;
 		for (int i = 0; i < n2; i++) {
 			vout[2 * i] = (float) ((vin[i] + vin[i + n2]) / q);
 			vout[2 * i + 1] = (float) ((vin[i] - vin[i + n2]) / q);
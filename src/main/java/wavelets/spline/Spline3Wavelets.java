@@ -31,7 +31,6 @@
 
 package wavelets.spline;
 
-import signal.RealSignal;
 import wavelets.AbstractWavelets;
 
 public class Spline3Wavelets extends AbstractWavelets {
@@ -60,12 +59,12 @@ public class Spline3Wavelets extends AbstractWavelets {
 	}
 
 	@Override
-    public void analysis1(RealSignal in, RealSignal out) {
-		tool.analysis1(in, out);
+	public void split(float vin[], float vout[], int n) {
+		tool.split(vin, vout, n);
 	}
 	
 	@Override
-    public void synthesis1(RealSignal in, RealSignal out) {
-		tool.synthesis1(in, out);
+	public void merge(float vin[], float vout[], int n) {
+		tool.merge(vin, vout, n);
 	}
 }
@@ -0,0 +1,131 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package deconvolutionlab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import deconvolutionlab.monitor.Monitors;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+public class TIFFFileTest {
+
+	private Monitors monitors = new Monitors();
+
+	@Test
+	public void testRoundTripFloat() throws IOException {
+		check(Imager.Type.FLOAT, -1000f, 1000f, 0f);
+	}
+
+	@Test
+	public void testRoundTripShort() throws IOException {
+		check(Imager.Type.SHORT, 0f, 65535f, 0.5f);
+	}
+
+	@Test
+	public void testRoundTripByte() throws IOException {
+		check(Imager.Type.BYTE, 0f, 255f, 0.5f);
+	}
+
+	@Test
+	public void testStripsWithoutByteCounts() throws IOException {
+		// 4x4 8-bit image in 2 strips, without the tag StripByteCounts
+		ByteBuffer buffer = ByteBuffer.allocate(32 + 2 + 7 * 12 + 4).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(32);
+		for (int i = 0; i < 16; i++)
+			buffer.put((byte) i);
+		buffer.putInt(8).putInt(16);
+		buffer.putShort((short) 7);
+		entry(buffer, 256, 3, 1, 4);
+		entry(buffer, 257, 3, 1, 4);
+		entry(buffer, 258, 3, 1, 8);
+		entry(buffer, 259, 3, 1, 1);
+		entry(buffer, 262, 3, 1, 1);
+		entry(buffer, 273, 4, 2, 24);
+		entry(buffer, 278, 3, 1, 2);
+		buffer.putInt(0);
+		File file = File.createTempFile("strips", ".tif");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(buffer.array());
+			out.close();
+			assertNull(TIFFFile.read(monitors, file.getAbsolutePath()));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private void entry(ByteBuffer buffer, int tag, int type, int count, int value) {
+		buffer.putShort((short) tag).putShort((short) type).putInt(count);
+		if (type == 3)
+			buffer.putShort((short) value).putShort((short) 0);
+		else
+			buffer.putInt(value);
+	}
+
+	private void check(Imager.Type type, float min, float max, float tolerance) throws IOException {
+		int nx = 37, ny = 23, nz = 5;
+		RealSignal signal = new RealSignal("signal", nx, ny, nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny; i++)
+				signal.data[k][i] = min + (max - min) * ((i * 7 + k * 131) % 1001) / 1000f;
+		File file = File.createTempFile("roundtrip", ".tif");
+		try {
+			assertTrue(TIFFFile.write(monitors, file.getAbsolutePath(), signal, type));
+			RealSignal read = TIFFFile.read(monitors, file.getAbsolutePath());
+			assertNotNull(read);
+			assertEquals(nx, read.nx);
+			assertEquals(ny, read.ny);
+			assertEquals(nz, read.nz);
+			for (int k = 0; k < nz; k++)
+				for (int i = 0; i < nx * ny; i++)
+					assertEquals(signal.data[k][i], read.data[k][i], tolerance);
+			SignalCollector.free(read);
+		}
+		finally {
+			SignalCollector.free(signal);
+			file.delete();
+		}
+	}
+}
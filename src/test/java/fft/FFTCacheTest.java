@@ -0,0 +1,98 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fft.academic.Academic;
+import fft.jtransforms.JTransforms;
+import signal.RealSignal;
+import deconvolutionlab.monitor.Monitors;
+
+public class FFTCacheTest {
+
+	private Monitors monitors = new Monitors();
+
+	@Before
+	public void setUp() {
+		FFTCache.clear();
+	}
+
+	@After
+	public void tearDown() {
+		FFTCache.clear();
+	}
+
+	@Test
+	public void testBusyPrototypeIsNotShared() {
+		AbstractFFT prototype = new Academic();
+		AbstractFFT first = FFTCache.acquire(monitors, prototype, 8, 8, 4);
+		AbstractFFT second = FFTCache.acquire(monitors, prototype, 8, 8, 4);
+		assertSame(prototype, first);
+		assertNotSame(first, second);
+		FFTCache.release(first);
+		FFTCache.release(second);
+	}
+
+	@Test
+	public void testReleasedIsReused() {
+		AbstractFFT first = FFTCache.acquire(monitors, new Academic(), 8, 8, 4);
+		FFTCache.release(first);
+		AbstractFFT second = FFTCache.acquire(monitors, new Academic(), 8, 8, 4);
+		assertSame(first, second);
+		AbstractFFT third = FFTCache.acquire(monitors, new Academic(), 8, 8, 4);
+		assertNotSame(second, third);
+		FFTCache.release(second);
+		FFTCache.release(third);
+	}
+
+	@Test
+	public void testChargedWorkspace() {
+		AbstractFFT fft = FFTCache.acquire(monitors, new JTransforms(), 16, 12, 8);
+		RealSignal x = new RealSignal("x", 16, 12, 8);
+		fft.inverse(fft.transform(x), x);
+		long workspace = fft.getWorkspaceBytes();
+		assertTrue(workspace > 0);
+		FFTCache.release(fft);
+		assertEquals(workspace, FFTCache.getBytes());
+		assertSame(fft, FFTCache.acquire(monitors, new JTransforms(), 16, 12, 8));
+		assertEquals(0, FFTCache.getBytes());
+		FFTCache.release(fft);
+	}
+}
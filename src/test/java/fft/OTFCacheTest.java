@@ -0,0 +1,96 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import signal.ComplexSignal;
+import signal.SignalCollector;
+
+public class OTFCacheTest {
+
+	@Before
+	public void setUp() {
+		OTFCache.clear();
+		OTFCache.setMaxEntries(8);
+		OTFCache.setMemoryCap(256L * 1024L * 1024L);
+	}
+
+	@After
+	public void tearDown() {
+		OTFCache.clear();
+		OTFCache.setMaxEntries(8);
+		OTFCache.setMemoryCap(256L * 1024L * 1024L);
+	}
+
+	@Test
+	public void testEvictionByEntries() {
+		for (int i = 0; i < 12; i++)
+			OTFCache.put("otf" + i, new ComplexSignal("otf" + i, 8, 8, 2));
+		assertEquals(8, OTFCache.getCountEntries());
+		assertNull(OTFCache.copy("otf0"));
+		assertNull(OTFCache.copy("otf3"));
+		ComplexSignal last = OTFCache.copy("otf11");
+		assertNotNull(last);
+		SignalCollector.free(last);
+	}
+
+	@Test
+	public void testEvictionOrderIsAccessOrder() {
+		for (int i = 0; i < 8; i++)
+			OTFCache.put("otf" + i, new ComplexSignal("otf" + i, 8, 8, 2));
+		SignalCollector.free(OTFCache.copy("otf0"));
+		OTFCache.put("otf8", new ComplexSignal("otf8", 8, 8, 2));
+		assertNull(OTFCache.copy("otf1"));
+		ComplexSignal first = OTFCache.copy("otf0");
+		assertNotNull(first);
+		SignalCollector.free(first);
+	}
+
+	@Test
+	public void testEvictionByMemory() {
+		ComplexSignal otf = new ComplexSignal("otf", 8, 8, 2);
+		long size = SignalCollector.getBytes(otf);
+		OTFCache.setMemoryCap(3 * size);
+		OTFCache.put("otf0", otf);
+		for (int i = 1; i < 6; i++)
+			OTFCache.put("otf" + i, new ComplexSignal("otf" + i, 8, 8, 2));
+		assertEquals(3, OTFCache.getCountEntries());
+		assertEquals(3 * size, OTFCache.getBytes());
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft.fftw;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import deconvolutionlab.monitor.Monitors;
+import fft.AbstractFFT;
+import fft.jtransforms.JTransforms;
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+import signal.SliceStorage;
+
+public class FFTWDirectTest {
+
+	private Monitors monitors = new Monitors();
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(new FFTWDirectLibrary().isInstalled());
+	}
+
+	@Test
+	public void testHalfSpectrum() {
+		check(true, 15, 12, 7);
+		check(true, 33, 20, 1);
+	}
+
+	@Test
+	public void testFullSpectrum() {
+		check(false, 15, 12, 7);
+	}
+
+	/** A signal mapped in direct memory is transformed without being read back on the heap. */
+	@Test
+	public void testDirectStorage() {
+		AbstractFFT fft = new FFTWDirect();
+		fft.init(monitors, 16, 8, 4);
+		RealSignal x = random(16, 8, 4);
+		ComplexSignal expected = fft.transform(x);
+		RealSignal copy = x.duplicate();
+		SliceStorage.setOffHeap(true);
+		try {
+			assertTrue(x.map());
+			ComplexSignal X = fft.transform(x);
+			assertTrue(x.isMapped());
+			for (int k = 0; k < 4; k++)
+				for (int i = 0; i < X.data[k].length; i++)
+					assertEquals(expected.data[k][i], X.data[k][i], 0);
+			x.unmap();
+			for (int k = 0; k < 4; k++)
+				for (int i = 0; i < 16 * 8; i++)
+					assertEquals("the input is unchanged", copy.data[k][i], x.data[k][i], 0);
+			SignalCollector.free(X);
+		}
+		finally {
+			SliceStorage.setOffHeap(false);
+		}
+		SignalCollector.free(expected);
+		SignalCollector.free(copy);
+		SignalCollector.free(x);
+	}
+
+	/** The spectrum matches JTransforms, and the round trip gives the input back. */
+	private void check(boolean halfSpectrum, int nx, int ny, int nz) {
+		AbstractFFT fft = new FFTWDirect();
+		fft.setHalfSpectrum(halfSpectrum);
+		fft.init(monitors, nx, ny, nz);
+		AbstractFFT reference = new JTransforms();
+		reference.setHalfSpectrum(false);
+		reference.init(monitors, nx, ny, nz);
+
+		RealSignal x = random(nx, ny, nz);
+		ComplexSignal X = fft.transform(x);
+		ComplexSignal F = reference.transform(x);
+		ComplexSignal U = halfSpectrum ? X.getFullSpectrum() : X.duplicate();
+		double tolerance = 1e-4 * Math.sqrt(nx * ny * nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < 2 * nx * ny; i++)
+				assertEquals(F.data[k][i], U.data[k][i], tolerance);
+
+		ComplexSignal copy = X.duplicate();
+		RealSignal y = fft.inverse(X);
+		for (int k = 0; k < nz; k++) {
+			for (int i = 0; i < nx * ny; i++)
+				assertEquals(x.data[k][i], y.data[k][i], 1e-4);
+			for (int i = 0; i < copy.data[k].length; i++)
+				assertEquals("the inverse keeps the spectrum", copy.data[k][i], X.data[k][i], 0);
+		}
+		for (ComplexSignal s : new ComplexSignal[] { X, F, U, copy })
+			SignalCollector.free(s);
+		SignalCollector.free(x);
+		SignalCollector.free(y);
+	}
+
+	private RealSignal random(int nx, int ny, int nz) {
+		Random rand = new Random(nx + ny + nz);
+		RealSignal x = new RealSignal("x", nx, ny, nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny; i++)
+				x.data[k][i] = rand.nextFloat() - 0.5f;
+		return x;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package fft.jtransforms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import deconvolutionlab.monitor.Monitors;
+import fft.AbstractFFT;
+import signal.ComplexSignal;
+import signal.RealSignal;
+import signal.SignalCollector;
+
+public class JTransformsRealToComplexTest {
+
+	@Test
+	public void testJTransforms() {
+		check(new JTransforms(), new JTransforms(), 15, 12, 7);
+		check(new JTransforms(), new JTransforms(), 33, 20, 1);
+	}
+
+	@Test
+	public void testJTransformsXYZ() {
+		check(new JTransformsFFT_XYZ(), new JTransformsFFT_XYZ(), 15, 12, 7);
+	}
+
+	@Test
+	public void testJTransformsXY_Z() {
+		check(new JTransformsFFT_XY_Z(), new JTransformsFFT_XY_Z(), 15, 12, 7);
+	}
+
+	@Test
+	public void testLargeVolumeInParallel() {
+		check(new JTransforms(), new JTransforms(), 65, 64, 32);
+	}
+
+	/** The half spectrum matches the full spectrum, and the round trip gives the input back. */
+	private void check(AbstractFFT half, AbstractFFT full, int nx, int ny, int nz) {
+		Monitors monitors = new Monitors();
+		half.setHalfSpectrum(true);
+		half.init(monitors, nx, ny, nz);
+		full.setHalfSpectrum(false);
+		full.init(monitors, nx, ny, nz);
+
+		Random rand = new Random(nx + ny + nz);
+		RealSignal x = new RealSignal("x", nx, ny, nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny; i++)
+				x.data[k][i] = rand.nextFloat() - 0.5f;
+
+		ComplexSignal H = half.transform(x);
+		ComplexSignal F = full.transform(x);
+		ComplexSignal U = H.getFullSpectrum();
+		double tolerance = 1e-4 * Math.sqrt(nx * ny * nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < 2 * nx * ny; i++)
+				assertEquals(F.data[k][i], U.data[k][i], tolerance);
+
+		ComplexSignal copy = H.duplicate();
+		RealSignal y = half.inverse(H);
+		for (int k = 0; k < nz; k++) {
+			for (int i = 0; i < nx * ny; i++)
+				assertEquals(x.data[k][i], y.data[k][i], 1e-4);
+			for (int i = 0; i < copy.data[k].length; i++)
+				assertEquals("the inverse keeps the spectrum", copy.data[k][i], H.data[k][i], 0);
+		}
+		for (ComplexSignal s : new ComplexSignal[] { H, F, U, copy })
+			SignalCollector.free(s);
+		SignalCollector.free(x);
+		SignalCollector.free(y);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * DeconvolutionLab2
+ * 
+ * Conditions of use: You are free to use this software for research or
+ * educational purposes. In addition, we expect you to include adequate
+ * citations and acknowledgments whenever you present or publish results that
+ * are based on it.
+ * 
+ * Reference: DeconvolutionLab2: An Open-Source Software for Deconvolution
+ * Microscopy D. Sage, L. Donati, F. Soulez, D. Fortun, G. Schmit, A. Seitz,
+ * R. Guiet, C. Vonesch, M Unser, Methods of Elsevier, 2017.
+ */
+
+/*
+ * Copyright 2010-2017 Biomedical Imaging Group at the EPFL.
+ * 
+ * This file is part of DeconvolutionLab2 (DL2).
+ * 
+ * DL2 is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * DL2 is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * DL2. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package signal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fft.AbstractFFT;
+import fft.academic.Academic;
+import deconvolutionlab.monitor.Monitors;
+
+public class ComplexSignalTest {
+
+	private static final int	nx	= 15;
+	private static final int	ny	= 8;
+	private static final int	nz	= 5;
+
+	@Test
+	public void testHalfSpectrumStorage() {
+		ComplexSignal half = new ComplexSignal("half", nx, ny, nz, true);
+		assertEquals(nx / 2 + 1, half.nx);
+		assertEquals(nx, half.nxSpatial);
+		assertEquals((nx / 2 + 1) * ny * 2, half.data[0].length);
+	}
+
+	@Test
+	public void testTimes() {
+		check(0);
+	}
+
+	@Test
+	public void testTimesConjugate() {
+		check(1);
+	}
+
+	@Test
+	public void testDivide() {
+		check(2);
+	}
+
+	private void check(int operation) {
+		RealSignal x = random(1);
+		RealSignal h = random(2);
+		AbstractFFT fftHalf = createFFT(true);
+		AbstractFFT fftFull = createFFT(false);
+		ComplexSignal Xh = fftHalf.transform(x);
+		ComplexSignal Hh = fftHalf.transform(h);
+		ComplexSignal Xf = fftFull.transform(x);
+		ComplexSignal Hf = fftFull.transform(h);
+		apply(operation, Xh, Hh);
+		apply(operation, Xf, Hf);
+
+		ComplexSignal full = Xh.getFullSpectrum();
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny * 2; i++)
+				assertEquals(Xf.data[k][i], full.data[k][i], 1e-3 * (1 + Math.abs(Xf.data[k][i])));
+
+		RealSignal yh = fftHalf.inverse(Xh);
+		RealSignal yf = fftFull.inverse(Xf);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny; i++)
+				assertEquals(yf.data[k][i], yh.data[k][i], 1e-3 * (1 + Math.abs(yf.data[k][i])));
+	}
+
+	private void apply(int operation, ComplexSignal X, ComplexSignal H) {
+		if (operation == 0)
+			X.times(H);
+		else if (operation == 1)
+			X.timesConjugate(H);
+		else
+			X.divide(H);
+	}
+
+	private AbstractFFT createFFT(boolean halfSpectrum) {
+		AbstractFFT fft = new Academic();
+		fft.setHalfSpectrum(halfSpectrum);
+		fft.init(new Monitors(), nx, ny, nz);
+		return fft;
+	}
+
+	private RealSignal random(long seed) {
+		Random rand = new Random(seed);
+		RealSignal signal = new RealSignal("random", nx, ny, nz);
+		for (int k = 0; k < nz; k++)
+			for (int i = 0; i < nx * ny; i++)
+				signal.data[k][i] = 1f + rand.nextFloat();
+		return signal;
+	}
+}